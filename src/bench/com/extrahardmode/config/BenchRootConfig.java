@@ -0,0 +1,97 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.config;
+
+
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockWorld;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Config lookups as done by the event handlers, directly from the RootConfig and from the compiled WorldSettings.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchRootConfig
+{
+    private RootConfig cfg;
+
+    private World world;
+
+
+    @Setup
+    public void prepare()
+    {
+        cfg = new RootConfig(new MockExtraHardMode().get());
+        cfg.set("world", RootNode.WEAK_FOOD_CROPS, true);
+        cfg.set("world", RootNode.GHASTS_DEFLECT_ARROWS, 50);
+        world = new MockWorld("world").get();
+    }
+
+
+    @Benchmark
+    public boolean getBoolean()
+    {
+        return cfg.getBoolean(RootNode.WEAK_FOOD_CROPS, world.getName());
+    }
+
+
+    @Benchmark
+    public int getInt()
+    {
+        return cfg.getInt(RootNode.GHASTS_DEFLECT_ARROWS, world.getName());
+    }
+
+
+    @Benchmark
+    public boolean settingsGetBoolean()
+    {
+        return cfg.getSettings(world).getBoolean(RootNode.WEAK_FOOD_CROPS);
+    }
+
+
+    @Benchmark
+    public int settingsGetInt()
+    {
+        return cfg.getSettings(world).getInt(RootNode.GHASTS_DEFLECT_ARROWS);
+    }
+
+
+    /**
+     * Lookup in a world where ehm isn't enabled, most events on a server with multiple worlds
+     */
+    @Benchmark
+    public boolean getBooleanNotEnabled()
+    {
+        return cfg.getBoolean(RootNode.WEAK_FOOD_CROPS, "world_nether");
+    }
+}
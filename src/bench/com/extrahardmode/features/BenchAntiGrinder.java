@@ -0,0 +1,129 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.features;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.RootNode;
+import com.extrahardmode.mocks.MockBlock;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockLivingEntity;
+import com.extrahardmode.mocks.MockLocation;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.mocks.events.MockCreatureSpawnEvent;
+import com.extrahardmode.module.BlockModule;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Spawn and death handlers of the AntiGrinder, both run for every monster on the server.
+ * <p/>
+ * Bukkit objects are Mockito mocks, so the absolute numbers include the mock overhead. Compare the results between
+ * versions, not to the timings of a live server.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchAntiGrinder
+{
+    private AntiGrinder module;
+
+    private CreatureSpawnEvent naturalSpawn;
+
+    private CreatureSpawnEvent spawnerSpawn;
+
+    private EntityDeathEvent death;
+
+
+    @Setup
+    public void prepare()
+    {
+        ExtraHardMode plugin = new MockExtraHardMode().get();
+        RootConfig CFG = new RootConfig(plugin);
+        CFG.set("world", RootNode.INHIBIT_MONSTER_GRINDERS, true);
+        module = new AntiGrinder(plugin, CFG, new BlockModule(plugin));
+
+        //Zombie spawning naturally on dirt in the OverWorld
+        MockCreatureSpawnEvent event = new MockCreatureSpawnEvent(EntityType.ZOMBIE, "world", CreatureSpawnEvent.SpawnReason.NATURAL);
+        MockBlock block = new MockBlock().setWorld(event.getWorld().get()).setMaterial(Material.AIR);
+        MockBlock relative = new MockBlock().setWorld(event.getWorld().get()).setMaterial(Material.DIRT);
+        relative.setRelative(BlockFace.DOWN, new MockBlock().setMaterial(Material.DIRT).get());
+        block.setRelative(BlockFace.DOWN, relative.get());
+        MockLocation location = event.getLocation();
+        location.setBlock(block);
+        event.setLocation(location);
+        event.getWorld().setEnvironment(World.Environment.NORMAL);
+        naturalSpawn = event.get();
+
+        spawnerSpawn = new MockCreatureSpawnEvent(EntityType.BLAZE, "world", CreatureSpawnEvent.SpawnReason.SPAWNER).get();
+
+        //Zombie which died on dry land without a killer, goes through all the checks
+        MockWorld world = event.getWorld();
+        LivingEntity zombie = new MockLivingEntity(world.get(), EntityType.ZOMBIE).get();
+        when(zombie.getLocation()).thenReturn(location.get());
+        when(zombie.getMaxHealth()).thenReturn(20.0);
+        death = mock(EntityDeathEvent.class);
+        when(death.getEntity()).thenReturn(zombie);
+        when(death.getDrops()).thenReturn(new ArrayList<ItemStack>());
+    }
+
+
+    @Benchmark
+    public boolean spawnNatural()
+    {
+        return module.onEntitySpawn(naturalSpawn);
+    }
+
+
+    @Benchmark
+    public boolean spawnSpawner()
+    {
+        return module.onEntitySpawn(spawnerSpawn);
+    }
+
+
+    @Benchmark
+    public boolean death()
+    {
+        return module.onEntityDeath(death);
+    }
+}
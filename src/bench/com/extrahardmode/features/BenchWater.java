@@ -0,0 +1,150 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.features;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.RootNode;
+import com.extrahardmode.mocks.MockBlock;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockLocation;
+import com.extrahardmode.mocks.MockPlayer;
+import com.extrahardmode.mocks.MockPlayerInventory;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.EncumbranceTracker;
+import com.extrahardmode.module.MsgModule;
+import com.extrahardmode.module.PlayerModule;
+import org.bukkit.GameMode;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+import org.openjdk.jmh.annotations.*;
+import org.powermock.reflect.Whitebox;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Water.onPlayerMove is called for every movement of every player, most of the time the player just walks on land.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchWater
+{
+    private Water module;
+
+    /** Player walking on land */
+    private PlayerMoveEvent walk;
+
+    /** Player in full iron armor trying to swim up */
+    private PlayerMoveEvent swimUp;
+
+
+    @Setup
+    public void prepare()
+    {
+        ExtraHardMode plugin = new MockExtraHardMode().get();
+        when(plugin.getRandom()).thenReturn(new Random(42));
+
+        RootConfig CFG = new RootConfig(plugin);
+        CFG.set("world", RootNode.NO_SWIMMING_IN_ARMOR, true);
+        CFG.set("world", RootNode.NO_SWIMMING_IN_ARMOR_BLOCK_ELEVATORS, true);
+
+        PlayerModule playerModule = new PlayerModule(plugin);
+        Whitebox.setInternalState(playerModule, "CFG", CFG);
+
+        //The module gets its dependencies from the plugin when starting, but the mocked plugin has no modules
+        module = new Water(plugin);
+        Whitebox.setInternalState(module, "CFG", CFG);
+        Whitebox.setInternalState(module, "messenger", mock(MsgModule.class));
+        Whitebox.setInternalState(module, "playerModule", playerModule);
+        Whitebox.setInternalState(module, "encumbrance", new EncumbranceTracker(plugin));
+
+        MockWorld world = new MockWorld("world");
+        Player player = new MockPlayer("Diemex94").get();
+        when(player.getWorld()).thenReturn(world.get());
+        when(player.getGameMode()).thenReturn(GameMode.SURVIVAL);
+        when(player.getVelocity()).thenReturn(new Vector());
+        ItemStack[] armor = {new ItemStack(Material.IRON_BOOTS), new ItemStack(Material.IRON_LEGGINGS),
+                new ItemStack(Material.IRON_CHESTPLATE), new ItemStack(Material.IRON_HELMET)};
+        new MockPlayerInventory(player, armor, new ItemStack[4 * 9]);
+
+        MockBlock grass = new MockBlock().setWorld(world.get()).setMaterial(Material.GRASS);
+        MockBlock air = new MockBlock().setWorld(world.get()).setMaterial(Material.AIR);
+        air.setRelative(BlockFace.DOWN, grass.get());
+        walk = moveEvent(player, location(world, air, 64.0), location(world, air, 64.0));
+
+        MockBlock water = new MockBlock().setWorld(world.get()).setMaterial(Material.STATIONARY_WATER);
+        water.setRelative(BlockFace.DOWN, water.get());
+        Location inWater = location(world, water, 60.0);
+        when(player.getLocation()).thenReturn(inWater);
+        swimUp = moveEvent(player, inWater, location(world, water, 60.2));
+    }
+
+
+    private static Location location(MockWorld world, MockBlock block, double y)
+    {
+        MockLocation location = new MockLocation(world.get());
+        location.setBlock(block);
+        when(location.get().getY()).thenReturn(y);
+        return location.get();
+    }
+
+
+    private static PlayerMoveEvent moveEvent(Player player, Location from, Location to)
+    {
+        PlayerMoveEvent event = mock(PlayerMoveEvent.class);
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getFrom()).thenReturn(from);
+        when(event.getTo()).thenReturn(to);
+        return event;
+    }
+
+
+    @Benchmark
+    public void walk()
+    {
+        module.onPlayerMove(walk);
+    }
+
+
+    @Benchmark
+    public void swimUp()
+    {
+        module.onPlayerMove(swimUp);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockPlayer;
+import com.extrahardmode.mocks.MockPlayerInventory;
+import com.extrahardmode.module.EncumbranceTracker;
+import com.extrahardmode.module.PlayerModule;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Weight of a full inventory, once counted over the whole inventory and once looked up from the EncumbranceTracker.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchInventoryWeight
+{
+    private Player player;
+
+    private EncumbranceTracker tracker;
+
+
+    @Setup
+    public void prepare()
+    {
+        player = new MockPlayer("Diemex94").get();
+        ItemStack[] armor = {new ItemStack(Material.IRON_BOOTS), new ItemStack(Material.IRON_LEGGINGS),
+                new ItemStack(Material.IRON_CHESTPLATE), new ItemStack(Material.IRON_HELMET)};
+        //Mix of tools, full stacks, partial stacks and empty slots
+        ItemStack[] contents = new ItemStack[4 * 9];
+        for (int i = 0; i < contents.length; i++)
+        {
+            switch (i % 4)
+            {
+                case 0:
+                    contents[i] = new ItemStack(Material.IRON_PICKAXE);
+                    break;
+                case 1:
+                    contents[i] = new ItemStack(Material.COBBLESTONE, 64);
+                    break;
+                case 2:
+                    contents[i] = new ItemStack(Material.TORCH, 17);
+                    break;
+                default:
+                    break;
+            }
+        }
+        new MockPlayerInventory(player, armor, contents);
+
+        tracker = new EncumbranceTracker(new MockExtraHardMode().get());
+    }
+
+
+    @Benchmark
+    public float fullScan()
+    {
+        return PlayerModule.inventoryWeight(player, 2, 1, 0.5F);
+    }
+
+
+    @Benchmark
+    public float tracked()
+    {
+        return tracker.getWeight(player, 2, 1, 0.5F);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.messages.MessageConfig;
+import com.extrahardmode.config.messages.MessageNode;
+import com.extrahardmode.config.messages.MsgCategory;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.module.MsgPersistModule;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counting of shown messages. The counts are buffered and flushed to a temporary sqlite db in the background, like on a
+ * server, so the benchmark also includes the contention with the db thread.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchMsgPersist
+{
+    private final String[] players = new String[50];
+
+    private File dbFile;
+
+    private MsgPersistModule module;
+
+    private int next = 0;
+
+
+    @Setup
+    public void prepare() throws IOException
+    {
+        dbFile = File.createTempFile("ehm_messages", ".db");
+        dbFile.deleteOnExit();
+
+        ExtraHardMode plugin = new MockExtraHardMode().get();
+        Server server = mock(Server.class);
+        when(server.getPluginManager()).thenReturn(mock(PluginManager.class));
+        when(plugin.getServer()).thenReturn(server);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("ExtraHardMode"));
+        //Track every message which has a column in the db
+        MessageConfig messages = mock(MessageConfig.class);
+        when(messages.getCat(any(MessageNode.class))).thenReturn(MsgCategory.TUTORIAL);
+        when(plugin.getModuleForClass(MessageConfig.class)).thenReturn(messages);
+
+        module = new MsgPersistModule(plugin, dbFile.getPath());
+        module.starting();
+
+        for (int i = 0; i < players.length; i++)
+            players[i] = "Player" + i;
+    }
+
+
+    @TearDown
+    public void cleanup()
+    {
+        module.closing();
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+
+    @Benchmark
+    public void increment()
+    {
+        module.increment(MessageNode.NO_TORCHES_HERE, players[next++ % players.length]);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import com.extrahardmode.config.RootNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the block lists, runs on every config load and reload for every world.
+ *
+ * @author Diemex
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchSpecialParsers
+{
+    private List<String> defaults;
+
+    /** Hand written list with ids, whitespace and data values like users put in their configs */
+    private List<String> userInput;
+
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void prepare()
+    {
+        defaults = new ArrayList<String>((List<String>) RootNode.MORE_FALLING_BLOCKS.getDefaultValue());
+        userInput = Arrays.asList("DIRT", " GRASS", "4", "LOG:1,2,3", "STEP@3", "DOUBLE_STEP @ 3", "13:1@4%3",
+                "SAND", "GRAVEL", "35:0,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15", "not_a_block", "MYCEL");
+    }
+
+
+    @Benchmark
+    public Map<Integer, List<Byte>> parseDefaults()
+    {
+        return SpecialParsers.parseMaterials(defaults).getContent();
+    }
+
+
+    @Benchmark
+    public Map<Integer, List<Byte>> parseUserInput()
+    {
+        return SpecialParsers.parseMaterials(userInput).getContent();
+    }
+}
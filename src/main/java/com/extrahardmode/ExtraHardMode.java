@@ -32,6 +32,7 @@ import com.extrahardmode.features.monsters.*;
 import com.extrahardmode.module.*;
 import com.extrahardmode.service.IModule;
 import com.extrahardmode.service.OurRandom;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.MoreMonstersTask;
 
 import org.bukkit.plugin.java.JavaPlugin;
@@ -91,12 +92,21 @@ public class ExtraHardMode extends JavaPlugin
         rootFolder.mkdirs();
         registerModule(MsgPersistModule.class, new MsgPersistModule(this, rootFolder + File.separator + "messages_count.db"));
 
+        //MsgModule keeps its message timeouts in the PlayerData
+        registerModule(DataStoreModule.class, new DataStoreModule(this));
         registerModule(MsgModule.class, new MsgModule(this));
 
-        registerModule(DataStoreModule.class, new DataStoreModule(this));
+        registerModule(FallingBlockTracker.class, new FallingBlockTracker(this));
         registerModule(BlockModule.class, new BlockModule(this));
+        registerModule(ChunkScanService.class, new ChunkScanService(this));
+        registerModule(DelayedTaskService.class, new DelayedTaskService(this));
+        registerModule(EntityStateModule.class, new EntityStateModule(this));
+        registerModule(PlayerGridModule.class, new PlayerGridModule(this));
         registerModule(UtilityModule.class, new UtilityModule(this));
         registerModule(PlayerModule.class, new PlayerModule(this));
+        registerModule(EncumbranceTracker.class, new EncumbranceTracker(this));
+        registerModule(RainSweepModule.class, new RainSweepModule(this));
+        registerModule(FeatureDispatcher.class, new FeatureDispatcher(this));
 
         //Register command
         getCommand("ehm").setExecutor(new Commander(this));
@@ -133,6 +143,7 @@ public class ExtraHardMode extends JavaPlugin
         //Compatibility
         registerModule(CompatHandler.class, new CompatHandler(this));
         registerModule(ExplosionCompatStorage.class, new ExplosionCompatStorage(this));
+        registerModule(ExplosionBatcher.class, new ExplosionBatcher(this));
 
         //TODO make modules
         registerModule(Tutorial.class, new Tutorial(this));
@@ -141,7 +152,7 @@ public class ExtraHardMode extends JavaPlugin
 
         // FEATURE: monsters spawn in the light under a configurable Y level
         MoreMonstersTask task = new MoreMonstersTask(this);
-        this.getServer().getScheduler().scheduleSyncRepeatingTask(this, task, 600L, 600L);
+        this.getServer().getScheduler().scheduleSyncRepeatingTask(this, Timings.wrap("MoreMonstersTask", task), 1L, 1L);
 
 //        //Metrics Plotter, this gets included by maven
 //        new ConfigPlotter(this, getModuleForClass(RootConfig.class));
@@ -44,6 +44,7 @@ public class Commander extends CommandHandler
         registerCommand("enabled", new EnabledCommand());
         registerCommand("debugtoggle", new DebugToggleCommand());
         registerCommand("debug", new DebugCommand());
+        registerCommand("timings", new TimingsCommand());
     }
 
 
@@ -58,6 +59,7 @@ public class Commander extends CommandHandler
         {
             sender.sendMessage("    reload " + ChatColor.YELLOW + "- Reload the plugin");
             sender.sendMessage("    enabled [world]" + ChatColor.YELLOW + "- Is extrahardmode enabled");
+            sender.sendMessage("    timings [on|off|reset|dump]" + ChatColor.YELLOW + "- Measure event handlers and tasks");
         }
         return true;
     }
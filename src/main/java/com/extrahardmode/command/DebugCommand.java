@@ -4,7 +4,7 @@ package com.extrahardmode.command;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.service.ICommand;
 import com.extrahardmode.service.PermissionNode;
-import com.extrahardmode.task.RemoveExposedTorchesTask;
+import com.extrahardmode.module.RainSweepModule;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -27,7 +27,7 @@ public class DebugCommand implements ICommand
                 {
                     if (args[0].equals("RemoveTorches"))
                     {
-                        plugin.getServer().getScheduler().runTask(plugin, new RemoveExposedTorchesTask(plugin, player.getLocation().getChunk(), true));
+                        plugin.getModuleForClass(RainSweepModule.class).sweepChunk(player.getLocation().getChunk());
                         sender.sendMessage(ChatColor.GREEN + plugin.getTag() + "Removed Torches and Crops in the current chunk!");
                     }
                     else if (args[0].equals("logging"))
@@ -22,14 +22,15 @@ public class DebugToggleCommand implements ICommand
         {
             if (sender instanceof Player)
             {
+                Player player = (Player) sender;
                 DebugMode debug = plugin.getModuleForClass(DebugMode.class);
-                if (debug.isInDebugMode(sender.getName()))
+                if (debug.isInDebugMode(player))
                 {
-                    debug.disableDebugMode(sender.getName());
+                    debug.disableDebugMode(player);
                     sender.sendMessage(ChatColor.RED + plugin.getTag() + " Disabled DebugMode " + plugin.getName());
                 } else
                 {
-                    debug.enableDebugMode(sender.getName());
+                    debug.enableDebugMode(player);
                     sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Enabled DebugMode " + plugin.getName());
                 }
                 return true;
@@ -0,0 +1,104 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.command;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.module.DelayedTaskService;
+import com.extrahardmode.service.*;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Turn timings on and off, show, reset and dump them
+ * <p/>
+ * /ehm timings [on|off|reset|dump]
+ */
+public class TimingsCommand implements ICommand
+{
+    /**
+     * How many entries to show in chat
+     */
+    private final int shown = 10;
+
+
+    @Override
+    public boolean execute(ExtraHardMode plugin, CommandSender sender, Command command, String label, String[] args)
+    {
+        if (!sender.hasPermission(PermissionNode.ADMIN.getNode()))
+        {
+            sender.sendMessage(ChatColor.RED + plugin.getTag() + " Lack permission: " + PermissionNode.ADMIN.getNode());
+            return true;
+        }
+
+        String action = args.length > 0 ? args[0].toLowerCase() : "";
+        if (action.equals("on") || action.equals("off"))
+        {
+            Timings.setEnabled(action.equals("on"));
+            //Listeners only get wrapped when they get registered
+            for (IModule module : plugin.getModules().values())
+                if (module instanceof ListenerModule)
+                    ((ListenerModule) module).registerEvents();
+            sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Timings " + (Timings.isEnabled() ? "enabled" : "disabled"));
+        } else if (action.equals("reset"))
+        {
+            Timings.reset();
+            sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Timings reset");
+        } else if (action.equals("dump"))
+        {
+            try
+            {
+                File csv = Timings.dump(plugin.getDataFolder());
+                sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Timings written to " + csv.getName() + " and .json");
+            } catch (IOException e)
+            {
+                sender.sendMessage(ChatColor.RED + plugin.getTag() + " Couldn't write timings: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } else
+        {
+            sender.sendMessage(ChatColor.GRAY + "Timings are " + (Timings.isEnabled() ? ChatColor.GREEN + "enabled" : ChatColor.RED + "disabled")
+                    + ChatColor.GRAY + " - /ehm timings [on|off|reset|dump]");
+            DelayedTaskService delayedTasks = plugin.getModuleForClass(DelayedTaskService.class);
+            if (delayedTasks != null)
+                sender.sendMessage(String.format("%sDelayed tasks %s%d pending, %d due in the busiest tick",
+                        ChatColor.YELLOW, ChatColor.WHITE, delayedTasks.getPending(), delayedTasks.getMaxPendingPerTick()));
+            List<TimingStats> all = Timings.getAll();
+            for (int i = 0; i < all.size() && i < shown; i++)
+            {
+                TimingStats stats = all.get(i);
+                if (stats.getCount() == 0)
+                    break;
+                sender.sendMessage(String.format("%s%s %s%d calls, %.2fms total, %.3fms avg, %.3fms max, %dkB",
+                        ChatColor.YELLOW, stats.getName(), ChatColor.WHITE, stats.getCount(), stats.getTotalNanos() / 1000000.0,
+                        stats.getTotalNanos() / 1000000.0 / stats.getCount(), stats.getMaxNanos() / 1000000.0, stats.getAllocatedBytes() / 1024));
+            }
+        }
+        return true;
+    }
+}
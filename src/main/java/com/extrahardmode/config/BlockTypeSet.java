@@ -0,0 +1,155 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.config;
+
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of block types with optional data values, e.g. the "Block@data,data" lists in the config.
+ * <p/>
+ * Backed by bitmaps indexed by block id and by (id << 4 | data), so checking if a block is contained is a single array
+ * access without boxing.
+ *
+ * @author Diemex
+ */
+public final class BlockTypeSet
+{
+    /**
+     * Set which doesn't contain anything
+     */
+    public static final BlockTypeSet EMPTY = new BlockTypeSet(new long[0], new long[0], new long[0]);
+
+    /**
+     * Bit per id, set if the id has been added at all
+     */
+    private final long[] ids;
+
+    /**
+     * Bit per id, set if the id matches all data values
+     */
+    private final long[] anyData;
+
+    /**
+     * Bit per (id << 4 | data), set if the id matches this data value
+     */
+    private final long[] data;
+
+
+    private BlockTypeSet(long[] ids, long[] anyData, long[] data)
+    {
+        this.ids = ids;
+        this.anyData = anyData;
+        this.data = data;
+    }
+
+
+    /**
+     * Create a set from the parsed block lists of the config
+     *
+     * @param blocks block ids with their data values, an empty list of data values matches all data values
+     *
+     * @return new set
+     */
+    public static BlockTypeSet fromMap(Map<Integer, List<Byte>> blocks)
+    {
+        if (blocks == null || blocks.isEmpty())
+            return EMPTY;
+
+        int maxId = -1;
+        for (Integer id : blocks.keySet())
+            maxId = Math.max(maxId, id);
+        if (maxId < 0)
+            return EMPTY;
+
+        long[] ids = new long[(maxId >> 6) + 1];
+        long[] anyData = new long[(maxId >> 6) + 1];
+        long[] data = new long[(maxId >> 2) + 1];
+
+        for (Map.Entry<Integer, List<Byte>> entry : blocks.entrySet())
+        {
+            final int id = entry.getKey();
+            if (id < 0)
+                continue;
+            ids[id >> 6] |= 1L << id;
+
+            List<Byte> metas = entry.getValue();
+            if (metas == null || metas.isEmpty())
+            {
+                anyData[id >> 6] |= 1L << id;
+            } else
+            {
+                for (Byte meta : metas)
+                {
+                    //Blocks only have 4 bits of data, everything else can't ever match
+                    if (meta != null && meta >= 0 && meta < 16)
+                    {
+                        final int index = id << 4 | meta;
+                        data[index >> 6] |= 1L << index;
+                    }
+                }
+            }
+        }
+        return new BlockTypeSet(ids, anyData, data);
+    }
+
+
+    /**
+     * Has the given id been added, regardless of the data values
+     *
+     * @param id block id
+     */
+    public boolean contains(int id)
+    {
+        return id >= 0 && (id >> 6) < ids.length && (ids[id >> 6] & (1L << id)) != 0;
+    }
+
+
+    /**
+     * Does the given block id and data value match an entry in this set
+     *
+     * @param id       block id
+     * @param dataByte data value of the block
+     */
+    public boolean contains(int id, int dataByte)
+    {
+        if (id < 0 || (id >> 6) >= anyData.length)
+            return false;
+        if ((anyData[id >> 6] & (1L << id)) != 0)
+            return true;
+        if (dataByte < 0 || dataByte >= 16)
+            return false;
+        final int index = id << 4 | dataByte;
+        return (data[index >> 6] & (1L << index)) != 0;
+    }
+
+
+    /**
+     * Is this set empty
+     */
+    public boolean isEmpty()
+    {
+        return ids.length == 0;
+    }
+}
@@ -28,15 +28,14 @@ import com.extrahardmode.service.SpecialParsers;
 import com.extrahardmode.service.config.*;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
+import org.bukkit.World;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  *
@@ -48,6 +47,16 @@ public class RootConfig extends MultiWorldConfig
      */
     private final Table<ConfigNode, String/*world name*/, Map<Integer/*Block id*/, List<Byte>/*Block Id* (-1 for no id)*/>> extraSettings = HashBasedTable.create();
 
+    /**
+     * Compiled settings by world name, lazily filled and thrown away whenever a value changes
+     */
+    private final Map<String, WorldSettings> compiledByName = new HashMap<String, WorldSettings>();
+
+    /**
+     * Compiled settings by World, saves us from hashing the name on every event. Weak so unloaded worlds don't stick around
+     */
+    private final Map<World, WorldSettings> compiledByWorld = new WeakHashMap<World, WorldSettings>();
+
 
     /**
      * Constructor
@@ -69,6 +78,72 @@ public class RootConfig extends MultiWorldConfig
     public void closing()
     {
         extraSettings.clear();
+        invalidateSettings();
+    }
+
+
+    /**
+     * Get the compiled settings for the given world. Use this in event handlers instead of the getters taking a world
+     * name, the lookup is resolved once per World and all values are stored in primitive arrays.
+     *
+     * @param world world to get the settings for
+     *
+     * @return compiled settings, if EHM is not enabled in the world all values are set to the values which disable them
+     */
+    public WorldSettings getSettings(World world)
+    {
+        WorldSettings settings = compiledByWorld.get(world);
+        if (settings == null)
+        {
+            settings = getSettings(world.getName());
+            compiledByWorld.put(world, settings);
+        }
+        return settings;
+    }
+
+
+    /**
+     * Get the compiled settings for the world with the given name
+     *
+     * @param worldName name of the world
+     *
+     * @return compiled settings
+     */
+    public WorldSettings getSettings(String worldName)
+    {
+        WorldSettings settings = compiledByName.get(worldName);
+        if (settings == null)
+        {
+            settings = new WorldSettings(this, worldName);
+            compiledByName.put(worldName, settings);
+        }
+        return settings;
+    }
+
+
+    /**
+     * Throw away all compiled settings, they will be recompiled on the next access
+     */
+    private void invalidateSettings()
+    {
+        compiledByName.clear();
+        compiledByWorld.clear();
+    }
+
+
+    @Override
+    public void set(String world, ConfigNode node, Object value)
+    {
+        invalidateSettings();
+        super.set(world, node, value);
+    }
+
+
+    @Override
+    public void clearCache()
+    {
+        super.clearCache();
+        invalidateSettings();
     }
 
 
@@ -90,6 +165,7 @@ public class RootConfig extends MultiWorldConfig
     public void load()
     {
         init();
+        invalidateSettings();
         File[] configFiles = getConfigFiles(plugin.getDataFolder());
         List<Config> configs = loadFilesFromDisk(configFiles);
         load(configs);
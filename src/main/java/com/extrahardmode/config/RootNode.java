@@ -61,6 +61,17 @@ public enum RootNode implements ConfigNode
      */
     BYPASS_OPS("Bypassing.Operators Bypass", VarType.BOOLEAN, false),
 
+    /**
+     * ###################
+     * # MATERIAL TRAITS #
+     * ###################
+     */
+    /**
+     * Add or remove traits (tool, slab, natural spawn block...) of Materials. Traits are global, the entries of all
+     * worlds are combined
+     */
+    MATERIAL_TRAITS("Material Traits.Overrides (Trait@Material,Material or -Trait@Material)", VarType.LIST, new ArrayList<String>()),
+
     /**
      * ##################
      * # HARDENED STONE #
@@ -206,6 +217,14 @@ public enum RootNode implements ConfigNode
      * whether monster grinders (or "farms") should be inhibited
      */
     INHIBIT_MONSTER_GRINDERS("General Monster Rules.Inhibit Monster Grinders", VarType.BOOLEAN, true),
+    /**
+     * how many recent kills a chunk needs before the surroundings of dying monsters are checked, 0 = check every death
+     */
+    INHIBIT_MONSTER_GRINDERS_KILLS_PER_CHUNK("General Monster Rules.Grinder Detection.Recent Kills In Chunk Before Checking", VarType.INTEGER, SubType.NATURAL_NUMBER, 10),
+    /**
+     * for how many seconds a chunk is treated as a farm after several monsters in a row had no chance, 0 = check every death
+     */
+    INHIBIT_MONSTER_GRINDERS_REMEMBER_SECONDS("General Monster Rules.Grinder Detection.Remember Result Seconds", VarType.INTEGER, SubType.NATURAL_NUMBER, 60),
     /**
      * max y value for extra monster spawns
      */
@@ -218,6 +237,11 @@ public enum RootNode implements ConfigNode
      * max y value for monsters to spawn in the light
      */
     MONSTER_SPAWNS_IN_LIGHT_MAX_Y("General Monster Rules.Monsters Spawn In Light Max Y", VarType.INTEGER, SubType.Y_VALUE, Disable.ZERO, 50),
+    /**
+     * how many players are checked for a spawn in the light per tick, the rest gets checked in the following ticks. 0 = no
+     * limit
+     */
+    MONSTER_SPAWNS_IN_LIGHT_PER_TICK("General Monster Rules.Monsters Spawn In Light Max Players Checked Per Tick", VarType.INTEGER, SubType.NATURAL_NUMBER, 5),
 
     /**
      * ##########
@@ -583,6 +607,18 @@ public enum RootNode implements ConfigNode
      * which materials beyond sand and gravel should be subject to gravity
      */
     MORE_FALLING_BLOCKS("Additional Falling Blocks.Enabled Blocks", VarType.LIST, new DefaultFallingBlocks()),
+    /**
+     * How many blocks are checked for physics per tick, the rest gets checked in the following ticks. 0 = no limit
+     */
+    MORE_FALLING_BLOCKS_CHECKS_PER_TICK("Additional Falling Blocks.Max Blocks Checked Per Tick", VarType.INTEGER, SubType.NATURAL_NUMBER, 500),
+    /**
+     * How many of our FallingBlocks can be falling in one chunk, further blocks are moved directly. 0 = no limit
+     */
+    MORE_FALLING_BLOCKS_MAX_PER_CHUNK("Additional Falling Blocks.Max Falling Entities Per Chunk", VarType.INTEGER, SubType.NATURAL_NUMBER, 64),
+    /**
+     * How many of our FallingBlocks can be falling in one world, further blocks are moved directly. 0 = no limit
+     */
+    MORE_FALLING_BLOCKS_MAX_PER_WORLD("Additional Falling Blocks.Max Falling Entities Per World", VarType.INTEGER, SubType.NATURAL_NUMBER, 512),
 
     /**
      * ##############################
@@ -593,6 +629,10 @@ public enum RootNode implements ConfigNode
      * Should Stone be turned to cobblestone
      */
     EXPLOSIONS_TURN_STONE_TO_COBLE("Explosions.Turn Stone To Cobble", VarType.BOOLEAN, true),
+    /**
+     * Compute which blocks our custom explosions destroy on a worker thread, only the result is applied on the main thread
+     */
+    EXPLOSIONS_ASYNC("Explosions.Compute Destroyed Blocks Async", VarType.BOOLEAN, false),
     /**
      * #####################
      * # EXPLOSION PHYSICS #
@@ -0,0 +1,252 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.extrahardmode.config;
+
+
+import com.extrahardmode.service.config.ConfigNode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all RootNode values for one world.
+ * <p/>
+ * The values are resolved once from the RootConfig and stored in primitive arrays indexed by {@link RootNode#ordinal()}, so
+ * hot event handlers don't have to go through the string keyed option table on every call.
+ *
+ * @author Diemex
+ */
+public final class WorldSettings
+{
+    /**
+     * Name of the world these settings have been compiled for
+     */
+    private final String worldName;
+
+    /**
+     * If EHM is enabled in this world at all
+     */
+    private final boolean enabled;
+
+    private final boolean[] booleans;
+
+    private final int[] ints;
+
+    private final double[] doubles;
+
+    /**
+     * Strings and Lists, these are rarely used on hot paths
+     */
+    private final Object[] objects;
+
+    /**
+     * Parsed block lists by RootNode ordinal, null for nodes which aren't block lists
+     */
+    private final BlockTypeSet[] blockTypes;
+
+    /**
+     * How many blocks of stone a tool can mine by tool id, -1 if the tool can't mine stone
+     */
+    private final int[] stoneBlocksPerTool;
+
+
+    /**
+     * Compile the settings for the given world
+     *
+     * @param cfg       config to read the values from
+     * @param worldName name of the world
+     */
+    WorldSettings(RootConfig cfg, String worldName)
+    {
+        this.worldName = worldName;
+        this.enabled = cfg.isEnabledIn(worldName) || cfg.isEnabledForAll();
+
+        RootNode[] nodes = RootNode.values();
+        booleans = new boolean[nodes.length];
+        ints = new int[nodes.length];
+        doubles = new double[nodes.length];
+        objects = new Object[nodes.length];
+
+        for (RootNode node : nodes)
+        {
+            final int i = node.ordinal();
+            switch (node.getVarType())
+            {
+                case BOOLEAN:
+                    booleans[i] = cfg.getBoolean(node, worldName);
+                    break;
+                case INTEGER:
+                    ints[i] = cfg.getInt(node, worldName);
+                    break;
+                case DOUBLE:
+                    doubles[i] = cfg.getDouble(node, worldName);
+                    break;
+                case STRING:
+                    objects[i] = cfg.getString(node, worldName);
+                    break;
+                case LIST:
+                    objects[i] = cfg.getStringList(node, worldName);
+                    break;
+            }
+        }
+
+        blockTypes = new BlockTypeSet[nodes.length];
+        blockTypes[RootNode.MORE_FALLING_BLOCKS.ordinal()] = BlockTypeSet.fromMap(cfg.getMappedNode(RootNode.MORE_FALLING_BLOCKS, worldName));
+        blockTypes[RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS.ordinal()] = BlockTypeSet.fromMap(cfg.getMappedNode(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS, worldName));
+
+        Map<Integer, List<Byte>> tools = cfg.getMappedNode(RootNode.SUPER_HARD_STONE_TOOLS, worldName);
+        int maxToolId = -1;
+        for (Integer id : tools.keySet())
+            maxToolId = Math.max(maxToolId, id);
+        stoneBlocksPerTool = new int[maxToolId + 1];
+        Arrays.fill(stoneBlocksPerTool, -1);
+        for (Map.Entry<Integer, List<Byte>> tool : tools.entrySet())
+            if (tool.getKey() >= 0 && !tool.getValue().isEmpty())
+                stoneBlocksPerTool[tool.getKey()] = tool.getValue().get(0);
+    }
+
+
+    /**
+     * Get the name of the world these settings belong to
+     */
+    public String getWorldName()
+    {
+        return worldName;
+    }
+
+
+    /**
+     * Is EHM enabled in this world
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Get the boolean value of the node.
+     *
+     * @param node - Node to use.
+     *
+     * @return Value of the node.
+     */
+    public boolean getBoolean(RootNode node)
+    {
+        checkType(node, ConfigNode.VarType.BOOLEAN);
+        return booleans[node.ordinal()];
+    }
+
+
+    /**
+     * Get the integer value of the node.
+     *
+     * @param node - Node to use.
+     *
+     * @return Value of the node.
+     */
+    public int getInt(RootNode node)
+    {
+        checkType(node, ConfigNode.VarType.INTEGER);
+        return ints[node.ordinal()];
+    }
+
+
+    /**
+     * Get the double value of the node.
+     *
+     * @param node - Node to use.
+     *
+     * @return Value of the node.
+     */
+    public double getDouble(RootNode node)
+    {
+        checkType(node, ConfigNode.VarType.DOUBLE);
+        return doubles[node.ordinal()];
+    }
+
+
+    /**
+     * Get the string value of the node.
+     *
+     * @param node - Node to use.
+     *
+     * @return Value of the node.
+     */
+    public String getString(RootNode node)
+    {
+        checkType(node, ConfigNode.VarType.STRING);
+        return (String) objects[node.ordinal()];
+    }
+
+
+    /**
+     * Get the list value of the node.
+     *
+     * @param node - Node to use.
+     *
+     * @return Value of the node.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getStringList(RootNode node)
+    {
+        checkType(node, ConfigNode.VarType.LIST);
+        return (List<String>) objects[node.ordinal()];
+    }
+
+
+    /**
+     * Get the parsed blocks of a node which holds a list of blocks and their data values
+     *
+     * @param node - Node to use, either MORE_FALLING_BLOCKS or SUPER_HARD_STONE_PHYSICS_BLOCKS.
+     *
+     * @return Set of the blocks.
+     */
+    public BlockTypeSet getBlockTypes(RootNode node)
+    {
+        BlockTypeSet set = blockTypes[node.ordinal()];
+        if (set == null)
+            throw new IllegalArgumentException(node.toString() + " isn't a list of blocks");
+        return set;
+    }
+
+
+    /**
+     * How many blocks of stone can the tool mine before breaking
+     *
+     * @param toolId - Material id of the tool.
+     *
+     * @return amount of blocks, -1 if the tool can't mine stone
+     */
+    public int getStoneBlocksPerTool(int toolId)
+    {
+        return toolId >= 0 && toolId < stoneBlocksPerTool.length ? stoneBlocksPerTool[toolId] : -1;
+    }
+
+
+    private static void checkType(RootNode node, ConfigNode.VarType expected)
+    {
+        if (node.getVarType() != expected)
+            throw new IllegalArgumentException("Attempted to get " + node.toString() + " of type " + node.getVarType() + " as " + expected);
+    }
+}
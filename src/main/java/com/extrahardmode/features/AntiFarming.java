@@ -27,12 +27,16 @@ import java.util.logging.Logger;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.config.messages.MessageNode;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.DelayedTaskService;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.module.MsgModule;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.EvaporateWaterTask;
 
 import org.bukkit.DyeColor;
@@ -89,6 +93,61 @@ public class AntiFarming extends ListenerModule
         CFG = plugin.getModuleForClass(RootConfig.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
         blockModule = plugin.getModuleForClass(BlockModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL);
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.ANIMAL_EXP_NERF);
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.IRON_GOLEM_NERF);
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onGolemDeath(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -106,7 +165,8 @@ public class AntiFarming extends ListenerModule
         World world = event.getPlayer().getWorld();
         Action action = event.getAction();
 
-        final boolean noBonemealOnMushrooms = CFG.getBoolean(RootNode.NO_BONEMEAL_ON_MUSHROOMS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean noBonemealOnMushrooms = settings.getBoolean(RootNode.NO_BONEMEAL_ON_MUSHROOMS);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.ANTIFARMING);
 
         // FEATURE: bonemeal doesn't work on mushrooms
@@ -140,7 +200,8 @@ public class AntiFarming extends ListenerModule
         Block block = breakEvent.getBlock();
         World world = block.getWorld();
 
-        final boolean noFarmingNetherWart = CFG.getBoolean(RootNode.NO_FARMING_NETHER_WART, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean noFarmingNetherWart = settings.getBoolean(RootNode.NO_FARMING_NETHER_WART);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.ANTIFARMING);
 
         // FEATURE: no nether wart farming (always drops exactly 1 nether wart when broken)
@@ -167,7 +228,8 @@ public class AntiFarming extends ListenerModule
         Block block = placeEvent.getBlock();
         World world = block.getWorld();
 
-        final boolean noFarmingNetherWart = CFG.getBoolean(RootNode.NO_FARMING_NETHER_WART, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean noFarmingNetherWart = settings.getBoolean(RootNode.NO_FARMING_NETHER_WART);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.ANTIFARMING);
 
         // FEATURE: no farming/placing nether wart
@@ -189,7 +251,8 @@ public class AntiFarming extends ListenerModule
     {
         World world = event.getBlock().getWorld();
 
-        final boolean weakCropsEnabled = CFG.getBoolean(RootNode.WEAK_FOOD_CROPS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean weakCropsEnabled = settings.getBoolean(RootNode.WEAK_FOOD_CROPS);
 
         // FEATURE:
         if (weakCropsEnabled && plugin.getModuleForClass(BlockModule.class).plantDies(event.getBlock(), event.getNewState().getData()))
@@ -213,7 +276,8 @@ public class AntiFarming extends ListenerModule
         World world = event.getWorld();
         Block block = event.getLocation().getBlock();
 
-        boolean aridDesertsEnabled = CFG.getBoolean(RootNode.ARID_DESSERTS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        boolean aridDesertsEnabled = settings.getBoolean(RootNode.ARID_DESSERTS);
 
 
         if (aridDesertsEnabled)
@@ -237,7 +301,8 @@ public class AntiFarming extends ListenerModule
     {
         World world = event.getBlock().getWorld();
 
-        final boolean dontMoveWaterEnabled = CFG.getBoolean(RootNode.DONT_MOVE_WATER_SOURCE_BLOCKS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean dontMoveWaterEnabled = settings.getBoolean(RootNode.DONT_MOVE_WATER_SOURCE_BLOCKS);
 
         // FEATURE: can't move water source blocks
         if (dontMoveWaterEnabled)
@@ -272,7 +337,7 @@ public class AntiFarming extends ListenerModule
 
             	//info("Block to Evaporate: "+block);
                 EvaporateWaterTask task = new EvaporateWaterTask(block, plugin);
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 10L);
+                plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 10L, block);
             }
         }
     }
@@ -288,7 +353,8 @@ public class AntiFarming extends ListenerModule
     {
         World world = event.getEntity().getWorld();
 
-        boolean sheepRegrowWhiteEnabled = CFG.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        boolean sheepRegrowWhiteEnabled = settings.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL);
 
         // FEATURE: sheep are all white, and may be dyed only temporarily
         if (sheepRegrowWhiteEnabled)
@@ -300,14 +366,14 @@ public class AntiFarming extends ListenerModule
     }
 
 
-    @EventHandler(priority = EventPriority.LOW)
     public void onEntitySpawn(CreatureSpawnEvent event)
     {
         LivingEntity entity = event.getEntity();
         CreatureSpawnEvent.SpawnReason reason = event.getSpawnReason();
         World world = event.getLocation().getWorld();
 
-        final boolean sheepRegrowWhiteEnabled = CFG.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean sheepRegrowWhiteEnabled = settings.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL);
 
         //Breed Sheep spawn white
         if (sheepRegrowWhiteEnabled && entity instanceof Sheep)
@@ -322,13 +388,13 @@ public class AntiFarming extends ListenerModule
     }
 
 
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
         World world = entity.getWorld();
 
-        final boolean animalExpNerfEnabled = CFG.getBoolean(RootNode.ANIMAL_EXP_NERF, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean animalExpNerfEnabled = settings.getBoolean(RootNode.ANIMAL_EXP_NERF);
 
         // FEATURE: animals don't drop experience (because they're easy to "farm")
         if (animalExpNerfEnabled && entity instanceof Animals)
@@ -341,7 +407,6 @@ public class AntiFarming extends ListenerModule
     /**
      * When an Iron Golem dies
      */
-    @EventHandler
     public void onGolemDeath(EntityDeathEvent event)
     {
         Entity entity = event.getEntity();
@@ -373,7 +438,7 @@ public class AntiFarming extends ListenerModule
             world = player.getWorld();
         }
 
-        final boolean cantCraftMelons = world != null && CFG.getBoolean(RootNode.CANT_CRAFT_MELONSEEDS, world.getName());
+        final boolean cantCraftMelons = world != null && CFG.getSettings(world).getBoolean(RootNode.CANT_CRAFT_MELONSEEDS);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.ANTIFARMING);
 
 
@@ -401,7 +466,8 @@ public class AntiFarming extends ListenerModule
         Player player = event.getPlayer();
         World world = player.getWorld();
 
-        final boolean dontMoveWaterEnabled = CFG.getBoolean(RootNode.DONT_MOVE_WATER_SOURCE_BLOCKS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean dontMoveWaterEnabled = settings.getBoolean(RootNode.DONT_MOVE_WATER_SOURCE_BLOCKS);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.ANTIFARMING);
 
         // FEATURE: can't move water source blocks
@@ -421,7 +487,7 @@ public class AntiFarming extends ListenerModule
             long delay = 10L;
             if(isLavaBucket)
             	delay = 100L;
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, delay);
+            plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), delay, block);
         }
     }
 
@@ -25,8 +25,12 @@ package com.extrahardmode.features;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.CoordHelper;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.FeatureDispatcher;
+import com.extrahardmode.module.GrinderHeatmap;
 import com.extrahardmode.service.ListenerModule;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -34,13 +38,14 @@ import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.*;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /** A MonsterGrinder Inhibitor which disables drops for Monsters which appear to be farmed or which have been killed in conditions where the Player had a clear advantage */
 public class AntiGrinder extends ListenerModule
 {
@@ -48,6 +53,9 @@ public class AntiGrinder extends ListenerModule
 
     private BlockModule blockModule;
 
+    /** Recent kills per chunk by world name */
+    private final Map<String, GrinderHeatmap> heatmaps = new HashMap<String, GrinderHeatmap>();
+
 
     /**
      * For Testing Purposes
@@ -79,6 +87,62 @@ public class AntiGrinder extends ListenerModule
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
         blockModule = plugin.getModuleForClass(BlockModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
+        heatmaps.clear();
     }
 
 
@@ -87,7 +151,6 @@ public class AntiGrinder extends ListenerModule
      *
      * @return true succeeded and false if cancelled or marked lootless
      */
-    @EventHandler(priority = EventPriority.LOW)
     public boolean onEntitySpawn(CreatureSpawnEvent event)
     {
         Location location = event.getLocation();
@@ -95,7 +158,7 @@ public class AntiGrinder extends ListenerModule
         LivingEntity entity = event.getEntity();
         CreatureSpawnEvent.SpawnReason reason = event.getSpawnReason();
 
-        final boolean inhibitMonsterGrindersEnabled = CFG.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS, world.getName());
+        final boolean inhibitMonsterGrindersEnabled = CFG.getSettings(world).getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
 
         // FEATURE: inhibited monster grinders/farms
         if (inhibitMonsterGrindersEnabled && entity instanceof Monster)
@@ -150,105 +213,153 @@ public class AntiGrinder extends ListenerModule
 
     /**
      * When an entity dies check if loot should be blocked due to AntiGrinder
+     * <p/>
+     * The surroundings of the monster are only checked in chunks with a lot of recent kills. After a few easy kills in a
+     * row the chunk is remembered as a farm for a while, fair kills are always checked on their own.
      *
      * @return true if drops loot, false if loot was blocked
      */
-    @EventHandler
     public boolean onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
         World world = entity.getWorld();
 
-        final boolean inhibitMonsterGrindersEnabled = CFG.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean inhibitMonsterGrindersEnabled = settings.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
+        final int killsPerChunk = settings.getInt(RootNode.INHIBIT_MONSTER_GRINDERS_KILLS_PER_CHUNK);
+        final int rememberSeconds = settings.getInt(RootNode.INHIBIT_MONSTER_GRINDERS_REMEMBER_SECONDS);
 
         // FEATURE: monsters which take environmental damage or spawn from spawners don't drop loot and exp (monster grinder inhibitor)
         if (inhibitMonsterGrindersEnabled && entity instanceof Monster && entity.getType() != EntityType.SQUID)
         {
+            final Location location = entity.getLocation();
+            final long chunk = CoordHelper.packChunk(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+            final long now = System.currentTimeMillis();
+            final GrinderHeatmap heatmap = getHeatmap(world);
+            final float heat = heatmap.recordKill(chunk, now);
+
             if (EntityHelper.isLootLess(entity))
             {
                 clearDrops(event);
                 return false;
-            } else
-            {   //Evaluate if this kill was a too easy kill
-                switch (entity.getType())
-                {
-                    case SKELETON:
-                    case ENDERMAN:
-                    {
-                        // tall monsters can get stuck when they spawn like WitherSkeletons
-                        if (entity.getEyeLocation().getBlock().getType() != Material.AIR)
-                            return clearDrops(event);
-                        break;
-                    }
-                    default:
-                    {
-                        // no loot for monsters which die standing in water, to make building grinders even more difficult
-                        Block block = entity.getLocation().getBlock();
-                        Block underBlock = block.getRelative(BlockFace.DOWN);
+            }
+            // normal deaths out in the wild
+            if (heat < killsPerChunk)
+                return true;
+
+            if (heatmap.getVerdict(chunk, now) == GrinderHeatmap.FARM)
+                return clearDrops(event);
+
+            final boolean easyKill = isEasyKill(entity, location);
+            if (rememberSeconds > 0)
+                heatmap.recordCheck(chunk, easyKill, now, rememberSeconds * 1000L);
+            if (easyKill)
+                return clearDrops(event);
+        }
+        return true;
+    }
 
-                        BlockFace[] adjacentFaces = blockModule.getHorizontalAdjacentFaces();
-                        Block[] adjacentBlocks = new Block[adjacentFaces.length * 2 + 1];
 
-                        //All Blocks directly surrounding the Monster
-                        adjacentBlocks[0] = block;
-                        for (int i = 0; i < adjacentFaces.length; i++)
-                        {
-                            adjacentBlocks[i + 1] = block.getRelative(adjacentFaces[i]);
-                        }
-                        for (int i = 0; i < adjacentFaces.length; i++)
-                        {
-                            adjacentBlocks[i + adjacentFaces.length] = underBlock.getRelative(adjacentFaces[i]);
-                        }
+    /**
+     * Evaluate if this kill was a too easy kill, e.g. the monster was standing in water or couldn't reach the player
+     *
+     * @param entity   monster which died
+     * @param location location of the monster
+     *
+     * @return true if the monster had no chance
+     */
+    private boolean isEasyKill(LivingEntity entity, Location location)
+    {
+        switch (entity.getType())
+        {
+            case SKELETON:
+            case ENDERMAN:
+            {
+                // tall monsters can get stuck when they spawn like WitherSkeletons
+                if (entity.getEyeLocation().getBlock().getType() != Material.AIR)
+                    return true;
+                break;
+            }
+            default:
+            {
+                // no loot for monsters which die standing in water, to make building grinders even more difficult
+                Block block = location.getBlock();
+                Block underBlock = block.getRelative(BlockFace.DOWN);
 
-                        for (Block adjacentBlock : adjacentBlocks)
-                        {
-                            if (adjacentBlock != null && (adjacentBlock.getType() == Material.WATER || adjacentBlock.getType() == Material.STATIONARY_WATER))
-                                return clearDrops(event);
-                        }
+                BlockFace[] adjacentFaces = blockModule.getHorizontalAdjacentFaces();
+                Block[] adjacentBlocks = new Block[adjacentFaces.length * 2 + 1];
 
-                        // also no loot for monsters who can't reach their (melee) killers
-                        Player killer = entity.getKiller();
-                        if (killer != null)
+                //All Blocks directly surrounding the Monster
+                adjacentBlocks[0] = block;
+                for (int i = 0; i < adjacentFaces.length; i++)
+                {
+                    adjacentBlocks[i + 1] = block.getRelative(adjacentFaces[i]);
+                }
+                for (int i = 0; i < adjacentFaces.length; i++)
+                {
+                    adjacentBlocks[i + adjacentFaces.length] = underBlock.getRelative(adjacentFaces[i]);
+                }
+
+                for (Block adjacentBlock : adjacentBlocks)
+                {
+                    if (adjacentBlock != null && (adjacentBlock.getType() == Material.WATER || adjacentBlock.getType() == Material.STATIONARY_WATER))
+                        return true;
+                }
+
+                // also no loot for monsters who can't reach their (melee) killers
+                Player killer = entity.getKiller();
+                if (killer != null)
+                {
+                    Location monsterEyeLocation = entity.getEyeLocation();
+                    Location playerEyeLocation = killer.getEyeLocation();
+
+                    // interpolate locations
+                    Location[] locations = new Location[]{
+                            new Location(monsterEyeLocation.getWorld(), 0.2 * monsterEyeLocation.getX() + 0.8 * playerEyeLocation.getX(),
+                                    monsterEyeLocation.getY(), 0.2 * monsterEyeLocation.getZ() + 0.8 * playerEyeLocation.getZ()),
+                            new Location(monsterEyeLocation.getWorld(), 0.5 * monsterEyeLocation.getX() + 0.5 * playerEyeLocation.getX(),
+                                    monsterEyeLocation.getY(), 0.5 * monsterEyeLocation.getZ() + 0.5 * playerEyeLocation.getZ()),
+                            new Location(monsterEyeLocation.getWorld(), 0.8 * monsterEyeLocation.getX() + 0.2 * playerEyeLocation.getX(),
+                                    monsterEyeLocation.getY(), 0.8 * monsterEyeLocation.getZ() + 0.2 * playerEyeLocation.getZ()),};
+
+                    for (Location middleLocation : locations)
+                    {
+                        // monster is blocked at eye level, unable to advance toward killer
+                        if (middleLocation.getBlock().getType() != Material.AIR)
+                            return true;
+                            // monster doesn't have room above to hurdle a foot level block, unable to advance toward killer
+                        else
                         {
-                            Location monsterEyeLocation = entity.getEyeLocation();
-                            Location playerEyeLocation = killer.getEyeLocation();
-
-                            // interpolate locations
-                            Location[] locations = new Location[]{
-                                    new Location(monsterEyeLocation.getWorld(), 0.2 * monsterEyeLocation.getX() + 0.8 * playerEyeLocation.getX(),
-                                            monsterEyeLocation.getY(), 0.2 * monsterEyeLocation.getZ() + 0.8 * playerEyeLocation.getZ()),
-                                    new Location(monsterEyeLocation.getWorld(), 0.5 * monsterEyeLocation.getX() + 0.5 * playerEyeLocation.getX(),
-                                            monsterEyeLocation.getY(), 0.5 * monsterEyeLocation.getZ() + 0.5 * playerEyeLocation.getZ()),
-                                    new Location(monsterEyeLocation.getWorld(), 0.8 * monsterEyeLocation.getX() + 0.2 * playerEyeLocation.getX(),
-                                            monsterEyeLocation.getY(), 0.8 * monsterEyeLocation.getZ() + 0.2 * playerEyeLocation.getZ()),};
-
-                            for (Location middleLocation : locations)
+                            Block bottom = middleLocation.getBlock().getRelative(BlockFace.DOWN);
+                            Block top = middleLocation.getBlock().getRelative(BlockFace.UP);
+                            if (top.getType() != Material.AIR &&
+                                    bottom.getType() != Material.AIR
+                                    || bottom.getType() == Material.FENCE
+                                    || bottom.getType() == Material.FENCE_GATE
+                                    || bottom.getType() == Material.COBBLE_WALL
+                                    || bottom.getType() == Material.NETHER_FENCE)
                             {
-                                // monster is blocked at eye level, unable to advance toward killer
-                                if (middleLocation.getBlock().getType() != Material.AIR)
-                                    return clearDrops(event);
-                                    // monster doesn't have room above to hurdle a foot level block, unable to advance toward killer
-                                else
-                                {
-                                    Block bottom = middleLocation.getBlock().getRelative(BlockFace.DOWN);
-                                    Block top = middleLocation.getBlock().getRelative(BlockFace.UP);
-                                    if (top.getType() != Material.AIR &&
-                                            bottom.getType() != Material.AIR
-                                            || bottom.getType() == Material.FENCE
-                                            || bottom.getType() == Material.FENCE_GATE
-                                            || bottom.getType() == Material.COBBLE_WALL
-                                            || bottom.getType() == Material.NETHER_FENCE)
-                                    {
-                                        return clearDrops(event);
-                                    }
-                                }
+                                return true;
                             }
                         }
                     }
                 }
             }
         }
-        return true;
+        return false;
+    }
+
+
+    /** Get the heatmap of the world, creates one if there is none yet */
+    private GrinderHeatmap getHeatmap(World world)
+    {
+        GrinderHeatmap heatmap = heatmaps.get(world.getName());
+        if (heatmap == null)
+        {
+            heatmap = new GrinderHeatmap();
+            heatmaps.put(world.getName(), heatmap);
+        }
+        return heatmap;
     }
 
 
@@ -270,13 +381,12 @@ public class AntiGrinder extends ListenerModule
      * <p/>
      * check if the damage is environmental or from a player
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
         World world = entity.getWorld();
 
-        final boolean inhibitMonsterGrindersEnabled = CFG.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS, world.getName());
+        final boolean inhibitMonsterGrindersEnabled = CFG.getSettings(world).getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
 
         // FEATURE: monsters which take environmental damage don't drop loot or experience (monster grinder inhibitor)
         if (inhibitMonsterGrindersEnabled && entity instanceof LivingEntity)
@@ -285,6 +395,12 @@ public class AntiGrinder extends ListenerModule
             if (damageCause != EntityDamageEvent.DamageCause.ENTITY_ATTACK && damageCause != EntityDamageEvent.DamageCause.PROJECTILE && damageCause != EntityDamageEvent.DamageCause.BLOCK_EXPLOSION)
             {
                 EntityHelper.addEnvironmentalDamage(plugin, (LivingEntity) entity, event.getDamage());
+                // monsters falling or drowning in a farm heat up the chunk before they die
+                if (entity instanceof Monster)
+                {
+                    Location location = entity.getLocation();
+                    getHeatmap(world).recordDamage(CoordHelper.packChunk(location.getBlockX() >> 4, location.getBlockZ() >> 4), event.getDamage(), System.currentTimeMillis());
+                }
             }
             //Prevent people from using dogs to grind monsters
             else if (event instanceof EntityDamageByEntityEvent)
@@ -28,9 +28,12 @@ import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
 import com.extrahardmode.events.fakeevents.FakeEntityExplodeEvent;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.CoordHelper;
 import com.extrahardmode.module.ExplosionCompatStorage;
+import com.extrahardmode.module.FallingBlockTracker;
 import com.extrahardmode.module.UtilityModule;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.CreateExplosionTask;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Location;
@@ -44,10 +47,7 @@ import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.metadata.FixedMetadataValue;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 
 /** Various changes to Explosions including: */
 public class Explosions extends ListenerModule
@@ -56,8 +56,13 @@ public class Explosions extends ListenerModule
 
     private BlockModule blockModule;
 
+    private FallingBlockTracker fallingBlockTracker;
+
     private final String tag = "extrahardmode.explosion.fallingblock";
 
+    /** FallingBlock which flies for a whole cluster only for the looks, it doesn't place a block */
+    private final String clusterTag = "extrahardmode.explosion.fallingblock.cluster";
+
 
     //     ___ ___  _  _ ___ _____ ___ _   _  ___ _____ ___  ___
     //    / __/ _ \| \| / __|_   _| _ \ | | |/ __|_   _/ _ \| _ \
@@ -81,6 +86,7 @@ public class Explosions extends ListenerModule
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
         blockModule = plugin.getModuleForClass(BlockModule.class);
+        fallingBlockTracker = plugin.getModuleForClass(FallingBlockTracker.class);
     }
 
 
@@ -119,7 +125,7 @@ public class Explosions extends ListenerModule
                 if (!multipleExplosions)
                 {
                     CreateExplosionTask explosionTask = new CreateExplosionTask(plugin, location, ExplosionType.TNT, sourceEntity);
-                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, explosionTask, 1L);
+                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, Timings.wrap(explosionTask), 1L);
                 } else //multiple explosions will also handle the custom size
                 {
                     multipleExplosions(location, sourceEntity, ExplosionType.TNT);
@@ -164,23 +170,46 @@ public class Explosions extends ListenerModule
         final Location location = event.getLocation();
         final Collection<Block> blocks = event.blockList();
 
-        final boolean flyingBlocks = CFG.getBoolean(RootNode.EXPLOSIONS_FYLING_BLOCKS_ENABLE, world.getName());
-
-        final boolean flyOtherPlugins = CFG.getBoolean(RootNode.EXPLOSIONS_FYLING_BLOCKS_ENABLE_OTHER, worldName);
         final int flyPercentage = CFG.getInt(RootNode.EXPLOSIONS_FLYING_BLOCKS_PERCENTAGE, worldName);
         final double upVel = CFG.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_UP_VEL, worldName);
         final double spreadVel = CFG.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_SPREAD_VEL, worldName);
 
         // PHYSICS
-        if (flyingBlocks && (flyOtherPlugins || sourceEntity != null))
+        if (hasExplosionPhysics(worldName, sourceEntity == null))
         {
             applyExplosionPhysics(blocks, location, flyPercentage, upVel, spreadVel);
+            loosenAround(location);
+        }
+    }
 
-            if (CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE, worldName))
-            {
-                blockModule.physicsCheck(location.add(0, 5, 0).getBlock(), 5, true, 3); //loosen ceiling
-                blockModule.physicsCheck(location.add(0, -3, 0).getBlock(), 5, true, 6); //ground loosen
-            }
+
+    /**
+     * Do blocks fly and get loosened by explosions in this world. Custom explosions of ExtraHardMode count as created
+     * by a plugin, no matter if they are created by vanilla or by the {@link com.extrahardmode.module.ExplosionBatcher}.
+     *
+     * @param worldName     world of the explosion
+     * @param pluginCreated if the explosion has been created by a plugin and has no entity
+     *
+     * @return if {@link #applyExplosionPhysics} and {@link #loosenAround} should be applied
+     */
+    public boolean hasExplosionPhysics(String worldName, boolean pluginCreated)
+    {
+        return CFG.getBoolean(RootNode.EXPLOSIONS_FYLING_BLOCKS_ENABLE, worldName)
+                && (!pluginCreated || CFG.getBoolean(RootNode.EXPLOSIONS_FYLING_BLOCKS_ENABLE_OTHER, worldName));
+    }
+
+
+    /**
+     * Loosen the ceiling and the ground around an explosion so they may fall down
+     *
+     * @param center center of the explosion
+     */
+    public void loosenAround(Location center)
+    {
+        if (CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE, center.getWorld().getName()))
+        {
+            blockModule.physicsCheck(center.clone().add(0, 5, 0).getBlock(), 5, true, 3); //loosen ceiling
+            blockModule.physicsCheck(center.clone().add(0, -3, 0).getBlock(), 5, true, 6); //ground loosen
         }
     }
 
@@ -213,47 +242,59 @@ public class Explosions extends ListenerModule
         if (event.getEntity() == null)
         {
             ExplosionCompatStorage explosionStorage = plugin.getModuleForClass(ExplosionCompatStorage.class);
-            if (!explosionStorage.queueEmpty())
+            //Just make sure that this explosion is in fact from us
+            ExplosionCompatStorage.QueuedExplosion queued = explosionStorage.takeExplosion(event.getLocation());
+            if (queued != null)
             {
-                //Just make sure that this explosion is in fact from us
-                Location savedLoc = explosionStorage.getCenterLocation();
-                Location eventLoc = event.getLocation();
-                if (savedLoc.getBlockX() == eventLoc.getBlockX() && savedLoc.getBlockY() == eventLoc.getBlockY() && savedLoc.getBlockZ() == eventLoc.getBlockZ())
-                {
-                    // There is no way for us to pass the actual cause (the entity) of an explosion to bukkit other than this additional event
-                    FakeEntityExplodeEvent compatEvent = new FakeEntityExplodeEvent(explosionStorage.getExplosionCause(), explosionStorage.getCenterLocation(), event.blockList(), event.getYield());
-                    plugin.getServer().getPluginManager().callEvent(compatEvent);
+                // There is no way for us to pass the actual cause (the entity) of an explosion to bukkit other than this additional event
+                FakeEntityExplodeEvent compatEvent = new FakeEntityExplodeEvent(queued.getExplosionCause(), queued.getCenterLocation(), event.blockList(), event.getYield());
+                plugin.getServer().getPluginManager().callEvent(compatEvent);
 
-                    if (compatEvent.isCancelled())
-                        //We cancel the event because we only want the event with the correct Entity to be logged
-                        event.setCancelled(true);
-                    else //do our additional processing
-                        explosionLogic(compatEvent);
-
-                    //Some plugins might decide to clear the blocklist instead of cancelling the event, in that case the modified blocklist is the same
-                    //Handle blockbreaking and setting fire ourselves
-                    for (Block block : event.blockList())
-                        switch (block.getType())
-                        {
-                            case FIRE:
-                                //block.setType(Material.FIRE); do nuthing
-                                break;
-                            case AIR:
-                                break; //dunno why some plugins log breaking of air :D
-                            default:
-                                block.breakNaturally();
-                        }
-                    List<Block> copy = new ArrayList<Block>(event.blockList());
-                    event.blockList().clear(); //we don't want this event to be recorded, but we still want the explosion particles
-                    compatEvent.blockList().addAll(copy);
-
-                    explosionStorage.clearQueue();
+                if (compatEvent.isCancelled())
+                    //We cancel the event because we only want the event with the correct Entity to be logged
+                    event.setCancelled(true);
+                else //do our additional processing
+                {
+                    explosionLogic(compatEvent);
+                    //the blocks are gone by the time onLateExplosion sees this event, same rule as for the async explosions
+                    final String worldName = event.getLocation().getWorld().getName();
+                    if (hasExplosionPhysics(worldName, true))
+                        applyExplosionPhysics(event.blockList(), event.getLocation(), CFG.getInt(RootNode.EXPLOSIONS_FLYING_BLOCKS_PERCENTAGE, worldName),
+                                CFG.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_UP_VEL, worldName), CFG.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_SPREAD_VEL, worldName));
                 }
+
+                //Some plugins might decide to clear the blocklist instead of cancelling the event, in that case the modified blocklist is the same
+                //Handle blockbreaking and setting fire ourselves
+                breakBlocks(event.blockList());
+                List<Block> copy = new ArrayList<Block>(event.blockList());
+                event.blockList().clear(); //we don't want this event to be recorded, but we still want the explosion particles
+                compatEvent.blockList().addAll(copy);
             }
         }
     }
 
 
+    /**
+     * Break the blocks of an explosion, after all plugins had the chance to modify the block list
+     *
+     * @param blocks blocks to break
+     */
+    public void breakBlocks(Collection<Block> blocks)
+    {
+        for (Block block : blocks)
+            switch (block.getType())
+            {
+                case FIRE:
+                    //block.setType(Material.FIRE); do nuthing
+                    break;
+                case AIR:
+                    break; //dunno why some plugins log breaking of air :D
+                default:
+                    block.breakNaturally();
+            }
+    }
+
+
     //    _      _   _  _ ___ ___ _  _  ___   ___ _    ___   ___ _  _____
     //   | |    /_\ | \| |   \_ _| \| |/ __| | _ ) |  / _ \ / __| |/ / __|
     //   | |__ / _ \| .` | |) | || .` | (_ | | _ \ |_| (_) | (__| ' <\__ \
@@ -279,6 +320,12 @@ public class Explosions extends ListenerModule
                         event.setCancelled(true);
                         fallBaby.remove();
                     }
+                    //The blocks of a cluster have been placed already
+                    else if (fallBaby.hasMetadata(clusterTag))
+                    {
+                        event.setCancelled(true);
+                        fallBaby.remove();
+                    }
                     //If close place the block as if the player broke it first: stone -> cobble, gras -> dirt etc.
                     else
                     {
@@ -355,10 +402,10 @@ public class Explosions extends ListenerModule
 
         Location[] locations = new Location[]
                 {
-                        location.add(random1, 1, random2),
-                        location.add(-random2, 0, random1 / 2),
-                        location.add(-random1 / 2, -1, -random2),
-                        location.add(random1 / 2, 0, -random2 / 2)
+                        location.clone().add(random1, 1, random2),
+                        location.clone().add(-random2, 0, random1 / 2),
+                        location.clone().add(-random1 / 2, -1, -random2),
+                        location.clone().add(random1 / 2, 0, -random2 / 2)
                 };
 
         final int explosionsNum = locations.length;
@@ -366,7 +413,7 @@ public class Explosions extends ListenerModule
         for (int i = 0; i < explosionsNum; i++)
         {
             CreateExplosionTask task = new CreateExplosionTask(plugin, locations[i], explosionType, sourceEntity);
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 3L * (i + 1));
+            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, Timings.wrap(task), 3L * (i + 1));
         }
     }
 
@@ -400,25 +447,82 @@ public class Explosions extends ListenerModule
      */
     public void applyExplosionPhysics(Collection<Block> blocks, final Location center, final int flyPercentage, final double upVel, final double spreadVel)
     {
+        final List<Block> flying = new ArrayList<Block>();
+        for (Block block : blocks)
+        {
+            //Only a few of the blocks fly as an effect
+            if (block.getType().isSolid() && plugin.random(flyPercentage))
+                flying.add(block);
+        }
+        launchBlocks(flying, center, upVel, spreadVel);
+    }
+
+
+    /**
+     * Make the given blocks fly, the blocks have been selected already, e.g. by an {@link com.extrahardmode.module.ExplosionScan}
+     * <p/>
+     * Once the FallingBlock budget of the chunk is used up, the remaining blocks are grouped into clusters of 4x4x4
+     * blocks and only one FallingBlock flies for each cluster, just for the looks. The blocks of the cluster are dropped
+     * down in their own column right after the explosion instead, so no block gets lost if the FallingBlock breaks.
+     *
+     * @param blocks    solid blocks which should fly
+     * @param center    center from which to spread blocks out
+     * @param upVel     how fast to propel upwards
+     * @param spreadVel how fast to propel on horizontal axis
+     */
+    public void launchBlocks(Collection<Block> blocks, final Location center, final double upVel, final double spreadVel)
+    {
+        if (blocks.isEmpty())
+            return;
         final List<FallingBlock> fallingBlockList = new ArrayList<FallingBlock>();
+        Map<Long, List<Block>> clusters = new LinkedHashMap<Long, List<Block>>();
         for (Block block : blocks)
         {
-            if (block.getType().isSolid())
+            if (fallingBlockTracker == null || fallingBlockTracker.hasRoom(block))
+                fallingBlockList.add(launch(block, upVel));
+            else
+            {
+                Long key = CoordHelper.pack(block.getX() >> 2, block.getY() >> 2, block.getZ() >> 2);
+                List<Block> cluster = clusters.get(key);
+                if (cluster == null)
+                {
+                    cluster = new ArrayList<Block>();
+                    clusters.put(key, cluster);
+                }
+                cluster.add(block);
+            }
+        }
+
+        final List<Block> dropped = new ArrayList<Block>();
+        final List<Material> droppedTypes = new ArrayList<Material>();
+        for (List<Block> cluster : clusters.values())
+        {
+            FallingBlock representative = launch(cluster.get(0), upVel);
+            representative.setMetadata(clusterTag, new FixedMetadataValue(plugin, true));
+            fallingBlockList.add(representative);
+            for (Block block : cluster)
             {
-                //Only a few of the blocks fly as an effect
-                if (plugin.random(flyPercentage))
+                Material type = BlockModule.getDroppedMaterial(block.getType());
+                if (type.isBlock() && type != Material.AIR)
                 {
-                    FallingBlock fall = block.getLocation().getWorld().spawnFallingBlock(block.getLocation(), block.getType(), block.getData());
-                    fall.setMetadata(tag, new FixedMetadataValue(plugin, block.getLocation())); //decide on the distance if block should be placed
-                    //fall.setMetadata("drops", new FixedMetadataValue(plugin, block.getDrops()));
-                    fall.setDropItem(false);
-                    UtilityModule.moveUp(fall, upVel);
-                    //block.setType(Material.AIR);
-                    fallingBlockList.add(fall);
+                    dropped.add(block);
+                    droppedTypes.add(type);
                 }
             }
         }
 
+        if (!dropped.isEmpty())
+            //the explosion breaks the blocks after they have been launched
+            plugin.getServer().getScheduler().runTask(plugin, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < dropped.size(); i++)
+                        blockModule.dropBlock(dropped.get(i), droppedTypes.get(i).getId(), (byte) 0);
+                }
+            });
+
         plugin.getServer().getScheduler().runTaskLater(plugin, new Runnable()
         {
             @Override
@@ -431,4 +535,18 @@ public class Explosions extends ListenerModule
             }
         }, 2L);
     }
+
+
+    private FallingBlock launch(Block block, double upVel)
+    {
+        FallingBlock fall = block.getLocation().getWorld().spawnFallingBlock(block.getLocation(), block.getType(), block.getData());
+        fall.setMetadata(tag, new FixedMetadataValue(plugin, block.getLocation())); //decide on the distance if block should be placed
+        //fall.setMetadata("drops", new FixedMetadataValue(plugin, block.getDrops()));
+        fall.setDropItem(false);
+        UtilityModule.moveUp(fall, upVel);
+        //block.setType(Material.AIR);
+        if (fallingBlockTracker != null)
+            fallingBlockTracker.track(fall);
+        return fall;
+    }
 }
\ No newline at end of file
@@ -23,8 +23,10 @@ package com.extrahardmode.features;
 
 
 import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.BlockTypeSet;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.config.messages.MessageNode;
 import com.extrahardmode.events.EhmHardenedStoneEvent;
 import com.extrahardmode.module.BlockModule;
@@ -51,7 +53,6 @@ import org.bukkit.inventory.ItemStack;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -104,13 +105,13 @@ public class HardenedStone extends ListenerModule
         World world = block.getWorld();
         Player player = event.getPlayer();
 
-        final boolean hardStoneEnabled = CFG.getBoolean(RootNode.SUPER_HARD_STONE, world.getName());
-        final boolean hardStonePhysix = CFG.getBoolean(RootNode.SUPER_HARD_STONE_PHYSICS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean hardStoneEnabled = settings.getBoolean(RootNode.SUPER_HARD_STONE);
+        final boolean hardStonePhysix = settings.getBoolean(RootNode.SUPER_HARD_STONE_PHYSICS);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.HARDENEDSTONE);
         final boolean cancelled = event.isCancelled();
 
-        final Map<Integer, List<Byte>> tools = CFG.getMappedNode(RootNode.SUPER_HARD_STONE_TOOLS, world.getName());
-        final Map<Integer, List<Byte>> physicsBlocks = CFG.getMappedNode(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS, world.getName());
+        final BlockTypeSet physicsBlocks = settings.getBlockTypes(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS);
 
         // FEATURE: stone breaks tools much quicker
         if (hardStoneEnabled && block.getType() == Material.STONE && !playerBypasses)
@@ -119,12 +120,12 @@ public class HardenedStone extends ListenerModule
 
             if (inHandStack != null)
             {
-                int toolId = inHandStack.getType().getId();
-                EhmHardenedStoneEvent hardEvent = new EhmHardenedStoneEvent(player, inHandStack, tools.get(toolId) != null ? (short) tools.get(toolId).get(0) : 0);
+                final int blocksPerTool = settings.getStoneBlocksPerTool(inHandStack.getType().getId());
+                EhmHardenedStoneEvent hardEvent = new EhmHardenedStoneEvent(player, inHandStack, blocksPerTool > 0 ? (short) blocksPerTool : 0);
 
-                if (tools.containsKey(toolId) && !cancelled)
+                if (!cancelled)
                 {
-                    if (!tools.get(toolId).isEmpty())
+                    if (blocksPerTool >= 0)
                     {
                         /* Broadcast an Event for other Plugins to change if the tool can break stone and the amount of blocks */
                         plugin.getServer().getPluginManager().callEvent(hardEvent);
@@ -160,7 +161,7 @@ public class HardenedStone extends ListenerModule
         }
 
         // when ore is broken, it softens adjacent stone important to ensure players can reach the ore they break
-        if (hardStonePhysix && physicsBlocks.containsKey(block.getType().getId()))
+        if (hardStonePhysix && physicsBlocks.contains(block.getType().getId()))
         {
             //TODO HIGH EhmOrePhysicsEvent
             for (BlockFace face : blockModule.getTouchingFaces())
@@ -184,11 +185,12 @@ public class HardenedStone extends ListenerModule
         World world = block.getWorld();
 
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.HARDENEDSTONE);
-        final boolean hardstoneEnabled = CFG.getBoolean(RootNode.SUPER_HARD_STONE, world.getName());
-        final Map<Integer, List<Byte>> physicsBlocks = CFG.getMappedNode(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean hardstoneEnabled = settings.getBoolean(RootNode.SUPER_HARD_STONE);
+        final BlockTypeSet physicsBlocks = settings.getBlockTypes(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS);
 
         //TODO EhmBlockOrePlacementEvent
-        if (hardstoneEnabled && !playerBypasses && physicsBlocks.containsKey(block.getTypeId()))
+        if (hardstoneEnabled && !playerBypasses && physicsBlocks.contains(block.getTypeId()))
         {
             ArrayList<Block> adjacentBlocks = new ArrayList<Block>();
             for (BlockFace face : blockModule.getTouchingFaces())
@@ -219,8 +221,9 @@ public class HardenedStone extends ListenerModule
         List<Block> blocks = event.getBlocks();
         World world = event.getBlock().getWorld();
 
-        final boolean superHardStone = CFG.getBoolean(RootNode.SUPER_HARD_STONE, world.getName());
-        final Map<Integer, List<Byte>> physicsBlocks = CFG.getMappedNode(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean superHardStone = settings.getBoolean(RootNode.SUPER_HARD_STONE);
+        final BlockTypeSet physicsBlocks = settings.getBlockTypes(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS);
 
         //TODO EhmBlockOrePlacementEvent
         if (superHardStone)
@@ -230,7 +233,7 @@ public class HardenedStone extends ListenerModule
             {
                 // if any are ore or stone, don't push
                 Material material = block.getType();
-                if (material == Material.STONE || physicsBlocks.containsKey(material.getId()))
+                if (material == Material.STONE || physicsBlocks.contains(material.getId()))
                 {
                     event.setCancelled(true);
                     return;
@@ -252,15 +255,16 @@ public class HardenedStone extends ListenerModule
         Block block = event.getRetractLocation().getBlock();
         World world = block.getWorld();
 
-        final boolean hardStoneEnabled = CFG.getBoolean(RootNode.SUPER_HARD_STONE, world.getName());
-        final Map<Integer, List<Byte>> physicsBlocks = CFG.getMappedNode(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean hardStoneEnabled = settings.getBoolean(RootNode.SUPER_HARD_STONE);
+        final BlockTypeSet physicsBlocks = settings.getBlockTypes(RootNode.SUPER_HARD_STONE_PHYSICS_BLOCKS);
 
         //TODO EhmBlockOrePlacementEvent
         // we only care about sticky pistons
         if (event.isSticky() && hardStoneEnabled)
         {
             Material material = block.getType();
-            if (material == Material.STONE || physicsBlocks.containsKey(material.getId()))
+            if (material == Material.STONE || physicsBlocks.contains(material.getId()))
             {
                 event.setCancelled(true);
                 return;
@@ -8,6 +8,7 @@ import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.module.UtilityModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -123,7 +124,7 @@ public class MoreTnt extends ListenerModule
                             int amountBefore = PlayerModule.countInvItem(inv, Material.TNT);
                             //Add the missing tnt 1 tick later, we count what has been added by shiftclicking and multiply it
                             UtilityModule.addExtraItemsLater task = new UtilityModule.addExtraItemsLater(inv, amountBefore, Material.TNT, multiplier - 1);
-                            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 1L);
+                            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, Timings.wrap(task), 1L);
                         }
                         break;
                 }
@@ -26,6 +26,7 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.compatibility.CompatHandler;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.BlockModule;
 import com.extrahardmode.module.EntityHelper;
 import com.extrahardmode.module.PlayerModule;
@@ -91,7 +92,8 @@ public class Physics extends ListenerModule
         Block block = placeEvent.getBlock();
         World world = block.getWorld();
 
-        final boolean physixEnabled = CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean physixEnabled = settings.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.MORE_FALLING_BLOCKS);
 
         if (physixEnabled && !playerBypasses)
@@ -116,8 +118,9 @@ public class Physics extends ListenerModule
         World world = block.getWorld();
         Player player = breakEvent.getPlayer();
 
-        final boolean moreFallingBlocksEnabled = CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE, world.getName());
-        final int netherRackFirePercent = CFG.getInt(RootNode.BROKEN_NETHERRACK_CATCHES_FIRE_PERCENT, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean moreFallingBlocksEnabled = settings.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE);
+        final int netherRackFirePercent = settings.getInt(RootNode.BROKEN_NETHERRACK_CATCHES_FIRE_PERCENT);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.MORE_FALLING_BLOCKS);
 
 
@@ -152,8 +155,9 @@ public class Physics extends ListenerModule
         Entity entity = event.getEntity();
         World world = entity.getWorld();
 
-        final int damageAmount = CFG.getInt(RootNode.MORE_FALLING_BLOCKS_DMG_AMOUNT, world.getName());
-        final boolean environmentalDmg = CFG.getBoolean(RootNode.ENHANCED_ENVIRONMENTAL_DAMAGE, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final int damageAmount = settings.getInt(RootNode.MORE_FALLING_BLOCKS_DMG_AMOUNT);
+        final boolean environmentalDmg = settings.getBoolean(RootNode.ENHANCED_ENVIRONMENTAL_DAMAGE);
 
         //Only when Block has been marked to deal damage
         if (entity.getType().equals(EntityType.FALLING_BLOCK) && damageAmount > 0 && EntityHelper.isMarkedForProcessing(entity))
@@ -27,10 +27,11 @@ import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
 import com.extrahardmode.events.EhmPlayerExtinguishFireEvent;
 import com.extrahardmode.events.EhmPlayerInventoryLossEvent;
-import com.extrahardmode.module.DataStoreModule;
+import com.extrahardmode.module.DelayedTaskService;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.SetPlayerHealthAndFoodTask;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -106,11 +107,8 @@ public class Players extends ListenerModule
         {
             //TODO HIGH EhmPlayerRespawnEvent
             SetPlayerHealthAndFoodTask task = new SetPlayerHealthAndFoodTask(player, ((Damageable)player).getMaxHealth() * respawnHealthPercentage / 100.0D, respawnFood);
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 10L); // half-second delay
+            plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 10L, player); // half-second delay
         }
-        // FEATURE: players can't swim when they're carrying a lot of weight, reset the cached value
-        DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-        playerData.cachedWeightStatus = -1.0F;
     }
 
 
@@ -25,10 +25,10 @@ package com.extrahardmode.features;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
-import com.extrahardmode.module.BlockModule;
-import com.extrahardmode.module.PlayerModule;
+import com.extrahardmode.module.*;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.FallingLogsTask;
 import org.bukkit.Material;
 import org.bukkit.World;
@@ -39,9 +39,10 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.block.BlockBreakEvent;
 
-import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * When chopping down trees the logs fall down and loose logs fall down on the side and can injure you
@@ -130,6 +131,8 @@ public class RealisticChopping extends ListenerModule
 
             if (isTree)
             {
+                /* Heights at which the area around the stem gets checked for loose logs */
+                final List<Integer> levels = new ArrayList<Integer>();
                 Block aboveLog = block.getRelative(BlockFace.UP);
                 loop:
                 for (int limit = 0; limit < 30; limit++)
@@ -138,15 +141,7 @@ public class RealisticChopping extends ListenerModule
                     {
                         case AIR:
                         {
-                            List<Block> logs = new LinkedList<Block>(Arrays.asList(blockModule.getBlocksInArea(aboveLog.getLocation(), 1, 5, Material.LOG)));
-                            logs.addAll(Arrays.asList(blockModule.getBlocksInArea(aboveLog.getLocation(), 3, 5, Material.LOG_2)));
-                            for (Block log : logs)
-                            {
-                                //TODO EhmRealisticChoppingLooseLogEvent
-                                //check 2 blocks down for logs to see if it it's a stem
-                                if (log.getRelative(BlockFace.DOWN).getType() != Material.LOG && !(log.getRelative(BlockFace.DOWN, 2).getType() == Material.LOG || log.getRelative(BlockFace.DOWN, 2).getType() == Material.LOG_2))
-                                    plugin.getServer().getScheduler().runTaskLater(plugin, new FallingLogsTask(plugin, log), plugin.getRandom().nextInt(50/*so they don't fall at once*/));
-                            }
+                            levels.add(aboveLog.getY());
                             break; //can air fall?
                         }
                         case LOG:
@@ -160,7 +155,71 @@ public class RealisticChopping extends ListenerModule
                     }
                     aboveLog = aboveLog.getRelative(BlockFace.UP);
                 }
+
+                if (!levels.isEmpty())
+                {
+                    final int x = block.getX(), z = block.getZ();
+                    SnapshotArea area = SnapshotArea.capture(world, x - 5, z - 5, x + 5, z + 5);
+                    plugin.getModuleForClass(ChunkScanService.class).submit(area, new LooseLogsScan(x, z, levels));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Finds the logs around a chopped tree which aren't part of a stem
+     */
+    private class LooseLogsScan extends ChunkScan
+    {
+        private final int centerX, centerZ;
+
+        private final List<Integer> levels;
+
+
+        LooseLogsScan(int centerX, int centerZ, List<Integer> levels)
+        {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.levels = levels;
+        }
+
+
+        @Override
+        public void scan(SnapshotArea area, BlockList result)
+        {
+            final int log = Material.LOG.getId(), log2 = Material.LOG_2.getId();
+            Set<Long> found = new HashSet<Long>();
+            for (int level : levels)
+            {
+                for (int y = level; y < level + 3; y++)
+                {
+                    for (int x = centerX - 5; x <= centerX + 5; x++)
+                    {
+                        for (int z = centerZ - 5; z <= centerZ + 5; z++)
+                        {
+                            final int type = area.getTypeId(x, y, z);
+                            //LOG is only checked on the level itself, LOG_2 3 blocks up
+                            if ((type == log && y == level) || type == log2)
+                            {
+                                //TODO EhmRealisticChoppingLooseLogEvent
+                                //check 2 blocks down for logs to see if it it's a stem
+                                final int below = area.getTypeId(x, y - 1, z), below2 = area.getTypeId(x, y - 2, z);
+                                if (below != log && !(below2 == log || below2 == log2) && found.add(CoordHelper.pack(x, y, z)))
+                                    result.add(x, y, z, type);
+                            }
+                        }
+                    }
+                }
             }
         }
+
+
+        @Override
+        public void apply(Block block, int tag)
+        {
+            if (block.getTypeId() == tag)
+                plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(new FallingLogsTask(plugin, block)), plugin.getRandom().nextInt(50/*so they don't fall at once*/), block);
+        }
     }
 }
@@ -25,14 +25,14 @@ package com.extrahardmode.features;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.config.messages.MessageNode;
 import com.extrahardmode.module.MsgModule;
 import com.extrahardmode.module.PlayerModule;
+import com.extrahardmode.module.RainSweepModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
 import com.extrahardmode.service.PermissionNode;
-import com.extrahardmode.task.RemoveExposedTorchesTask;
-import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.Sound;
 import org.bukkit.World;
@@ -87,9 +87,10 @@ public class Torches extends ListenerModule
         Block block = placeEvent.getBlock();
         World world = block.getWorld();
 
-        final boolean limitedTorchPlacement = CFG.getBoolean(RootNode.LIMITED_TORCH_PLACEMENT, world.getName());
-        final boolean soundFizzEnabled = CFG.getBoolean(RootNode.SOUNDS_TORCH_FIZZ, world.getName());
-        final int torchMinY = CFG.getInt(RootNode.STANDARD_TORCH_MIN_Y, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean limitedTorchPlacement = settings.getBoolean(RootNode.LIMITED_TORCH_PLACEMENT);
+        final boolean soundFizzEnabled = settings.getBoolean(RootNode.SOUNDS_TORCH_FIZZ);
+        final int torchMinY = settings.getInt(RootNode.STANDARD_TORCH_MIN_Y);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.TORCHES);
 
         // FEATURE: players can't attach torches to common "soft" blocks
@@ -133,27 +134,20 @@ public class Torches extends ListenerModule
     {
         World world = event.getWorld();
 
-        final boolean rainBreaksTorchesEnabled = CFG.getBoolean(RootNode.RAIN_BREAKS_TORCHES, world.getName());
-        final boolean snowBreaksCrops = CFG.getBoolean(RootNode.SNOW_BREAKS_CROPS, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean rainBreaksTorchesEnabled = settings.getBoolean(RootNode.RAIN_BREAKS_TORCHES);
+        final boolean snowBreaksCrops = settings.getBoolean(RootNode.SNOW_BREAKS_CROPS);
 
         if (event.toWeatherState()) //is it raining
         {
             if (rainBreaksTorchesEnabled || snowBreaksCrops)
             {
-                // plan to remove torches chunk by chunk gradually throughout the rainperiod
-                Chunk[] chunks = world.getLoadedChunks();
-                if (chunks.length > 0)
-                {
-                    int startOffset = plugin.getRandom().nextInt(chunks.length);
-                    for (int i = 0; i < chunks.length; i++)
-                    {
-                        Chunk chunk = chunks[(startOffset + i) % chunks.length];
-
-                        RemoveExposedTorchesTask task = new RemoveExposedTorchesTask(plugin, chunk);
-                        plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, i * 15L);
-                    }
-                }
+                // remove torches chunk by chunk gradually, the sweeper only spends a small amount of time each tick
+                plugin.getModuleForClass(RainSweepModule.class).startSweep(world);
             }
+        } else
+        {
+            plugin.getModuleForClass(RainSweepModule.class).stopSweep(world);
         }
     }
 }
@@ -25,9 +25,10 @@ package com.extrahardmode.features;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.config.messages.MessageConfig;
 import com.extrahardmode.config.messages.MessageNode;
-import com.extrahardmode.module.DataStoreModule;
+import com.extrahardmode.module.EncumbranceTracker;
 import com.extrahardmode.module.MsgModule;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
@@ -37,14 +38,10 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
-import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
-import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
-import org.bukkit.event.player.PlayerPickupItemEvent;
 import org.bukkit.util.Vector;
 
 
@@ -59,6 +56,8 @@ public class Water extends ListenerModule
 
     private PlayerModule playerModule;
 
+    private EncumbranceTracker encumbrance;
+
 
     public Water(ExtraHardMode plugin)
     {
@@ -73,6 +72,7 @@ public class Water extends ListenerModule
         CFG = plugin.getModuleForClass(RootConfig.class);
         messenger = plugin.getModuleForClass(MsgModule.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
+        encumbrance = plugin.getModuleForClass(EncumbranceTracker.class);
     }
 
 
@@ -91,17 +91,18 @@ public class Water extends ListenerModule
         Block fromBlock = from.getBlock();
         Block toBlock = to.getBlock();
 
-        final boolean noSwimingInArmor = CFG.getBoolean(RootNode.NO_SWIMMING_IN_ARMOR, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean noSwimingInArmor = settings.getBoolean(RootNode.NO_SWIMMING_IN_ARMOR);
         final boolean playerBypasses = playerModule.playerBypasses(player, Feature.MONSTER_GLYDIA);
-        final boolean blockWaterElevators = CFG.getBoolean(RootNode.NO_SWIMMING_IN_ARMOR_BLOCK_ELEVATORS, world.getName());
+        final boolean blockWaterElevators = settings.getBoolean(RootNode.NO_SWIMMING_IN_ARMOR_BLOCK_ELEVATORS);
 
-        final float maxWeight = (float) CFG.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_MAX_POINTS, world.getName());
-        final float armorPoints = (float) CFG.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_ARMOR_POINTS, world.getName());
-        final float inventoryPoints = (float) CFG.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_INV_POINTS, world.getName());
-        final float toolPoints = (float) CFG.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_TOOL_POINTS, world.getName());
+        final float maxWeight = (float) settings.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_MAX_POINTS);
+        final float armorPoints = (float) settings.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_ARMOR_POINTS);
+        final float inventoryPoints = (float) settings.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_INV_POINTS);
+        final float toolPoints = (float) settings.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_TOOL_POINTS);
 
-        final int drowningRate = CFG.getInt(RootNode.NO_SWIMMING_IN_ARMOR_DROWN_RATE, world.getName());
-        final int overEncumbranceExtra = CFG.getInt(RootNode.NO_SWIMMING_IN_ARMOR_ENCUMBRANCE_EXTRA, world.getName());
+        final int drowningRate = settings.getInt(RootNode.NO_SWIMMING_IN_ARMOR_DROWN_RATE);
+        final int overEncumbranceExtra = settings.getInt(RootNode.NO_SWIMMING_IN_ARMOR_ENCUMBRANCE_EXTRA);
 
         final float normalDrownVel = -0.5F;
         final float overwaterDrownVel = -0.7F;
@@ -112,29 +113,21 @@ public class Water extends ListenerModule
             // only care about moving up
             if (to.getY() > from.getY())
             {
-                DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
+                final float weight = encumbrance.getWeight(player, armorPoints, inventoryPoints, toolPoints);
                 // only when in water
                 Block underFromBlock = fromBlock.getRelative(BlockFace.DOWN);
                 if (fromBlock.getType() == Material.STATIONARY_WATER && toBlock.getType() == Material.STATIONARY_WATER && underFromBlock.getType() == Material.STATIONARY_WATER && underFromBlock.getRelative(BlockFace.DOWN).getType() == Material.STATIONARY_WATER)
                 {
-                    // if no cached value, calculate
-                    if (playerData.cachedWeightStatus <= 0)
-                    {
-                        playerData.cachedWeightStatus = playerModule.inventoryWeight(player, armorPoints, inventoryPoints, toolPoints);
-                    }
                     // if too heavy let player feel the weight by pulling them down, if in boat can always swim
-                    if (playerData.cachedWeightStatus > maxWeight && !player.isInsideVehicle())
+                    if (weight > maxWeight && !player.isInsideVehicle())
                     {
-                        drown(player, drowningRate, overEncumbranceExtra, playerData.cachedWeightStatus, maxWeight, normalDrownVel, overwaterDrownVel);
+                        drown(player, drowningRate, overEncumbranceExtra, weight, maxWeight, normalDrownVel, overwaterDrownVel);
                     }
                 }
                 //when you swim up waterfalls and basically are flying with only a tip of your body in water
                 else if (blockWaterElevators && !playerModule.isPlayerOnLadder(player) && !player.isInsideVehicle() && !player.isFlying())
                 {
-                    if (playerData.cachedWeightStatus <= 0)
-                    {
-                        playerData.cachedWeightStatus = playerModule.inventoryWeight(player, armorPoints, inventoryPoints, toolPoints);
-                    } else if (playerData.cachedWeightStatus > maxWeight)
+                    if (weight > maxWeight)
                     {
                         //Detect waterfalls
                         BlockFace[] faces = {
@@ -155,7 +148,7 @@ public class Water extends ListenerModule
                                 isWaterNear = true;
                         }
                         if (isWaterNear)
-                            drown(player, drowningRate, overEncumbranceExtra, playerData.cachedWeightStatus, maxWeight, normalDrownVel + 0.3F, normalDrownVel + 0.3F); //the water flowing down pulls you down
+                            drown(player, drowningRate, overEncumbranceExtra, weight, maxWeight, normalDrownVel + 0.3F, normalDrownVel + 0.3F); //the water flowing down pulls you down
                     }
                 }
             }
@@ -192,53 +185,4 @@ public class Water extends ListenerModule
             }
         }
     }
-
-
-    /**
-     * when a player drops an item
-     *
-     * @param event - Event that occurred.
-     */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
-    void onPlayerDropItem(PlayerDropItemEvent event)
-    {
-        // FEATURE: players can't swim when they're carrying a lot of weight
-        Player player = event.getPlayer();
-        DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-        playerData.cachedWeightStatus = -1.0F;
-    }
-
-
-    /**
-     * when a player picks up an item
-     *
-     * @param event - Event that occurred.
-     */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
-    void onPlayerPickupItem(PlayerPickupItemEvent event)
-    {
-        // FEATURE: players can't swim when they're carrying a lot of weight
-        Player player = event.getPlayer();
-        DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-        playerData.cachedWeightStatus = -1.0F;
-    }
-
-
-    /**
-     * When a player interacts with an inventory.
-     *
-     * @param event - Event that occurred.
-     */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
-    void onPlayerInventoryClick(InventoryClickEvent event)
-    {
-        // FEATURE: players can't swim when they're carrying a lot of weight
-        HumanEntity humanEntity = event.getWhoClicked();
-        if (humanEntity instanceof Player)
-        {
-            Player player = (Player) humanEntity;
-            DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-            playerData.cachedWeightStatus = -1.0F;
-        }
-    }
 }
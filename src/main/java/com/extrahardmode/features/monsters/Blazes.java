@@ -26,7 +26,10 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.ExplosionType;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.EntityState;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.service.ListenerModule;
 import com.extrahardmode.task.CreateExplosionTask;
 import org.bukkit.Location;
@@ -35,13 +38,10 @@ import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.*;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.util.Vector;
 
 /**
@@ -67,6 +67,65 @@ public class Blazes extends ListenerModule
     {
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.BONUS_NETHER_BLAZE_SPAWN_PERCENT) > 0
+                        || settings.getInt(RootNode.NEAR_BEDROCK_BLAZE_SPAWN_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.BLAZES_DROP_BONUS_LOOT)
+                        || settings.getBoolean(RootNode.BLAZES_EXPLODE_ON_DEATH)
+                        || settings.getInt(RootNode.NETHER_BLAZES_SPLIT_ON_DEATH_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.MAGMA_CUBES_BECOME_BLAZES_ON_DAMAGE)
+                        || settings.getBoolean(RootNode.BLAZES_DROP_FIRE_ON_DAMAGE);
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -75,7 +134,6 @@ public class Blazes extends ListenerModule
      * <p/>
      * handles all the extra spawns for Blazes in the OverWorld and Nether
      */
-    @EventHandler(priority = EventPriority.LOW)
     public void onEntitySpawn(CreatureSpawnEvent event)
     {
         Location location = event.getLocation();
@@ -125,7 +183,6 @@ public class Blazes extends ListenerModule
      * <p/>
      * exlode in OverWorld , multiply in the Nether
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -173,7 +230,8 @@ public class Blazes extends ListenerModule
         if (blazeSplitPercent > 0 && world.getEnvironment() == World.Environment.NETHER && entity instanceof Blaze)
         {
             //Blazes which have split already are less likely to split
-            int respawnCount = entity.getMetadata("extrahardmode.blaze.splitcount").size() > 0 ? entity.getMetadata("extrahardmode.blaze.splitcount").get(0).asInt() : 0;
+            EntityState state = EntityHelper.getStates().get(entity);
+            int respawnCount = state != null ? state.splitCount : 0;
             respawnCount++;
             blazeSplitPercent = (int) (1.0D / respawnCount * blazeSplitPercent);
             if (plugin.random(blazeSplitPercent))
@@ -182,11 +240,11 @@ public class Blazes extends ListenerModule
                 Entity firstNewBlaze = EntityHelper.spawn(entity.getLocation(), EntityType.BLAZE);
                 firstNewBlaze.setVelocity(new Vector(1, 0, 1));
                 //Save the new splitcounter
-                firstNewBlaze.setMetadata("extrahardmode.blaze.splitcount", new FixedMetadataValue(plugin, respawnCount));
+                EntityHelper.getStates().getOrCreate(firstNewBlaze).splitCount = respawnCount;
 
                 Entity secondNewBlaze = EntityHelper.spawn(entity.getLocation(), EntityType.BLAZE);
                 secondNewBlaze.setVelocity(new Vector(-1, 0, -1));
-                secondNewBlaze.setMetadata("extrahardmode.blaze.splitcount", new FixedMetadataValue(plugin, respawnCount));
+                EntityHelper.getStates().getOrCreate(secondNewBlaze).splitCount = respawnCount;
 
                 // if this blaze was marked lootless, mark the new blazes the same
                 if (EntityHelper.isLootLess(entity))
@@ -204,7 +262,6 @@ public class Blazes extends ListenerModule
      * <p/>
      * Magmacubes turn into blazes , Blazes drop fire when hit ,
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
@@ -26,9 +26,11 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.ExplosionType;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.events.EhmCreeperDropTntEvent;
 import com.extrahardmode.events.fakeevents.FakeEntityExplodeEvent;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
@@ -66,6 +68,62 @@ public class BumBumBens extends ListenerModule
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.CHARGED_CREEPER_SPAWN_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.CREEPERS_DROP_TNT_ON_DEATH_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.CHARGED_CREEPERS_EXPLODE_ON_HIT)
+                        || settings.getBoolean(RootNode.FLAMING_CREEPERS_EXPLODE);
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -74,7 +132,6 @@ public class BumBumBens extends ListenerModule
      * <p/>
      * naturally spawning Charged Creepers
      */
-    @EventHandler(priority = EventPriority.LOW)
     public void onEntitySpawn(CreatureSpawnEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -101,7 +158,6 @@ public class BumBumBens extends ListenerModule
      * <p/>
      * Creepers may drop tnt
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -136,7 +192,6 @@ public class BumBumBens extends ListenerModule
      * <p/>
      * Charged creepers explode on hit , burning creepers will cause a big explosion
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
@@ -41,23 +41,23 @@ public class DebugMode extends ListenerModule
     }
 
 
-    public void enableDebugMode(String playerName)
+    public void enableDebugMode(Player player)
     {
-        dataStoreModule.getPlayerData(playerName).inDebug = true;
+        dataStoreModule.getPlayerData(player).inDebug = true;
     }
 
 
-    public void disableDebugMode(String playerName)
+    public void disableDebugMode(Player player)
     {
-        dataStoreModule.getPlayerData(playerName).inDebug = false;
+        dataStoreModule.getPlayerData(player).inDebug = false;
         for (int line = 0; line < 6; line++)
-            msgModule.getManager().removePopup(playerName, key_blockdata_msg + line);
+            msgModule.getManager().removePopup(player.getName(), key_blockdata_msg + line);
     }
 
 
-    public boolean isInDebugMode(String playerName)
+    public boolean isInDebugMode(Player player)
     {
-        return dataStoreModule.getPlayerData(playerName).inDebug;
+        return dataStoreModule.getPlayerData(player).inDebug;
     }
 
 
@@ -68,7 +68,7 @@ public class DebugMode extends ListenerModule
     public void onPlayerTurn(PlayerMoveEvent event)
     {
         Player player = event.getPlayer();
-        if (isInDebugMode(player.getName()))
+        if (isInDebugMode(player))
         {
             Block target = player.getTargetBlock(null, 50);
             for (int line = 0; line < 6; line++)
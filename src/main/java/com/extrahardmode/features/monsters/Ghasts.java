@@ -25,6 +25,8 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
@@ -62,6 +64,31 @@ public class Ghasts extends ListenerModule
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.GHASTS_DEFLECT_ARROWS) != 100;
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -70,7 +97,6 @@ public class Ghasts extends ListenerModule
      * <p/>
      * Increase loot for Ghasts drastically
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -25,15 +25,19 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.config.messages.MessageNode;
 import com.extrahardmode.events.fakeevents.FakeEntityExplodeEvent;
 import com.extrahardmode.module.DataStoreModule;
+import com.extrahardmode.module.DelayedTaskService;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.module.MsgModule;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.FindAndReplace;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.DragonAttackPatternTask;
 import com.extrahardmode.task.DragonAttackTask;
 import org.bukkit.Chunk;
@@ -85,6 +89,46 @@ public class Glydia extends ListenerModule
         data = plugin.getModuleForClass(DataStoreModule.class);
         messenger = plugin.getModuleForClass(MsgModule.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return true;
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.ENDER_DRAGON_ADDITIONAL_ATTACKS);
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -161,7 +205,6 @@ public class Glydia extends ListenerModule
      * <p/>
      * drop villager eggs , drop a dragon egg , announce the killers
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -254,7 +297,6 @@ public class Glydia extends ListenerModule
      * <p/>
      * initiate the additional attacks
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
@@ -293,7 +335,7 @@ public class Glydia extends ListenerModule
                     data.getPlayers().add(damager.getName());
 
                     DragonAttackPatternTask task = new DragonAttackPatternTask(plugin, (LivingEntity) entity, damager, data.getPlayers());
-                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 1L);
+                    plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 1L, entity);
 
                     if (dragonAnnouncements)
                     {
@@ -304,7 +346,7 @@ public class Glydia extends ListenerModule
                 for (int i = 0; i < 5; i++)
                 {
                     DragonAttackTask task = new DragonAttackTask(plugin, entity, damager);
-                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 20L * (plugin.getRandom().nextInt(15)));
+                    plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 20L * (plugin.getRandom().nextInt(15)), entity);
                 }
 
                 Chunk chunk = damager.getLocation().getChunk();
@@ -25,7 +25,9 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.service.ListenerModule;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -34,7 +36,6 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Monster;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityTargetEvent;
@@ -58,6 +59,47 @@ public class MonsterRules extends ListenerModule
     {
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.MORE_MONSTERS_MAX_Y) > 0
+                        && settings.getInt(RootNode.MORE_MONSTERS_MULTIPLIER) > 1;
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return true;
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -66,7 +108,6 @@ public class MonsterRules extends ListenerModule
      * <p/>
      * more Monsters in caves
      */
-    @EventHandler(priority = EventPriority.LOW)
     public void onEntitySpawn(CreatureSpawnEvent event)
     {
         Location location = event.getLocation();
@@ -135,7 +176,6 @@ public class MonsterRules extends ListenerModule
      *
      * @param event - Event that occurred.
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
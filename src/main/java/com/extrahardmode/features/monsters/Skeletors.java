@@ -25,8 +25,11 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.events.EhmSkeletonDeflectEvent;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.EntityState;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.service.ListenerModule;
 import com.extrahardmode.service.OurRandom;
 import org.bukkit.Location;
@@ -39,16 +42,9 @@ import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
 import org.bukkit.event.entity.ProjectileLaunchEvent;
 import org.bukkit.metadata.FixedMetadataValue;
-import org.bukkit.metadata.MetadataValue;
-import org.bukkit.plugin.Plugin;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.UUID;
-
 /**
  * Changes to Skeletons include:
  * <p/>
@@ -62,10 +58,6 @@ public class Skeletors extends ListenerModule
     private final static String key_knockbackArrow = "ehm.skeletors.knockbackarrow";
     private final static String key_slownessArrow = "ehm.skeletors.slownessArrow";
     private final static String key_fireArrow = "ehm.skeletons.explosionArrows";
-    private final static String key_spawnedMinions = "extrahardmode.skeleton.minions";
-    private final static String key_totalSpawnedMinions = "extrahardmode.skeleton.minions.totalcount";
-    private final static String key_parent = "extrahardmode.minion.parent";
-    private final static String key_minionTag = "extrahardmode.skeleton.minion";
 
 
     /**
@@ -84,6 +76,31 @@ public class Skeletors extends ListenerModule
     {
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.SKELETONS_RELEASE_SILVERFISH_KILL);
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onSkeletonDeath(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -101,9 +118,10 @@ public class Skeletors extends ListenerModule
             World world = entity.getWorld();
 
             //final int deflect = CFG.getInt(RootNode.SKELETONS_DEFLECT_ARROWS, world.getName());
-            final double knockBackStrength = CFG.getDouble(RootNode.SKELETONS_FIREWORK_KNOCKBACK_VEL, world.getName());
-            final int slownessLength = CFG.getInt(RootNode.SKELETONS_SNOWBALLS_SLOW_LEN, world.getName());
-            final int fireTicks = CFG.getInt(RootNode.SKELETONS_FIREBALL_PLAYER_FIRETICKS, world.getName());
+            final WorldSettings settings = CFG.getSettings(world);
+            final double knockBackStrength = settings.getDouble(RootNode.SKELETONS_FIREWORK_KNOCKBACK_VEL);
+            final int slownessLength = settings.getInt(RootNode.SKELETONS_SNOWBALLS_SLOW_LEN);
+            final int fireTicks = settings.getInt(RootNode.SKELETONS_FIREBALL_PLAYER_FIRETICKS);
 
             if (event.getDamager() instanceof Projectile && event.getEntity() instanceof Player)
             {
@@ -175,19 +193,20 @@ public class Skeletors extends ListenerModule
         Location location = event.getEntity().getLocation();
         World world = location.getWorld();
 
-        final boolean snowballs = CFG.getBoolean(RootNode.SKELETONS_SNOWBALLS_ENABLE, world.getName());
-        final int snowballsPercent = CFG.getInt(RootNode.SKELETONS_SNOWBALLS_PERCENT, world.getName());
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean snowballs = settings.getBoolean(RootNode.SKELETONS_SNOWBALLS_ENABLE);
+        final int snowballsPercent = settings.getInt(RootNode.SKELETONS_SNOWBALLS_PERCENT);
 
-        final boolean fireworks = CFG.getBoolean(RootNode.SKELETONS_FIREWORK_ENABLE, world.getName());
-        final int fireworksPercent = CFG.getInt(RootNode.SKELETONS_FIREWORK_PERCENT, world.getName());
+        final boolean fireworks = settings.getBoolean(RootNode.SKELETONS_FIREWORK_ENABLE);
+        final int fireworksPercent = settings.getInt(RootNode.SKELETONS_FIREWORK_PERCENT);
 
-        final boolean explosionArrowEnable = CFG.getBoolean(RootNode.SKELETONS_FIREBALL_ENABLE, world.getName());//CFG.getBoolean(RootNode.);
-        final int explosionPercent = CFG.getInt(RootNode.SKELETONS_FIREBALL_PERCENTAGE, world.getName());
+        final boolean explosionArrowEnable = settings.getBoolean(RootNode.SKELETONS_FIREBALL_ENABLE);
+        final int explosionPercent = settings.getInt(RootNode.SKELETONS_FIREBALL_PERCENTAGE);
 
-        final boolean silverfishEnable = CFG.getBoolean(RootNode.SKELETONS_RELEASE_SILVERFISH_ENABLE, world.getName());
-        final int silverfishPercent = CFG.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_PERCENT, world.getName());
-        final int currentLimit = CFG.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_LIMIT, world.getName());
-        final int totalLimit = CFG.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_LIMIT_TOTAL, world.getName());
+        final boolean silverfishEnable = settings.getBoolean(RootNode.SKELETONS_RELEASE_SILVERFISH_ENABLE);
+        final int silverfishPercent = settings.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_PERCENT);
+        final int currentLimit = settings.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_LIMIT);
+        final int totalLimit = settings.getInt(RootNode.SKELETONS_RELEASE_SILVERFISH_LIMIT_TOTAL);
 
         // FEATURE: skeletons sometimes release silverfish to attack their targets
         if (event.getEntity() instanceof Arrow && event.getEntity().getShooter() instanceof Skeleton)
@@ -220,8 +239,8 @@ public class Skeletors extends ListenerModule
             } else if (skeleton.getTarget() instanceof Player && silverfishEnable && OurRandom.percentChance(silverfishPercent)) //To prevent tons of Silverfish
             {
                 //respect summoning limits
-                if (getMinionsSpawnedBySkeli(skeleton, plugin).size() < currentLimit
-                        && getTotalMinionsSummonedBySkeli(skeleton, plugin) < totalLimit)
+                if (getMinionsSpawnedBySkeli(skeleton) < currentLimit
+                        && getTotalMinionsSummonedBySkeli(skeleton) < totalLimit)
                 {
                     // replace arrow with silverfish
                     event.setCancelled(true);
@@ -232,9 +251,8 @@ public class Skeletors extends ListenerModule
                     silverFish.setTarget(skeleton.getTarget());
 
                     EntityHelper.markLootLess(plugin, silverFish); // this silverfish doesn't drop loot
-                    setMinion(plugin, silverFish);
-                    setParentOfMinion(skeleton, silverFish, plugin);
-                    addMinionToSkeli(skeleton, silverFish, plugin);
+                    setMinion(silverFish);
+                    EntityHelper.getStates().link(skeleton, silverFish);
                 }
             }
         }
@@ -251,124 +269,33 @@ public class Skeletors extends ListenerModule
 
 
     /** When a skeleton dies kill all the spawned silverfish aswell */
-    @EventHandler
     public void onSkeletonDeath(EntityDeathEvent event)
     {
         final boolean removeSilverfish = CFG.getBoolean(RootNode.SKELETONS_RELEASE_SILVERFISH_KILL, event.getEntity().getWorld().getName());
         if (removeSilverfish && event.getEntity() instanceof Skeleton)
         {
             //Kill all silverfish, but do it slowly as if they are burning up
-            for (LivingEntity silverfish : event.getEntity().getWorld().getLivingEntities())
-                if (isMinion(silverfish))
-                {
-                    for (UUID id : getMinionsSpawnedBySkeli(event.getEntity(), plugin))
-                    {
-                        if (silverfish.getUniqueId() == id)
-                        {
-                            //silverfish.addPotionEffect(new PotionEffect(PotionEffectType.FIRE_RESISTANCE, Integer.MAX_VALUE, 1));
-                            silverfish.setFireTicks(Integer.MAX_VALUE);
-                            //new SlowKillTask(silverfish, plugin);
-                        }
-                    }
-                }
-        }
-    }
-
-
-    @EventHandler
-    public void onMinionDeath(EntityDeathEvent event)
-    {
-        final boolean removeSilverfish = CFG.getBoolean(RootNode.SKELETONS_RELEASE_SILVERFISH_KILL, event.getEntity().getWorld().getName());
-
-        if (removeSilverfish)
-        {
-            //Remove the silverfish from the spawnned list of silverfish in the skeli
-            LivingEntity entity = event.getEntity();
-            if (isMinion(entity))
+            for (Entity silverfish : EntityHelper.getStates().getMinions(event.getEntity()))
             {
-                UUID parent = getParentOfMinion(entity, plugin);
-
-                //Try to find the parent by id
-                for (LivingEntity worldEntity : entity.getWorld().getLivingEntities())
-                {
-                    if (worldEntity.getUniqueId() == parent)
-                        removeMinionFromSkeli(entity.getUniqueId(), worldEntity);
-                }
+                //silverfish.addPotionEffect(new PotionEffect(PotionEffectType.FIRE_RESISTANCE, Integer.MAX_VALUE, 1));
+                silverfish.setFireTicks(Integer.MAX_VALUE);
+                //new SlowKillTask(silverfish, plugin);
             }
         }
     }
 
 
     /**
-     * Add a minion to the list of minions spawned by this entity
-     *
-     * @param summoner entity that summoned another entiry
-     * @param minion   minion that has been summoned
-     * @param plugin   owning plugin for metadata
-     */
-    @SuppressWarnings("unchecked")
-    public static void addMinionToSkeli(LivingEntity summoner, LivingEntity minion, Plugin plugin)
-    {
-        List<UUID> idList = new ArrayList<UUID>(1);
-        //Get minions already set and append the new Minion
-        List<MetadataValue> meta = summoner.getMetadata(key_spawnedMinions);
-        for (MetadataValue val : meta)
-            if (val.getOwningPlugin() == plugin)
-                if (val.value() instanceof List)
-                    idList = (List<UUID>) val.value();
-        idList.add(minion.getUniqueId());
-        summoner.setMetadata(key_spawnedMinions, new FixedMetadataValue(plugin, idList));
-
-        //Increment the total count of minions summoned
-        int totalCount = getTotalMinionsSummonedBySkeli(summoner, plugin);
-        totalCount++;
-        summoner.setMetadata(key_totalSpawnedMinions, new FixedMetadataValue(plugin, totalCount));
-    }
-
-
-    /**
-     * Remove the minion from the list of summoned minions
-     *
-     * @param minionId id of the minion
-     * @param summoner the entity that summoned the minion
-     */
-    public static void removeMinionFromSkeli(UUID minionId, LivingEntity summoner)
-    {
-        List<MetadataValue> meta = summoner.getMetadata(key_spawnedMinions);
-        if (!meta.isEmpty())
-        {
-            MetadataValue value = meta.get(0);
-            if (value.value() instanceof List)
-            {
-                Iterator<UUID> iter = ((List<UUID>) value.value()).iterator();
-                while (iter.hasNext())
-                {
-                    if (minionId == iter.next())
-                        iter.remove();
-                }
-            }
-        }
-    }
-
-
-    /**
-     * Get all the Ids of the Minions spawned by this CustomSkeleton
+     * Get the number of minions spawned by this CustomSkeleton which are still alive
      *
      * @param entity entity to get the minions for
-     * @param plugin owning plugin to access meta
      *
-     * @return Unique ids of all minions that have been spawned (minions can be dead)
+     * @return count or 0 if not set
      */
-    @SuppressWarnings("unchecked")
-    public static List<UUID> getMinionsSpawnedBySkeli(LivingEntity entity, Plugin plugin)
+    public static int getMinionsSpawnedBySkeli(LivingEntity entity)
     {
-        List<MetadataValue> meta = entity.getMetadata(key_spawnedMinions);
-        List<UUID> ids = new ArrayList<UUID>(meta.size());
-        for (MetadataValue val : meta)
-            if (val.getOwningPlugin() == plugin)
-                if (val.value() instanceof List)
-                    ids = (List<UUID>) val.value();
-        return ids;
+        EntityState state = EntityHelper.getStates().get(entity);
+        return state != null ? state.getMinionCount() : 0;
     }
 
 
@@ -376,66 +303,24 @@ public class Skeletors extends ListenerModule
      * Get the total number of minions summoned by this entity
      *
      * @param entity entity to get minion count
-     * @param plugin owning plugin to access MetaData
      *
      * @return count or 0 if not set
      */
-    public static int getTotalMinionsSummonedBySkeli(LivingEntity entity, Plugin plugin)
+    public static int getTotalMinionsSummonedBySkeli(LivingEntity entity)
     {
-        List<MetadataValue> meta = entity.getMetadata(key_totalSpawnedMinions);
-        int totalCount = 0;
-        if (!meta.isEmpty())
-        {
-            MetadataValue value = meta.get(0);
-            if (value.value() instanceof Integer)
-                totalCount = (Integer) value.value();
-        }
-        return totalCount;
+        EntityState state = EntityHelper.getStates().get(entity);
+        return state != null ? state.totalMinions : 0;
     }
 
 
-    public static void setMinion(Plugin plugin, LivingEntity entity)
+    public static void setMinion(LivingEntity entity)
     {
-        entity.setMetadata(key_minionTag, new FixedMetadataValue(plugin, true));
+        EntityHelper.getStates().setFlag(entity, EntityState.MINION);
     }
 
 
     public static boolean isMinion(LivingEntity entity)
     {
-        return entity.hasMetadata(key_minionTag);
-    }
-
-
-    /**
-     * Set the parent that summoned this minion
-     *
-     * @param summoner parent summoner
-     * @param minion   summoned minion
-     * @param owning   plugin that spawned the minion
-     */
-    public static void setParentOfMinion(LivingEntity summoner, LivingEntity minion, Plugin owning)
-    {
-        minion.setMetadata(key_parent, new FixedMetadataValue(owning, summoner.getUniqueId()));
-    }
-
-
-    /**
-     * Get the parent that summoned the minion
-     *
-     * @param minion minion to get the parent for
-     * @param plugin owning plugin for MetaData
-     *
-     * @return id of parent or id of minion if parent not set
-     */
-    public static UUID getParentOfMinion(LivingEntity minion, Plugin plugin)
-    {
-        List<MetadataValue> meta = minion.getMetadata(key_parent);
-        if (!meta.isEmpty())
-        {
-            MetadataValue metaVal = meta.get(0);
-            if (metaVal.value() instanceof UUID)
-                return (UUID) metaVal.value();
-        }
-        return minion.getUniqueId();
+        return EntityHelper.getStates().hasFlag(entity, EntityState.MINION);
     }
-}
\ No newline at end of file
+}
@@ -25,8 +25,11 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
-import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.module.FeatureDispatcher;
+import com.extrahardmode.module.*;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.WebCleanupTask;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -36,8 +39,6 @@ import org.bukkit.block.BlockFace;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Spider;
-import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
 
@@ -65,6 +66,46 @@ public class Spiders extends ListenerModule
     {
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(CreatureSpawnEvent.class, this, new FeatureDispatcher.Handler<CreatureSpawnEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.BONUS_UNDERGROUND_SPIDER_SPAWN_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(CreatureSpawnEvent event)
+            {
+                onEntitySpawn(event);
+            }
+        });
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.SPIDERS_DROP_WEB_ON_DEATH);
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -73,7 +114,6 @@ public class Spiders extends ListenerModule
      * <p/>
      * More spiders in caves
      */
-    @EventHandler(priority = EventPriority.LOW)
     public void onEntitySpawn(CreatureSpawnEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -104,7 +144,6 @@ public class Spiders extends ListenerModule
      * <p/>
      * spiders drop web on death
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -141,7 +180,7 @@ public class Spiders extends ListenerModule
                         continue;
 
                     // only place web on the ground, not hanging up in the air
-                    for (int i = 0; i < 5 || block.getY() < 0; i++)
+                    for (int i = 0; i < 5 && block.getY() > 0; i++)
                     {
                         if (block.getRelative(BlockFace.DOWN).getType() == Material.AIR)
                             block = block.getRelative(BlockFace.DOWN);
@@ -175,10 +214,10 @@ public class Spiders extends ListenerModule
 
                 // any webs placed above sea level will be automatically cleaned up
                 // after a short time
-                if (entity.getLocation().getBlockY() >= entity.getLocation().getWorld().getSeaLevel() - 5)
+                if (!changedBlocks.isEmpty() && entity.getLocation().getBlockY() >= world.getSeaLevel() - 5)
                 {
                     WebCleanupTask task = new WebCleanupTask(changedBlocks);
-                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 20L * 30);
+                    plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 20L * 30, world);
                 }
             }
         }
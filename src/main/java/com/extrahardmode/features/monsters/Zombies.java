@@ -25,21 +25,24 @@ package com.extrahardmode.features.monsters;
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.events.EhmZombieRespawnEvent;
+import com.extrahardmode.module.DelayedTaskService;
 import com.extrahardmode.module.EntityHelper;
+import com.extrahardmode.module.EntityState;
+import com.extrahardmode.module.FeatureDispatcher;
 import com.extrahardmode.module.PlayerModule;
 import com.extrahardmode.service.Feature;
 import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.RespawnZombieTask;
 import org.bukkit.World;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
-import org.bukkit.event.EventPriority;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.EntityDeathEvent;
-import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
@@ -63,6 +66,46 @@ public class Zombies extends ListenerModule
         super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
         playerModule = plugin.getModuleForClass(PlayerModule.class);
+
+        FeatureDispatcher dispatcher = plugin.getModuleForClass(FeatureDispatcher.class);
+        dispatcher.register(EntityDeathEvent.class, this, new FeatureDispatcher.Handler<EntityDeathEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getInt(RootNode.ZOMBIES_REANIMATE_PERCENT) > 0;
+            }
+
+
+            @Override
+            public void handle(EntityDeathEvent event)
+            {
+                onEntityDeath(event);
+            }
+        });
+        dispatcher.register(EntityDamageEvent.class, this, new FeatureDispatcher.Handler<EntityDamageEvent>()
+        {
+            @Override
+            public boolean isEnabled(WorldSettings settings)
+            {
+                return settings.getBoolean(RootNode.ZOMBIES_DEBILITATE_PLAYERS);
+            }
+
+
+            @Override
+            public void handle(EntityDamageEvent event)
+            {
+                onEntityDamage(event);
+            }
+        });
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        plugin.getModuleForClass(FeatureDispatcher.class).unregisterAll(this);
     }
 
 
@@ -71,7 +114,6 @@ public class Zombies extends ListenerModule
      * <p/>
      * sometimes reanimate the zombie
      */
-    @EventHandler
     public void onEntityDeath(EntityDeathEvent event)
     {
         LivingEntity entity = event.getEntity();
@@ -91,7 +133,8 @@ public class Zombies extends ListenerModule
                     player = (Player) zombie.getTarget();
 
                 //Zombies which have respawned already are less likely to respawn
-                int respawnCount = entity.getMetadata("extrahardmode.zombie.respawncount").size() > 0 ? entity.getMetadata("extrahardmode.zombie.respawncount").get(0).asInt() : 0;
+                EntityState state = EntityHelper.getStates().get(entity);
+                int respawnCount = state != null ? state.respawnCount : 0;
                 respawnCount++;
                 zombiesReanimatePercent = (int) (1.0D / respawnCount * zombiesReanimatePercent);
 
@@ -99,12 +142,10 @@ public class Zombies extends ListenerModule
                 plugin.getServer().getPluginManager().callEvent(zombieEvent);
                 if (!zombie.isVillager() && entity.getFireTicks() < 1 && !zombieEvent.isCancelled())
                 {
-                    //Save the incremented respawncount
-                    entity.setMetadata("extrahardmode.zombie.respawncount", new FixedMetadataValue(plugin, respawnCount));
-
-                    RespawnZombieTask task = new RespawnZombieTask(plugin, entity.getLocation(), player);
+                    //The respawned zombie gets the incremented respawncount
+                    RespawnZombieTask task = new RespawnZombieTask(plugin, entity.getLocation(), player, respawnCount);
                     int respawnSeconds = plugin.getRandom().nextInt(6) + 3; // 3-8 seconds
-                    plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 20L * respawnSeconds); // /20L ~ 1 second
+                    plugin.getModuleForClass(DelayedTaskService.class).schedule(Timings.wrap(task), 20L * respawnSeconds, entity.getWorld()); // /20L ~ 1 second
                 }
             }
         }
@@ -116,7 +157,6 @@ public class Zombies extends ListenerModule
      * <p/>
      * When a player is damaged by a zombie make him slow
      */
-    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onEntityDamage(EntityDamageEvent event)
     {
         Entity entity = event.getEntity();
@@ -0,0 +1,124 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import java.util.Arrays;
+
+/**
+ * Compact, growable list of packed block coordinates with an int tag per entry.
+ * <p/>
+ * Used to hand the results of a scan back to the main thread without creating a Block object for every entry.
+ *
+ * @author Diemex
+ */
+public class BlockList
+{
+    private long[] keys;
+
+    private int[] tags;
+
+    private int size = 0;
+
+
+    public BlockList()
+    {
+        this(16);
+    }
+
+
+    public BlockList(int capacity)
+    {
+        keys = new long[Math.max(1, capacity)];
+        tags = new int[keys.length];
+    }
+
+
+    /**
+     * Add a block
+     *
+     * @param tag what to do with the block, meaning is up to the scan
+     */
+    public void add(int x, int y, int z, int tag)
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            tags = Arrays.copyOf(tags, size * 2);
+        }
+        keys[size] = CoordHelper.pack(x, y, z);
+        tags[size] = tag;
+        size++;
+    }
+
+
+    /** Add all entries of another list */
+    public void addAll(BlockList other)
+    {
+        for (int i = 0; i < other.size; i++)
+            add(other.getX(i), other.getY(i), other.getZ(i), other.tags[i]);
+    }
+
+
+    public int size()
+    {
+        return size;
+    }
+
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+
+    public int getX(int i)
+    {
+        return CoordHelper.unpackX(keys[i]);
+    }
+
+
+    public int getY(int i)
+    {
+        return CoordHelper.unpackY(keys[i]);
+    }
+
+
+    public int getZ(int i)
+    {
+        return CoordHelper.unpackZ(keys[i]);
+    }
+
+
+    public int getTag(int i)
+    {
+        return tags[i];
+    }
+
+
+    /** Remove all entries */
+    public void clear()
+    {
+        size = 0;
+    }
+}
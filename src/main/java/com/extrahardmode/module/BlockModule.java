@@ -28,6 +28,7 @@ import com.extrahardmode.compatibility.CompatHandler;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
 import com.extrahardmode.service.EHMModule;
+import com.extrahardmode.service.Timings;
 import com.extrahardmode.task.BlockPhysicsCheckTask;
 import org.bukkit.CropState;
 import org.bukkit.Location;
@@ -41,10 +42,7 @@ import org.bukkit.material.Crops;
 import org.bukkit.material.MaterialData;
 import org.bukkit.metadata.FixedMetadataValue;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.*;
 
 /** Module that manages blocks and physics logic. */
 public class BlockModule extends EHMModule
@@ -54,7 +52,15 @@ public class BlockModule extends EHMModule
 
     private RootConfig CFG;
 
-    private final Pattern slabPattern = Pattern.compile("(?!DOUBLE).*STEP");
+    private FallingBlockTracker fallingBlockTracker;
+
+    /** Pending physics checks by World */
+    private final Map<World, PhysicsQueue> physicsQueues = new WeakHashMap<World, PhysicsQueue>();
+
+    /** Works off the physicsQueues every tick */
+    private BlockPhysicsCheckTask physicsTask;
+
+    private int physicsTaskId = -1;
 
 
     /**
@@ -72,11 +78,34 @@ public class BlockModule extends EHMModule
     public void starting()
     {
         CFG = plugin.getModuleForClass(RootConfig.class);
+        fallingBlockTracker = plugin.getModuleForClass(FallingBlockTracker.class);
+        loadMaterialTraits();
+        physicsTask = new BlockPhysicsCheckTask(plugin, physicsQueues);
+        physicsTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("BlockPhysicsCheckTask", physicsTask), 1L, 1L);
+        // check if it was scheduled. If not, notify in console.
+        if (physicsTaskId == -1)
+        {
+            plugin.getLogger().severe("Failed schedule BlockPhysicsCheck task!");
+        }
     }
 
 
     /**
-     * Schedule the physics task
+     * Apply the MaterialTraits overrides of all worlds
+     */
+    private void loadMaterialTraits()
+    {
+        List<String> overrides = new ArrayList<String>();
+        for (String world : CFG.getEnabledWorlds())
+            overrides.addAll(CFG.getStringList(RootNode.MATERIAL_TRAITS, world));
+        for (String invalid : MaterialTraits.load(overrides))
+            plugin.getLogger().warning("Invalid entry in " + RootNode.MATERIAL_TRAITS.getPath() + ": " + invalid);
+    }
+
+
+    /**
+     * Queue a physics check. Checks for the same block get merged and only a limited amount of checks is processed per
+     * tick.
      *
      * @param block          - Target block.
      * @param recursionCount - Number of times to execute.
@@ -85,22 +114,42 @@ public class BlockModule extends EHMModule
      */
     public void physicsCheck(Block block, int recursionCount, boolean forceCheck, int wait)
     {
-        int id = plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new BlockPhysicsCheckTask(plugin, block, recursionCount, forceCheck), wait);
-        // check if it was scheduled. If not, notify in console.
-        if (id == -1)
+        if (physicsTask == null || block.getY() < 0 || block.getY() >= block.getWorld().getMaxHeight())
+            return;
+        PhysicsQueue queue = physicsQueues.get(block.getWorld());
+        if (queue == null)
         {
-            plugin.getLogger().severe("Failed schedule BlockPhysicsCheck task!");
+            queue = new PhysicsQueue();
+            physicsQueues.put(block.getWorld(), queue);
         }
+        queue.add(CoordHelper.pack(block), recursionCount, forceCheck, wait, physicsTask.getCurrentTick());
+    }
+
+
+    /**
+     * Get the amount of queued physics checks in a world
+     *
+     * @param world world to check
+     *
+     * @return amount of pending checks
+     */
+    public int getPendingPhysicsChecks(World world)
+    {
+        PhysicsQueue queue = physicsQueues.get(world);
+        return queue != null ? queue.size() : 0;
     }
 
 
     /**
      * Makes one single block subject to gravity
+     * <p/>
+     * If there are too many of our FallingBlocks in the chunk or world already, the block is moved directly to where it
+     * would land instead.
      *
      * @param block          Block to apply physics to.
      * @param damageEntities if Entities should be damaged
      *
-     * @return the UUID of this FallingBlock
+     * @return the UUID of this FallingBlock, null if the block has been moved without a FallingBlock
      */
     public UUID applyPhysics(Block block, boolean damageEntities)
     {
@@ -112,8 +161,14 @@ public class BlockModule extends EHMModule
         if ((block.getType() == Material.GRASS || block.getType() == Material.MYCEL) && CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_TURN_TO_DIRT, block.getWorld().getName()))
             block.setType(Material.DIRT);
 
-        FallingBlock fallingBlock = block.getWorld().spawnFallingBlock(block.getLocation(), block.getTypeId(), block.getData());
-        fallingBlock.setDropItem(false);
+        final int typeId = block.getTypeId();
+        final byte data = block.getData();
+        FallingBlock fallingBlock = null;
+        if (fallingBlockTracker == null || fallingBlockTracker.hasRoom(block))
+        {
+            fallingBlock = block.getWorld().spawnFallingBlock(block.getLocation(), typeId, data);
+            fallingBlock.setDropItem(false);
+        }
         // remove original block
         CompatHandler.logFallingBlockFall(block);
         block.setType(Material.AIR);
@@ -140,15 +195,49 @@ public class BlockModule extends EHMModule
             }
         }
 
+        if (fallingBlock == null) //over budget, land right away
+        {
+            dropBlock(block, typeId, data);
+            return null;
+        }
+
         if (damageEntities) //mark so we know the block is from us
             EntityHelper.markForProcessing(plugin, fallingBlock);
 
         EntityHelper.markAsOurs(plugin, fallingBlock);
+        if (fallingBlockTracker != null)
+            fallingBlockTracker.track(fallingBlock);
 
         return fallingBlock.getUniqueId();
     }
 
 
+    /**
+     * Move a block straight down to where a FallingBlock would land, without spawning a FallingBlock. The landed block is
+     * logged and checked for physics like a landed FallingBlock of ours.
+     *
+     * @param start  where the block starts to fall
+     * @param typeId type of the block
+     * @param data   data of the block
+     *
+     * @return the block where it landed, null if it broke on the way (e.g. on a torch) or there was no room
+     */
+    public Block dropBlock(Block start, int typeId, byte data)
+    {
+        Block current = start;
+        while (current.getY() > 0 && !current.getRelative(BlockFace.DOWN).getType().isSolid())
+            current = current.getRelative(BlockFace.DOWN);
+        //a FallingBlock breaks if it ends up in a torch etc. and we don't let them drop items
+        if (current.getType().isSolid() || breaksFallingBlock(current.getType()))
+            return null;
+
+        current.setTypeIdAndData(typeId, data, true);
+        CompatHandler.logFallingBlockLand(current.getState());
+        physicsCheck(current.getRelative(BlockFace.DOWN), 10, false, 1);
+        return current;
+    }
+
+
     /**
      * Mark this block for whatever reason
      * <p/>
@@ -328,16 +417,7 @@ public class BlockModule extends EHMModule
      */
     public boolean breaksFallingBlock(Material mat)
     {
-        return (mat.isTransparent() &&
-                mat != Material.PORTAL &&
-                mat != Material.ENDER_PORTAL) ||
-                mat == Material.WEB ||
-                mat == Material.DAYLIGHT_DETECTOR ||
-                mat == Material.TRAP_DOOR ||
-                mat == Material.SIGN_POST ||
-                mat == Material.WALL_SIGN ||
-                //Match all slabs besides double slab
-                slabPattern.matcher(mat.name()).matches();
+        return MaterialTraits.has(mat, MaterialTraits.Trait.BREAKS_FALLING_BLOCK);
     }
 
 
@@ -372,54 +452,28 @@ public class BlockModule extends EHMModule
     /** Is the given material a tool, e.g. doesn't stack */
     public static boolean isTool(Material material)
     {
-        return material.name().endsWith("AXE") //axe & pickaxe
-                || material.name().endsWith("SPADE")
-                || material.name().endsWith("SWORD")
-                || material.name().endsWith("HOE")
-                || material.name().endsWith("BUCKET") //water, milk, lava,..
-                || material.equals(Material.BOW)
-                || material.equals(Material.FISHING_ROD)
-                || material.equals(Material.WATCH)
-                || material.equals(Material.COMPASS)
-                || material.equals(Material.FLINT_AND_STEEL);
+        return MaterialTraits.has(material, MaterialTraits.Trait.TOOL);
     }
 
 
     /** is the given material armor */
     public boolean isArmor(Material material)
     {
-        return material.name().endsWith("HELMET")
-                || material.name().endsWith("CHESTPLATE")
-                || material.name().endsWith("LEGGINGS")
-                || material.name().endsWith("BOOTS");
+        return MaterialTraits.has(material, MaterialTraits.Trait.ARMOR);
     }
 
 
     /** Consider this block a natural block for spawning? */
     public boolean isNaturalSpawnMaterial(Material material)
     {
-        return material == Material.GRASS
-                || material == Material.DIRT
-                || material == Material.STONE
-                || material == Material.SAND
-                || material == Material.GRAVEL
-                || material == Material.MOSSY_COBBLESTONE
-                || material == Material.OBSIDIAN
-                || material == Material.COBBLESTONE
-                || material == Material.BEDROCK
-                || material == Material.AIR      //Ghast, Bat
-                || material == Material.WATER;  //Squid
+        return MaterialTraits.has(material, MaterialTraits.Trait.NATURAL_OVERWORLD_SPAWN);
     }
 
 
     /** Is this a natural block for netherspawning? */
     public boolean isNaturalNetherSpawn(Material material)
     {
-        return material == Material.NETHERRACK
-                || material == Material.NETHER_BRICK
-                || material == Material.SOUL_SAND
-                || material == Material.GRAVEL
-                || material == Material.AIR;
+        return MaterialTraits.has(material, MaterialTraits.Trait.NATURAL_NETHER_SPAWN);
     }
 
 
@@ -485,5 +539,11 @@ public class BlockModule extends EHMModule
 
     @Override
     public void closing()
-    {/*ignored*/}
+    {
+        if (physicsTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(physicsTaskId);
+        physicsTaskId = -1;
+        physicsTask = null;
+        physicsQueues.clear();
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.block.Block;
+
+/**
+ * A scan of a SnapshotArea. The scan runs on a worker thread of the {@link ChunkScanService} and may only read the
+ * snapshots. The blocks it finds are changed on the main thread afterwards.
+ *
+ * @author Diemex
+ */
+public abstract class ChunkScan
+{
+    /**
+     * Find the blocks to change. Runs on a worker thread, don't access the World or any Bukkit objects here.
+     *
+     * @param area   snapshots to read
+     * @param result add the blocks to change to this list
+     */
+    public abstract void scan(SnapshotArea area, BlockList result);
+
+
+    /**
+     * Change a block that has been found. Runs on the main thread. The block might have changed since it was scanned.
+     *
+     * @param block block to change
+     * @param tag   the tag the block was added with
+     */
+    public abstract void apply(Block block, int tag);
+
+
+    /**
+     * Urgent scans are applied in full as soon as they are finished, instead of waiting in line for the blocks per tick
+     * budget behind other scans. Only for scans with a small result that somebody is waiting for, e.g. explosions.
+     *
+     * @return if the result should be applied right away
+     */
+    public boolean isUrgent()
+    {
+        return false;
+    }
+
+
+    /**
+     * Called on the main thread after all blocks have been applied
+     */
+    public void done()
+    {
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.service.EHMModule;
+import com.extrahardmode.service.Timings;
+import org.bukkit.World;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+/**
+ * Runs the read only part of block scans on a pool of worker threads.
+ * <p/>
+ * The chunks are captured as ChunkSnapshots on the main thread, scanned on a worker and the resulting blocks are
+ * changed back on the main thread. Only a limited amount of blocks gets changed per tick, except for urgent scans like
+ * explosions which are applied as soon as they are finished.
+ *
+ * @author Diemex
+ */
+public class ChunkScanService extends EHMModule
+{
+    /** How many blocks to change per tick at most */
+    private static final int CHANGES_PER_TICK = 256;
+
+    private ExecutorService workers;
+
+    /** Scans that have finished on a worker thread */
+    private final Queue<FinishedScan> finished = new ConcurrentLinkedQueue<FinishedScan>();
+
+    /** Scans of which the results are being applied, only accessed by the main thread */
+    private final ArrayDeque<FinishedScan> applying = new ArrayDeque<FinishedScan>();
+
+    private int applyTaskId = -1;
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public ChunkScanService(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        final int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        workers = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            private int count = 0;
+
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "ExtraHardMode-ChunkScan-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        applyTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("ChunkScanService#apply", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                applyFinished();
+            }
+        }), 1L, 1L);
+        // check if it was scheduled. If not, notify in console.
+        if (applyTaskId == -1)
+            plugin.getLogger().severe("Failed schedule ChunkScan task!");
+    }
+
+
+    /**
+     * Scan the area on a worker thread and apply the results on the main thread.
+     *
+     * @param area snapshots captured with {@link SnapshotArea#capture}
+     * @param scan the scan to run
+     */
+    public void submit(final SnapshotArea area, final ChunkScan scan)
+    {
+        if (workers == null) //not started
+            return;
+        try
+        {
+            Runnable task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        BlockList result = new BlockList();
+                        scan.scan(area, result);
+                        finished.add(new FinishedScan(area.getWorld(), scan, result));
+                    } catch (RuntimeException e)
+                    {
+                        plugin.getLogger().severe("Error while scanning chunks");
+                        e.printStackTrace();
+                    }
+                }
+            };
+            workers.execute(Timings.isEnabled() ? Timings.wrap(scan.getClass().getSimpleName() + "#scan", task) : task);
+        } catch (RejectedExecutionException ignored)
+        {   //shutting down
+        }
+    }
+
+
+    /**
+     * Scan the area and apply the results right away on the main thread, for scans which have to be finished in this
+     * tick. The whole result is applied, regardless of how many blocks have been changed in this tick already.
+     *
+     * @param area snapshots captured with {@link SnapshotArea#capture}
+     * @param scan the scan to run
+     */
+    public void runNow(SnapshotArea area, ChunkScan scan)
+    {
+        final BlockList result = new BlockList();
+        scan.scan(area, result);
+        applyAll(area.getWorld(), scan, result);
+    }
+
+
+    /**
+     * Apply the whole result of a scan on the main thread
+     */
+    private static void applyAll(World world, ChunkScan scan, BlockList result)
+    {
+        for (int i = 0; i < result.size(); i++)
+        {
+            final int x = result.getX(i), z = result.getZ(i);
+            // don't load a chunk just to change a block
+            if (world.isChunkLoaded(x >> 4, z >> 4))
+                scan.apply(world.getBlockAt(x, result.getY(i), z), result.getTag(i));
+        }
+        scan.done();
+    }
+
+
+    /**
+     * Apply the results of finished scans, at most {@link #CHANGES_PER_TICK} blocks per tick. {@link
+     * ChunkScan#isUrgent() Urgent} scans are applied in full right away and don't count towards the budget.
+     */
+    private void applyFinished()
+    {
+        FinishedScan scan;
+        while ((scan = finished.poll()) != null)
+        {
+            if (!scan.scan.isUrgent())
+                applying.add(scan);
+            else if (plugin.getServer().getWorld(scan.world.getUID()) != null) //not unloaded in the meantime
+                applyAll(scan.world, scan.scan, scan.result);
+        }
+
+        int budget = CHANGES_PER_TICK;
+        while (budget > 0 && (scan = applying.peek()) != null)
+        {
+            if (plugin.getServer().getWorld(scan.world.getUID()) == null) //unloaded in the meantime
+            {
+                applying.poll();
+                continue;
+            }
+            final BlockList blocks = scan.result;
+            for (; scan.next < blocks.size() && budget > 0; scan.next++, budget--)
+            {
+                final int x = blocks.getX(scan.next), z = blocks.getZ(scan.next);
+                // don't load a chunk just to change a block
+                if (scan.world.isChunkLoaded(x >> 4, z >> 4))
+                    scan.scan.apply(scan.world.getBlockAt(x, blocks.getY(scan.next), z), blocks.getTag(scan.next));
+            }
+            if (scan.next >= blocks.size())
+            {
+                applying.poll();
+                scan.scan.done();
+            }
+        }
+    }
+
+
+    @Override
+    public void closing()
+    {
+        if (applyTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(applyTaskId);
+        applyTaskId = -1;
+        if (workers != null)
+            workers.shutdownNow();
+        workers = null;
+        finished.clear();
+        applying.clear();
+    }
+
+
+    /** A scan of which the results still have to be applied */
+    private static class FinishedScan
+    {
+        final World world;
+
+        final ChunkScan scan;
+
+        final BlockList result;
+
+        /** Index of the next block to apply */
+        int next = 0;
+
+
+        FinishedScan(World world, ChunkScan scan, BlockList result)
+        {
+            this.world = world;
+            this.scan = scan;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.block.Block;
+
+/**
+ * Packs block and chunk coordinates into a single long, so they can be used as keys without creating Location objects.
+ * <pre>
+ * block: x 26 bits | z 26 bits | y 12 bits
+ * chunk: x 32 bits | z 32 bits
+ * </pre>
+ *
+ * @author Diemex
+ */
+public class CoordHelper
+{
+    private static final long MASK_XZ = (1L << 26) - 1;
+
+    private static final long MASK_Y = (1L << 12) - 1;
+
+
+    /**
+     * Pack the coordinates of a block
+     *
+     * @return key unique per block in a world
+     */
+    public static long pack(int x, int y, int z)
+    {
+        return (x & MASK_XZ) << 38 | (z & MASK_XZ) << 12 | (y & MASK_Y);
+    }
+
+
+    /** Pack the coordinates of the given block */
+    public static long pack(Block block)
+    {
+        return pack(block.getX(), block.getY(), block.getZ());
+    }
+
+
+    /** Get the x coordinate of a packed block */
+    public static int unpackX(long key)
+    {
+        return (int) (key >> 38);
+    }
+
+
+    /** Get the y coordinate of a packed block */
+    public static int unpackY(long key)
+    {
+        return (int) (key & MASK_Y);
+    }
+
+
+    /** Get the z coordinate of a packed block */
+    public static int unpackZ(long key)
+    {
+        return (int) (key << 26 >> 38);
+    }
+
+
+    /**
+     * Pack the coordinates of a chunk
+     *
+     * @return key unique per chunk in a world
+     */
+    public static long packChunk(int chunkX, int chunkZ)
+    {
+        return (long) chunkX << 32 | (chunkZ & 0xFFFFFFFFL);
+    }
+
+
+    /** Get the x coordinate of a packed chunk */
+    public static int unpackChunkX(long key)
+    {
+        return (int) (key >> 32);
+    }
+
+
+    /** Get the z coordinate of a packed chunk */
+    public static int unpackChunkZ(long key)
+    {
+        return (int) key;
+    }
+}
@@ -19,32 +19,47 @@
  * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.extrahardmode.module;
 
 
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
-import com.extrahardmode.config.messages.MessageNode;
-import com.extrahardmode.service.EHMModule;
+import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
-/** Manages miscellaneous data. */
-public class DataStoreModule extends EHMModule
+/**
+ * Manages miscellaneous data.
+ * <p/>
+ * PlayerData is keyed by the UUID of the Player. It is created when the Player joins and forgotten {@link
+ * #GRACE_PERIOD} milliseconds after he left, so a quick relog keeps the data but the store doesn't grow with every
+ * Player that ever visited the server.
+ */
+public class DataStoreModule extends ListenerModule
 {
+    /** Milliseconds to keep the data of a Player who left, in case he comes back */
+    public static final long GRACE_PERIOD = 5L * 60 * 1000;
 
-    /** In-memory cache for player data */
-    private final Map<String, PlayerData> playerNameToPlayerDataMap = new ConcurrentHashMap<String, PlayerData>();
+    /** How often to look for data of Players who left, in ticks */
+    private final long purgeInterval = 20L * 60;
 
-    /** List of previous locations. */
-    private final List<SimpleEntry<Player, Location>> previousLocations = new CopyOnWriteArrayList<SimpleEntry<Player, Location>>();
+    private int purgeTaskId = -1;
+
+    /** In-memory cache for player data */
+    private final Map<UUID, PlayerData> players = new ConcurrentHashMap<UUID, PlayerData>();
 
     /** List of Players fighting the dragon */
     private final List<String> playersFightingDragon = new ArrayList<String>();
@@ -80,51 +95,137 @@ public class DataStoreModule extends EHMModule
     @Override
     public void starting()
     {
+        super.starting();
         CFG = plugin.getModuleForClass(RootConfig.class);
+        //players who are already online after a reload
+        for (Player player : plugin.getServer().getOnlinePlayers())
+            join(player);
+        purgeTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("DataStoreModule#purge", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                purge(System.currentTimeMillis());
+            }
+        }), purgeInterval, purgeInterval);
     }
 
 
     @Override
     public void closing()
     {
-        playerNameToPlayerDataMap.clear();
-        previousLocations.clear();
+        super.closing();
+        if (purgeTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(purgeTaskId);
+        purgeTaskId = -1;
+        players.clear();
         playersFightingDragon.clear();
     }
 
 
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(PlayerJoinEvent event)
+    {
+        join(event.getPlayer());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event)
+    {
+        quit(event.getPlayer(), System.currentTimeMillis());
+    }
+
+
+    /**
+     * Create the data of a Player who joined or take back the data he had before he left
+     *
+     * @return data of the Player
+     */
+    public PlayerData join(Player player)
+    {
+        PlayerData playerData = getPlayerData(player);
+        playerData.quitAt = 0;
+        playerData.moreMonstersLocation = null;
+        return playerData;
+    }
+
+
+    /**
+     * Mark the data of a Player who left, it will be purged after the grace period
+     *
+     * @param now time the Player left in milliseconds
+     */
+    public void quit(Player player, long now)
+    {
+        PlayerData playerData = players.get(player.getUniqueId());
+        if (playerData != null)
+        {
+            playerData.quitAt = now;
+            playerData.messageThrottle = null;
+            //don't greet him with a monster where he logged out
+            playerData.moreMonstersLocation = null;
+        }
+    }
+
+
+    /**
+     * Forget the data of Players who left longer than {@link #GRACE_PERIOD} ago
+     *
+     * @param now current time in milliseconds
+     *
+     * @return amount of Players whose data has been removed
+     */
+    public int purge(long now)
+    {
+        int removed = 0;
+        Iterator<PlayerData> iter = players.values().iterator();
+        while (iter.hasNext())
+        {
+            PlayerData playerData = iter.next();
+            if (playerData.quitAt != 0 && now - playerData.quitAt > GRACE_PERIOD)
+            {
+                iter.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+
     /**
      * Retrieves player data from memory
+     * <p/>
+     * This is a lookup in a map by UUID, there is no handle attached to the Player. Keep the returned object around
+     * instead of looking it up again, it stays valid as long as the Player is online.
      *
-     * @param playerName - Name of player.
+     * @param player - Player to get the data for.
      *
      * @return PlayerData associated with it.
      */
-    public PlayerData getPlayerData(String playerName)
+    public PlayerData getPlayerData(Player player)
     {
-        // first, look in memory
-        PlayerData playerData = this.playerNameToPlayerDataMap.get(playerName);
+        UUID id = player.getUniqueId();
+        PlayerData playerData = players.get(id);
 
-        // if not there, create a fresh entry
+        // if not there (joined before we were enabled), create a fresh entry
         if (playerData == null)
         {
             playerData = new PlayerData();
-            this.playerNameToPlayerDataMap.put(playerName, playerData);
+            if (!player.isOnline()) //purge it again
+                playerData.quitAt = System.currentTimeMillis();
+            players.put(id, playerData);
         }
-
-        // try the hash map again. if it's STILL not there, we have a bug to fix
-        return this.playerNameToPlayerDataMap.get(playerName);
+        return playerData;
     }
 
 
     /**
-     * Get the list of previous locations of players.
-     *
-     * @return List of players to location entries.
+     * Amount of Players we keep data for, including those who left within the grace period
      */
-    public List<SimpleEntry<Player, Location>> getPreviousLocations()
+    public int size()
     {
-        return previousLocations;
+        return players.size();
     }
 
 
@@ -142,16 +243,27 @@ public class DataStoreModule extends EHMModule
     /** Holds all of ExtraHardMode's player-tied data */
     public class PlayerData
     {
-        /** Last message sent. */
-        public MessageNode lastMessageSent = null;
+        /** If player is in debugmode */
+        public boolean inDebug = false;
 
-        /** Last message timestamp. */
-        public long lastMessageTimestamp = 0;
+        /** Location saved by the MoreMonstersTask, a monster will spawn here when it's this player's turn again */
+        public Location moreMonstersLocation = null;
 
-        /** Cached weight */
-        public float cachedWeightStatus = -1.0F; //player can't have negative invetory....
+        /** When the Player left in milliseconds, 0 while he is online */
+        private long quitAt = 0;
 
-        /** If player is in debugmode */
-        public boolean inDebug = false;
+        /** When which message has been shown last, released when the Player leaves */
+        private MessageThrottle messageThrottle = null;
+
+
+        /**
+         * Get the message timeouts of this Player
+         */
+        public MessageThrottle getMessageThrottle()
+        {
+            if (messageThrottle == null)
+                messageThrottle = new MessageThrottle();
+            return messageThrottle;
+        }
     }
 }
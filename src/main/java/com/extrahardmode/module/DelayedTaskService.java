@@ -0,0 +1,190 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.TimingWheel;
+import com.extrahardmode.service.Timings;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Runs our delayed world effects (zombie respawns, web cleanup, dragon attacks, falling logs ...) from one {@link
+ * TimingWheel} which is driven by a single repeating task, instead of scheduling one Bukkit task per effect.
+ * <p/>
+ * Effects are scheduled with the Entity or World they belong to. The effects of an Entity are dropped when it dies and
+ * skipped if it despawned, all effects of a World are dropped when it unloads and all pending effects are dropped when
+ * the plugin gets disabled.
+ *
+ * @author Diemex
+ */
+public class DelayedTaskService extends ListenerModule
+{
+    /** Buckets of the wheel, 512 ticks are about 25 seconds */
+    private static final int SLOTS = 512;
+
+    private final TimingWheel wheel = new TimingWheel(SLOTS);
+
+    private int tickTaskId = -1;
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public DelayedTaskService(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        tickTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("DelayedTaskService#tick", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                wheel.tick();
+            }
+        }), 1L, 1L);
+        // check if it was scheduled. If not, notify in console.
+        if (tickTaskId == -1)
+            plugin.getLogger().severe("Failed schedule DelayedTaskService task!");
+    }
+
+
+    /**
+     * Run a task that belongs to an Entity. It will be cancelled when the Entity dies or its World unloads and doesn't
+     * run if the Entity despawned or has been removed in the meantime.
+     *
+     * @param task  task to run, wrap it with {@link Timings#wrap(Runnable)} to record it
+     * @param delay ticks to wait, at least 1
+     * @param owner Entity the task belongs to
+     */
+    public void schedule(final Runnable task, long delay, final Entity owner)
+    {
+        wheel.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                //there is no event when an Entity despawns or gets removed
+                if (owner.isValid())
+                    task.run();
+            }
+        }, delay, owner, owner.getWorld());
+    }
+
+
+    /**
+     * Run a task that changes a Block. It will be cancelled with the World of the Block.
+     *
+     * @param task  task to run
+     * @param delay ticks to wait, at least 1
+     * @param block Block the task changes
+     */
+    public void schedule(Runnable task, long delay, Block block)
+    {
+        wheel.schedule(task, delay, null, block.getWorld());
+    }
+
+
+    /**
+     * Run a task that affects a World. It will be cancelled when the World unloads.
+     *
+     * @param task  task to run
+     * @param delay ticks to wait, at least 1
+     * @param world World the task affects
+     */
+    public void schedule(Runnable task, long delay, World world)
+    {
+        wheel.schedule(task, delay, null, world);
+    }
+
+
+    /**
+     * Cancel all pending tasks of an Entity or World
+     *
+     * @param ownerOrWorld Entity or World
+     *
+     * @return amount of cancelled tasks
+     */
+    public int cancel(Object ownerOrWorld)
+    {
+        return wheel.cancel(ownerOrWorld);
+    }
+
+
+    /**
+     * Amount of pending tasks
+     */
+    public int getPending()
+    {
+        return wheel.size();
+    }
+
+
+    /**
+     * Amount of tasks due in the busiest tick
+     */
+    public int getMaxPendingPerTick()
+    {
+        return wheel.getMaxBucketSize();
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        wheel.cancel(event.getEntity());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event)
+    {
+        wheel.cancel(event.getWorld());
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        if (tickTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(tickTaskId);
+        tickTaskId = -1;
+        wheel.clear();
+    }
+}
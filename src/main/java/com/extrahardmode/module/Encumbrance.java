@@ -0,0 +1,166 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+/**
+ * The weight of the inventory of one Player, split into worn armor, tools and the fill level of all other stacks.
+ * <p/>
+ * Remembers the type and amount in every slot, so an update only has to recalculate slots that changed. The weight can
+ * then be calculated for any amount of points per armor/tool/stack in constant time.
+ *
+ * @author Diemex
+ */
+public class Encumbrance
+{
+    /** Type id and amount per slot to detect changed slots */
+    private int[] contentTypes = new int[0], contentAmounts = new int[0];
+
+    private final int[] armorTypes = new int[4];
+
+    /** What each slot contributes to the totals */
+    private float[] stackFill = new float[0];
+
+    private boolean[] tool = new boolean[0];
+
+    /** Totals */
+    private int armorCount = 0, toolCount = 0;
+
+    private float fullStacks = 0.0F;
+
+
+    /**
+     * Compare all slots with the inventory and apply the differences
+     *
+     * @param inventory the current inventory
+     *
+     * @return how many slots changed
+     */
+    public int update(PlayerInventory inventory)
+    {
+        int changed = 0;
+
+        ItemStack[] armor = inventory.getArmorContents();
+        for (int i = 0; i < armorTypes.length && i < armor.length; i++)
+        {
+            final int type = typeOf(armor[i]);
+            if (type != armorTypes[i])
+            {
+                armorCount += (type != 0 ? 1 : 0) - (armorTypes[i] != 0 ? 1 : 0);
+                armorTypes[i] = type;
+                changed++;
+            }
+        }
+
+        ItemStack[] contents = inventory.getContents();
+        if (contents.length != contentTypes.length)
+            resize(contents.length);
+        for (int i = 0; i < contents.length; i++)
+        {
+            final int type = typeOf(contents[i]);
+            final int amount = type != 0 ? contents[i].getAmount() : 0;
+            if (type == contentTypes[i] && amount == contentAmounts[i])
+                continue;
+
+            //remove the old contribution of the slot
+            if (tool[i])
+                toolCount--;
+            fullStacks -= stackFill[i];
+
+            contentTypes[i] = type;
+            contentAmounts[i] = amount;
+            tool[i] = type != 0 && isTool(type);
+            stackFill[i] = type != 0 && !tool[i] ? (float) amount / maxStackSize(type) : 0.0F;
+
+            if (tool[i])
+                toolCount++;
+            fullStacks += stackFill[i];
+            changed++;
+        }
+        return changed;
+    }
+
+
+    private void resize(int size)
+    {
+        contentTypes = new int[size];
+        contentAmounts = new int[size];
+        stackFill = new float[size];
+        tool = new boolean[size];
+        toolCount = 0;
+        fullStacks = 0.0F;
+    }
+
+
+    /**
+     * Calculate the weight
+     *
+     * @param armorPoints     Points per piece of worn armor
+     * @param inventoryPoints Points per full stack of one item
+     * @param toolPoints      Points per tool (which doesn't stack)
+     */
+    public float getWeight(float armorPoints, float inventoryPoints, float toolPoints)
+    {
+        return armorCount * armorPoints + toolCount * toolPoints + fullStacks * inventoryPoints;
+    }
+
+
+    private static int typeOf(ItemStack stack)
+    {
+        return stack != null ? stack.getTypeId() : 0;
+    }
+
+
+    /* Lookup tables by Material id */
+
+    private static final int[] MAX_STACK_SIZES;
+
+
+    static
+    {
+        int maxId = 0;
+        for (Material material : Material.values())
+            maxId = Math.max(maxId, material.getId());
+        MAX_STACK_SIZES = new int[maxId + 1];
+        for (Material material : Material.values())
+            MAX_STACK_SIZES[material.getId()] = material.getMaxStackSize();
+    }
+
+
+    /** Is the item with this type id a tool */
+    public static boolean isTool(int typeId)
+    {
+        return MaterialTraits.has(typeId, MaterialTraits.Trait.TOOL);
+    }
+
+
+    /** Max stack size of the item with the given type id, 64 for unknown ids */
+    public static int maxStackSize(int typeId)
+    {
+        return typeId >= 0 && typeId < MAX_STACK_SIZES.length && MAX_STACK_SIZES[typeId] > 0 ? MAX_STACK_SIZES[typeId] : 64;
+    }
+}
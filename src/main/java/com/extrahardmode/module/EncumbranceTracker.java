@@ -0,0 +1,244 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.service.ListenerModule;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of how heavy the inventory of every online Player is.
+ * <p/>
+ * Inventory events only mark a Player as changed, the changed slots get applied one tick later when the inventory has
+ * actually changed. Getting the weight is a lookup.
+ *
+ * @author Diemex
+ */
+public class EncumbranceTracker extends ListenerModule
+{
+    /** Weight of the online Players by name */
+    private final Map<String, Encumbrance> weights = new HashMap<String, Encumbrance>();
+
+    /** Players of which the inventory changed this tick */
+    private final Set<Player> changed = new LinkedHashSet<Player>();
+
+    private int updateTaskId = -1;
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public EncumbranceTracker(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        for (Player player : plugin.getServer().getOnlinePlayers())
+            getEncumbrance(player);
+    }
+
+
+    /**
+     * Get the weight of the inventory of a Player
+     *
+     * @param armorPoints     Points per piece of worn armor
+     * @param inventoryPoints Points per full stack of one item
+     * @param toolPoints      Points per tool (which doesn't stack)
+     */
+    public float getWeight(Player player, float armorPoints, float inventoryPoints, float toolPoints)
+    {
+        return getEncumbrance(player).getWeight(armorPoints, inventoryPoints, toolPoints);
+    }
+
+
+    private Encumbrance getEncumbrance(Player player)
+    {
+        Encumbrance encumbrance = weights.get(player.getName());
+        if (encumbrance == null)
+        {
+            encumbrance = new Encumbrance();
+            encumbrance.update(player.getInventory());
+            weights.put(player.getName(), encumbrance);
+        }
+        return encumbrance;
+    }
+
+
+    /**
+     * Update the weight of the Player in the next tick, after the inventory has changed
+     */
+    private void markChanged(Player player)
+    {
+        changed.add(player);
+        if (updateTaskId == -1)
+        {
+            updateTaskId = plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    updateTaskId = -1;
+                    for (Player player : changed)
+                    {
+                        Encumbrance encumbrance = weights.get(player.getName());
+                        if (encumbrance != null && player.isOnline())
+                            encumbrance.update(player.getInventory());
+                    }
+                    changed.clear();
+                }
+            });
+        }
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event)
+    {
+        getEncumbrance(event.getPlayer());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event)
+    {
+        weights.remove(event.getPlayer().getName());
+        changed.remove(event.getPlayer());
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onPlayerDropItem(PlayerDropItemEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onPlayerPickupItem(PlayerPickupItemEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onInventoryClick(InventoryClickEvent event)
+    {
+        HumanEntity humanEntity = event.getWhoClicked();
+        if (humanEntity instanceof Player)
+            markChanged((Player) humanEntity);
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onInventoryDrag(InventoryDragEvent event)
+    {
+        HumanEntity humanEntity = event.getWhoClicked();
+        if (humanEntity instanceof Player)
+            markChanged((Player) humanEntity);
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBlockPlace(BlockPlaceEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onItemConsume(PlayerItemConsumeEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onItemBreak(PlayerItemBreakEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    /**
+     * Buckets get filled/emptied
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBucketFill(PlayerBucketFillEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onBucketEmpty(PlayerBucketEmptyEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDeath(PlayerDeathEvent event)
+    {
+        markChanged(event.getEntity());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event)
+    {
+        markChanged(event.getPlayer());
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        if (updateTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(updateTaskId);
+        updateTaskId = -1;
+        weights.clear();
+        changed.clear();
+    }
+}
@@ -27,32 +27,57 @@ import com.extrahardmode.compatibility.CompatHandler;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.*;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.metadata.FixedMetadataValue;
-import org.bukkit.metadata.MetadataValue;
 import org.bukkit.plugin.Plugin;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /** Module that contains logic dealing with entities. */
 public class EntityHelper
 {
 
-    /** Getter for environmental damage for the specified entity */
-    private static final String IGNORE = "extrahardmode.ignore.me";
+    /** Flags and counters of Entities */
+    private static final EntityStateStore STATES = new EntityStateStore();
 
-    /** Getter to set a flag to ignore a entity in further processing */
-    private static final String ENVIRONMENTAL_DAMAGE = "extrahard_environmentalDamage";
 
-    /** Process this Entity */
-    private static final String PROCESS_ENTITY = "extrahardmode_process_entity";
+    /** Players of each world by chunk, filled by the {@link PlayerGridModule}. Only accessed from the main thread */
+    private static final Map<String, PlayerGrid> GRIDS = new HashMap<String, PlayerGrid>();
 
-    /** Our Entity - created by us */
-    private static final String OURS = "extrahardmode_our_entity";
+
+    /** Get the store which holds the flags and counters of all Entities */
+    public static EntityStateStore getStates()
+    {
+        return STATES;
+    }
+
+
+    /**
+     * Get the grid of the players in the world, creates an empty grid if the world has none yet
+     */
+    public static PlayerGrid getPlayerGrid(World world)
+    {
+        PlayerGrid grid = GRIDS.get(world.getName());
+        if (grid == null)
+        {
+            grid = new PlayerGrid();
+            GRIDS.put(world.getName(), grid);
+        }
+        return grid;
+    }
+
+
+    /** Remove the grids of all worlds */
+    public static void clearPlayerGrids()
+    {
+        GRIDS.clear();
+    }
 
 
     /**
@@ -62,7 +87,7 @@ public class EntityHelper
      */
     public static void markLootLess(Plugin plugin, LivingEntity entity)
     {
-        entity.setMetadata(ENVIRONMENTAL_DAMAGE, new FixedMetadataValue(plugin, ((Damageable)entity).getMaxHealth()));
+        STATES.getOrCreate(entity).environmentalDamage = ((Damageable) entity).getMaxHealth();
     }
 
 
@@ -74,11 +99,7 @@ public class EntityHelper
      */
     public static void addEnvironmentalDamage(Plugin plugin, LivingEntity entity, double damage)
     {
-        double currentTotalDamage = 0.0;
-        List<MetadataValue> meta = entity.getMetadata(ENVIRONMENTAL_DAMAGE);
-        if (meta.size() > 0)
-            currentTotalDamage = meta.get(0).asDouble();
-        entity.setMetadata(ENVIRONMENTAL_DAMAGE, new FixedMetadataValue(plugin, currentTotalDamage + damage));
+        STATES.getOrCreate(entity).environmentalDamage += damage;
     }
 
 
@@ -91,10 +112,8 @@ public class EntityHelper
      */
     public static boolean isLootLess(LivingEntity entity)
     {
-        double currentTotalDamage = 0.0;
-        List<MetadataValue> meta = entity.getMetadata(ENVIRONMENTAL_DAMAGE);
-        if (meta.size() > 0)
-            currentTotalDamage = meta.get(0).asDouble();
+        EntityState state = STATES.get(entity);
+        double currentTotalDamage = state != null ? state.environmentalDamage : 0.0;
         // wither is exempt. he can't be farmed because creating him requires combining non-farmable components
         return !(entity instanceof Wither) && (currentTotalDamage > ((Damageable)entity).getMaxHealth() / 2.0);
     }
@@ -125,14 +144,14 @@ public class EntityHelper
     public static void flagIgnore(Plugin plugin, Entity entity)
     {
         if (entity != null)
-            entity.setMetadata(IGNORE, new FixedMetadataValue(plugin, true));
+            STATES.setFlag(entity, EntityState.IGNORE);
     }
 
 
     /** Check if an entity has been flagged to be ignored */
     public static boolean hasFlagIgnore(Entity entity)
     {
-        return entity != null && entity.hasMetadata(IGNORE);
+        return entity != null && STATES.hasFlag(entity, EntityState.IGNORE);
     }
 
 
@@ -140,9 +159,7 @@ public class EntityHelper
     public static void markForProcessing(Plugin plugin, Entity entity)
     {
         Validate.notNull(entity, "Entity can't be null");
-        {
-            entity.setMetadata(PROCESS_ENTITY, new FixedMetadataValue(plugin, true));
-        }
+        STATES.setFlag(entity, EntityState.PROCESS);
     }
 
 
@@ -150,9 +167,7 @@ public class EntityHelper
     public static boolean isMarkedForProcessing(Entity entity)
     {
         Validate.notNull(entity, "Entity can't be null");
-        List<MetadataValue> meta = entity.getMetadata(PROCESS_ENTITY);
-
-        return entity.hasMetadata(PROCESS_ENTITY) && meta != null;
+        return STATES.hasFlag(entity, EntityState.PROCESS);
     }
 
 
@@ -160,9 +175,7 @@ public class EntityHelper
     public static void markAsOurs(Plugin plugin, Entity entity)
     {
         Validate.notNull(entity, "Entity can't be null");
-        {
-            entity.setMetadata(OURS, new FixedMetadataValue(plugin, true));
-        }
+        STATES.setFlag(entity, EntityState.OURS);
     }
 
 
@@ -170,9 +183,7 @@ public class EntityHelper
     public static boolean isMarkedAsOurs(Entity entity)
     {
         Validate.notNull(entity, "Entity can't be null");
-        List<MetadataValue> meta = entity.getMetadata(PROCESS_ENTITY);
-
-        return entity.hasMetadata(OURS) && meta != null;
+        return STATES.hasFlag(entity, EntityState.OURS);
     }
 
 
@@ -224,7 +235,7 @@ public class EntityHelper
             }
         }
         // no spawning on steps, stairs and transparent blocks
-        if (playerBlock.getType().name().endsWith("STEP") || playerBlock.getType().name().endsWith("STAIRS")
+        if (MaterialTraits.hasAny(playerBlock.getType(), MaterialTraits.Trait.SLAB.getMask() | MaterialTraits.Trait.STAIRS.getMask())
                 || playerBlock.getType().isTransparent() || !playerBlock.getType().isOccluding() || playerBlock.getType().equals(Material.AIR))
         {
             // don't spawn here
@@ -302,6 +313,11 @@ public class EntityHelper
      */
     public static boolean arePlayersNearby(Location loc, double distance)
     {
+        PlayerGrid grid = GRIDS.get(loc.getWorld().getName());
+        if (grid != null)
+            return grid.anyWithin(loc, distance);
+
+        //Players aren't tracked, e.g. the world has been loaded after startup and nobody entered it yet
         double squared = Math.pow(distance, 2.0);
         List<Player> otherEntities = loc.getWorld().getPlayers();
         for (Player player : otherEntities)
@@ -0,0 +1,143 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.entity.Entity;
+
+import java.util.Arrays;
+
+/**
+ * State we keep about an Entity, stored in the {@link EntityStateStore}.
+ *
+ * @author Diemex
+ */
+public class EntityState
+{
+    /** Ignore this Entity in further processing. E.g if an event could be called multiple times */
+    public static final int IGNORE = 1;
+
+    /** Process this Entity */
+    public static final int PROCESS = 1 << 1;
+
+    /** Our Entity - created by us */
+    public static final int OURS = 1 << 2;
+
+    /** Entity has been summoned by another Entity */
+    public static final int MINION = 1 << 3;
+
+    private final Entity entity;
+
+    private int flags = 0;
+
+    /** Environmental damage taken, used to determine if a mob drops loot */
+    public double environmentalDamage = 0.0;
+
+    /** How often a zombie has respawned */
+    public int respawnCount = 0;
+
+    /** How often a blaze has split */
+    public int splitCount = 0;
+
+    /** How many minions have been summoned in total, including dead ones */
+    public int totalMinions = 0;
+
+    /** Entity id of the summoner of this minion, -1 if none */
+    public int summonerId = -1;
+
+    /** Entity ids of the minions which are alive */
+    private int[] minions = null;
+
+    private int minionCount = 0;
+
+
+    EntityState(Entity entity)
+    {
+        this.entity = entity;
+    }
+
+
+    /** The Entity this state belongs to */
+    public Entity getEntity()
+    {
+        return entity;
+    }
+
+
+    public boolean hasFlag(int flag)
+    {
+        return (flags & flag) != 0;
+    }
+
+
+    public void setFlag(int flag)
+    {
+        flags |= flag;
+    }
+
+
+    public void clearFlag(int flag)
+    {
+        flags &= ~flag;
+    }
+
+
+    /** Add a minion summoned by this Entity and increase the total count */
+    public void addMinion(int minionId)
+    {
+        if (minions == null)
+            minions = new int[4];
+        else if (minionCount == minions.length)
+            minions = Arrays.copyOf(minions, minionCount * 2);
+        minions[minionCount++] = minionId;
+        totalMinions++;
+    }
+
+
+    /** Remove a minion, e.g. after it died */
+    public void removeMinion(int minionId)
+    {
+        for (int i = 0; i < minionCount; i++)
+        {
+            if (minions[i] == minionId)
+            {
+                minions[i] = minions[--minionCount];
+                return;
+            }
+        }
+    }
+
+
+    /** How many minions of this Entity are alive */
+    public int getMinionCount()
+    {
+        return minionCount;
+    }
+
+
+    /** Get the id of a minion, index has to be smaller than {@link #getMinionCount()} */
+    public int getMinion(int index)
+    {
+        return minions[index];
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+/**
+ * Removes the states of Entities from the {@link EntityStateStore} when they die or get unloaded.
+ *
+ * @author Diemex
+ */
+public class EntityStateModule extends ListenerModule
+{
+    /** How often to purge the states of Entities that disappeared without an event in ticks */
+    private final long purgeInterval = 20L * 60;
+
+    private int purgeTaskId = -1;
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public EntityStateModule(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        purgeTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("EntityStateModule#purge", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                EntityHelper.getStates().purgeInvalid();
+            }
+        }), purgeInterval, purgeInterval);
+    }
+
+
+    /**
+     * Other handlers still get to read the state of the dead Entity
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        EntityHelper.getStates().remove(event.getEntity());
+    }
+
+
+    /**
+     * FallingBlocks turning back into blocks
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockLand(EntityChangeBlockEvent event)
+    {
+        if (event.getEntity() instanceof FallingBlock)
+            EntityHelper.getStates().remove(event.getEntity());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event)
+    {
+        EntityStateStore states = EntityHelper.getStates();
+        for (Entity entity : event.getChunk().getEntities())
+            states.remove(entity);
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        if (purgeTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(purgeTaskId);
+        purgeTaskId = -1;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.entity.Entity;
+
+import java.util.*;
+
+/**
+ * Keeps flags and counters about Entities keyed by their entity id. Also links minions to the Entity that summoned
+ * them, in both directions, so they can be looked up without going through all Entities of a World.
+ * <p/>
+ * Replaces Bukkit's metadata which goes through a String keyed store and creates Lists on every lookup. Only to be
+ * accessed from the main thread. States have to be removed when the Entity dies or gets unloaded, see
+ * {@link EntityStateModule}.
+ *
+ * @author Diemex
+ */
+public class EntityStateStore
+{
+    private final Map<Integer, EntityState> states = new HashMap<Integer, EntityState>();
+
+
+    /**
+     * Get the state of an Entity
+     *
+     * @return state or null if nothing has been stored for this Entity
+     */
+    public EntityState get(Entity entity)
+    {
+        return states.get(entity.getEntityId());
+    }
+
+
+    /**
+     * Get the state by entity id
+     *
+     * @return state or null if nothing has been stored for this Entity
+     */
+    public EntityState get(int entityId)
+    {
+        return states.get(entityId);
+    }
+
+
+    /**
+     * Get the state of an Entity, creates an empty state if there is none
+     */
+    public EntityState getOrCreate(Entity entity)
+    {
+        EntityState state = states.get(entity.getEntityId());
+        if (state == null)
+        {
+            state = new EntityState(entity);
+            states.put(entity.getEntityId(), state);
+        }
+        return state;
+    }
+
+
+    /** Check if an Entity has the given flag */
+    public boolean hasFlag(Entity entity, int flag)
+    {
+        EntityState state = states.get(entity.getEntityId());
+        return state != null && state.hasFlag(flag);
+    }
+
+
+    /** Set the given flag on an Entity */
+    public void setFlag(Entity entity, int flag)
+    {
+        getOrCreate(entity).setFlag(flag);
+    }
+
+
+    /**
+     * Link a minion to the Entity that summoned it
+     *
+     * @param summoner entity that summoned the minion
+     * @param minion   summoned minion
+     */
+    public void link(Entity summoner, Entity minion)
+    {
+        EntityState minionState = getOrCreate(minion);
+        if (minionState.summonerId != -1) //only one summoner at a time
+        {
+            EntityState previous = states.get(minionState.summonerId);
+            if (previous != null)
+                previous.removeMinion(minion.getEntityId());
+        }
+        minionState.summonerId = summoner.getEntityId();
+        getOrCreate(summoner).addMinion(minion.getEntityId());
+    }
+
+
+    /**
+     * Get the Entity that summoned this minion
+     *
+     * @return summoner or null if it has none or it is gone
+     */
+    public Entity getSummoner(Entity minion)
+    {
+        EntityState state = states.get(minion.getEntityId());
+        EntityState summoner = state != null && state.summonerId != -1 ? states.get(state.summonerId) : null;
+        return summoner != null ? summoner.getEntity() : null;
+    }
+
+
+    /**
+     * Get the minions summoned by an Entity that are still alive
+     *
+     * @param summoner entity that summoned the minions
+     *
+     * @return the minions, empty if none
+     */
+    public List<Entity> getMinions(Entity summoner)
+    {
+        EntityState state = states.get(summoner.getEntityId());
+        if (state == null || state.getMinionCount() == 0)
+            return Collections.emptyList();
+        List<Entity> minions = new ArrayList<Entity>(state.getMinionCount());
+        for (int i = 0; i < state.getMinionCount(); i++)
+        {
+            EntityState minion = states.get(state.getMinion(i));
+            if (minion != null)
+                minions.add(minion.getEntity());
+        }
+        return minions;
+    }
+
+
+    /**
+     * Remove the state of an Entity, it gets unlinked from its summoner and minions
+     *
+     * @return the removed state or null
+     */
+    public EntityState remove(Entity entity)
+    {
+        EntityState state = states.remove(entity.getEntityId());
+        if (state != null)
+            unlink(entity.getEntityId(), state);
+        return state;
+    }
+
+
+    /**
+     * Remove the links between a removed state and its summoner and minions
+     */
+    private void unlink(int entityId, EntityState state)
+    {
+        if (state.summonerId != -1)
+        {
+            EntityState summoner = states.get(state.summonerId);
+            if (summoner != null)
+                summoner.removeMinion(entityId);
+        }
+        for (int i = 0; i < state.getMinionCount(); i++)
+        {
+            EntityState minion = states.get(state.getMinion(i));
+            if (minion != null)
+                minion.summonerId = -1;
+        }
+    }
+
+
+    /**
+     * Remove the states of Entities which have died or despawned without us noticing
+     *
+     * @return number of removed states
+     */
+    public int purgeInvalid()
+    {
+        int removed = 0;
+        Iterator<Map.Entry<Integer, EntityState>> iter = states.entrySet().iterator();
+        while (iter.hasNext())
+        {
+            Map.Entry<Integer, EntityState> entry = iter.next();
+            if (!entry.getValue().getEntity().isValid())
+            {
+                iter.remove();
+                unlink(entry.getKey(), entry.getValue());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+
+    /** How many Entities have a state */
+    public int size()
+    {
+        return states.size();
+    }
+
+
+    /** Remove all states */
+    public void clear()
+    {
+        states.clear();
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.events.fakeevents.FakeEntityExplodeEvent;
+import com.extrahardmode.features.Explosions;
+import com.extrahardmode.service.EHMModule;
+import com.extrahardmode.service.Timings;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Collects the custom explosions which overlap each other in one tick and creates them together in the next tick. An
+ * explosion which overlaps nothing requested before it in the same tick is created right away, so a single creeper or
+ * fireball explodes within its event just like before.
+ * <p/>
+ * Explosions whose blast spheres overlap are grouped into a cluster. The rays of all explosions of a cluster are traced
+ * by one {@link ExplosionScan} against the same snapshots, the union of the blocks they reach is then removed, thrown
+ * and checked for physics in one pass. Every explosion keeps its own EntityExplodeEvent with the blocks it destroys,
+ * so a TNT cannon destroys as much as the TNT would on its own. Entities are still damaged by vanilla.
+ * <p/>
+ * Clusters are scanned on the main thread, single explosions are left to vanilla. If {@link RootNode#EXPLOSIONS_ASYNC}
+ * is enabled all explosions which damage the world are scanned on a worker of the {@link ChunkScanService} and only
+ * the result is applied on the main thread. Flying blocks and loosening follow {@link Explosions#hasExplosionPhysics}
+ * either way, the option only changes where the work runs.
+ *
+ * @author Diemex
+ */
+public class ExplosionBatcher extends EHMModule
+{
+    /** How far a cluster may extend in blocks on each axis, so the snapshots of a long chain stay small */
+    public static final int MAX_CLUSTER_SPAN = 32;
+
+    /** Explosions which overlap an explosion of the same tick, created in the next tick */
+    private List<Request> pending = new ArrayList<Request>();
+
+    /** All explosions requested in this tick, including the ones which have been created right away */
+    private List<Request> thisTick = new ArrayList<Request>();
+
+    private int flushTaskId = -1;
+
+    private final Random random = new Random();
+
+    private RootConfig CFG;
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public ExplosionBatcher(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        CFG = plugin.getModuleForClass(RootConfig.class);
+    }
+
+
+    /**
+     * Request an explosion. It is created right away, unless it overlaps an explosion which has been requested in this
+     * tick already, then it is created in the next tick together with the other explosions it overlaps.
+     *
+     * @param location    center of the explosion
+     * @param power       power as passed to World.createExplosion
+     * @param setFire     if the explosion sets fires
+     * @param damageWorld if the explosion breaks blocks
+     * @param cause       entity responsible for this explosion, null for pure visual explosions
+     */
+    public void request(Location location, float power, boolean setFire, boolean damageWorld, Entity cause)
+    {
+        final Request request = new Request(location.getWorld(), location.getX(), location.getY(), location.getZ(), power, setFire, damageWorld, cause);
+        boolean coincident = false;
+        for (int i = 0; i < thisTick.size() && !coincident; i++)
+            coincident = thisTick.get(i).overlaps(request);
+        thisTick.add(request);
+        if (flushTaskId == -1)
+        {
+            flushTaskId = plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, Timings.wrap("ExplosionBatcher#flush", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    flushTaskId = -1;
+                    flush();
+                }
+            }), 1L);
+        }
+
+        if (coincident)
+            pending.add(request);
+        else
+            explode(new Cluster(request));
+    }
+
+
+    /**
+     * Create all pending explosions, explosions requested while flushing (e.g. creepers which explode when hit by our
+     * explosion) belong to the next tick
+     */
+    public void flush()
+    {
+        List<Request> batch = pending;
+        pending = new ArrayList<Request>();
+        thisTick = new ArrayList<Request>();
+
+        for (Cluster cluster : cluster(batch))
+            explode(cluster);
+    }
+
+
+    /**
+     * Create the explosions of a cluster, a single explosion is left to vanilla unless it should be scanned async
+     */
+    private void explode(Cluster cluster)
+    {
+        final List<Request> explosions = cluster.getExplosions();
+        final Request first = explosions.get(0);
+        final boolean async = first.damageWorld && CFG.getSettings(first.world).getBoolean(RootNode.EXPLOSIONS_ASYNC);
+        if (async || explosions.size() > 1)
+        {
+            for (Request explosion : explosions)
+                EntityHelper.flagIgnore(plugin, explosion.cause);
+            scan(cluster, async);
+            return;
+        }
+
+        Location location = new Location(first.world, first.x, first.y, first.z);
+        if (first.cause != null) //ignore pure "visual" explosions
+            plugin.getModuleForClass(ExplosionCompatStorage.class).queueExplosion(location, first.cause);
+
+        //entity should be ignored so our code doesn't think that it's a regular creeper etc.
+        EntityHelper.flagIgnore(plugin, first.cause);
+        first.world.createExplosion(first.x, first.y, first.z, first.power, first.setFire, first.damageWorld);
+    }
+
+
+    /**
+     * Capture the chunks in range of the explosions and compute the affected blocks, on a worker thread
+     * or right away
+     */
+    private void scan(Cluster cluster, boolean async)
+    {
+        final List<Request> explosions = cluster.getExplosions();
+        final World world = explosions.get(0).world;
+        //same rule as for the explosions which are left to vanilla
+        final int flyPercentage = plugin.getModuleForClass(Explosions.class).hasExplosionPhysics(world.getName(), true)
+                ? CFG.getSettings(world).getInt(RootNode.EXPLOSIONS_FLYING_BLOCKS_PERCENTAGE) : 0;
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (Request explosion : explosions)
+        {
+            final int reach = ExplosionScan.getReach(explosion.power);
+            final int blockX = (int) Math.floor(explosion.x), blockZ = (int) Math.floor(explosion.z);
+            minX = Math.min(minX, blockX - reach);
+            minZ = Math.min(minZ, blockZ - reach);
+            maxX = Math.max(maxX, blockX + reach);
+            maxZ = Math.max(maxZ, blockZ + reach);
+        }
+
+        SnapshotArea area = SnapshotArea.capture(world, minX, minZ, maxX, maxZ);
+        ExplosionScan scan = new ExplosionScan(this, explosions, flyPercentage, random.nextLong());
+        if (async)
+            plugin.getModuleForClass(ChunkScanService.class).submit(area, scan);
+        else
+            plugin.getModuleForClass(ChunkScanService.class).runNow(area, scan);
+    }
+
+
+    /**
+     * Apply a cluster of explosions of which the blocks have been computed by an {@link ExplosionScan}. Fires an
+     * EntityExplodeEvent for every explosion with its blocks, so protection and logging plugins can cancel or log it,
+     * just like the vanilla explosion would. The blocks of all explosions that haven't been cancelled are then removed
+     * and thrown together.
+     *
+     * @param scan the finished scan, all blocks have been applied to it
+     */
+    void detonate(ExplosionScan scan)
+    {
+        final List<Request> explosions = scan.getExplosions();
+        final World world = explosions.get(0).world;
+        final WorldSettings settings = CFG.getSettings(world);
+        final Explosions explosionsModule = plugin.getModuleForClass(Explosions.class);
+
+        Set<Block> destroyed = new HashSet<Block>();
+        List<Block> fires = new ArrayList<Block>();
+        List<Integer> exploded = new ArrayList<Integer>();
+        for (int i = 0; i < explosions.size(); i++)
+        {
+            final Request explosion = explosions.get(i);
+            final Location center = new Location(world, explosion.x, explosion.y, explosion.z);
+
+            damageEntities(explosion);
+            if (!explosion.damageWorld)
+                continue;
+
+            List<Block> blocks = new ArrayList<Block>(scan.getBlocks(i));
+            final float yield = 1.0F / explosion.power;
+            //a fake event even without a cause, so onLateExplosion doesn't throw and loosen the blocks a second time
+            EntityExplodeEvent event = new FakeEntityExplodeEvent(explosion.cause, center, blocks, yield);
+            plugin.getServer().getPluginManager().callEvent(event);
+
+            if (!event.isCancelled())
+            {
+                if (explosion.cause != null)
+                    explosionsModule.explosionLogic(event);
+                //only blocks which are still in the list after all plugins had their say
+                destroyed.addAll(event.blockList());
+                fires.addAll(scan.getFires(i));
+                exploded.add(i);
+            }
+        }
+
+        List<Block> flying = scan.getFlying();
+        flying.retainAll(destroyed);
+        explosionsModule.launchBlocks(flying, new Location(world, explosions.get(0).x, explosions.get(0).y, explosions.get(0).z),
+                settings.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_UP_VEL), settings.getDouble(RootNode.EXPLOSIONS_FLYING_BLOCKS_SPREAD_VEL));
+        explosionsModule.breakBlocks(destroyed);
+
+        for (Block fire : fires)
+            if (fire.getType() == Material.AIR)
+                fire.setType(Material.FIRE);
+
+        //explosions of a cluster are close to each other, loosen only once per 8 blocks
+        if (explosionsModule.hasExplosionPhysics(world.getName(), true))
+        {
+            Set<Long> loosened = new HashSet<Long>();
+            for (int i : exploded)
+            {
+                final Request explosion = explosions.get(i);
+                final int cellX = (int) Math.floor(explosion.x) >> 3, cellY = (int) Math.floor(explosion.y) >> 3, cellZ = (int) Math.floor(explosion.z) >> 3;
+                if (loosened.add(CoordHelper.pack(cellX, cellY, cellZ)))
+                    explosionsModule.loosenAround(new Location(world, explosion.x, explosion.y, explosion.z));
+            }
+        }
+    }
+
+
+    /**
+     * Let vanilla damage and push the entities around the explosion and play its sound and particles. Without block
+     * damage vanilla fires no EntityExplodeEvent and breaks no blocks, but the entities get the usual BLOCK_EXPLOSION
+     * damage, so armor, Blast Protection and all damage listeners treat it like any other explosion.
+     *
+     * @param explosion the explosion
+     */
+    public static void damageEntities(Request explosion)
+    {
+        explosion.world.createExplosion(explosion.x, explosion.y, explosion.z, explosion.power, false, false);
+    }
+
+
+    /**
+     * Group the explosions whose blast spheres overlap. Only explosions in the same world with the same fire and block
+     * damage settings end up in the same cluster and a cluster extends at most {@link #MAX_CLUSTER_SPAN} blocks.
+     *
+     * @param requests explosions in the order they have been requested
+     *
+     * @return the clusters, the explosions in a cluster keep their order
+     */
+    public static List<Cluster> cluster(List<Request> requests)
+    {
+        List<Cluster> clusters = new ArrayList<Cluster>();
+        for (Request request : requests)
+        {
+            boolean added = false;
+            for (int i = 0; i < clusters.size() && !added; i++)
+                added = clusters.get(i).tryAdd(request);
+            if (!added)
+                clusters.add(new Cluster(request));
+        }
+        return clusters;
+    }
+
+
+    @Override
+    public void closing()
+    {
+        if (flushTaskId != -1)
+            plugin.getServer().getScheduler().cancelTask(flushTaskId);
+        flushTaskId = -1;
+        pending.clear();
+        thisTick.clear();
+    }
+
+
+    /**
+     * Explosions whose blast spheres overlap, their blocks are computed and applied together
+     */
+    public static final class Cluster
+    {
+        private final List<Request> explosions = new ArrayList<Request>();
+
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+
+
+        Cluster(Request first)
+        {
+            explosions.add(first);
+            minX = maxX = first.x;
+            minY = maxY = first.y;
+            minZ = maxZ = first.z;
+        }
+
+
+        /**
+         * Add the explosion if it overlaps one of the explosions and the cluster doesn't get too big
+         *
+         * @return if it has been added
+         */
+        boolean tryAdd(Request request)
+        {
+            if (Math.max(maxX, request.x) - Math.min(minX, request.x) > MAX_CLUSTER_SPAN
+                    || Math.max(maxY, request.y) - Math.min(minY, request.y) > MAX_CLUSTER_SPAN
+                    || Math.max(maxZ, request.z) - Math.min(minZ, request.z) > MAX_CLUSTER_SPAN)
+                return false;
+            for (Request explosion : explosions)
+            {
+                if (explosion.overlaps(request))
+                {
+                    explosions.add(request);
+                    minX = Math.min(minX, request.x);
+                    minY = Math.min(minY, request.y);
+                    minZ = Math.min(minZ, request.z);
+                    maxX = Math.max(maxX, request.x);
+                    maxY = Math.max(maxY, request.y);
+                    maxZ = Math.max(maxZ, request.z);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        /** The explosions in the order they have been requested */
+        public List<Request> getExplosions()
+        {
+            return explosions;
+        }
+    }
+
+
+    /**
+     * An explosion which hasn't been created yet
+     */
+    public static final class Request
+    {
+        public final World world;
+
+        public final double x, y, z;
+
+        public final float power;
+
+        public final boolean setFire;
+
+        public final boolean damageWorld;
+
+        public final Entity cause;
+
+
+        public Request(World world, double x, double y, double z, float power, boolean setFire, boolean damageWorld, Entity cause)
+        {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.power = power;
+            this.setFire = setFire;
+            this.damageWorld = damageWorld;
+            this.cause = cause;
+        }
+
+
+        /**
+         * Do the blast spheres of the explosions overlap by at least half of their radius
+         */
+        boolean overlaps(Request other)
+        {
+            if (world != other.world || setFire != other.setFire || damageWorld != other.damageWorld)
+                return false;
+            double dx = x - other.x, dy = y - other.y, dz = z - other.z;
+            double reach = (power + other.power) / 2.0;
+            return dx * dx + dy * dy + dz * dz <= reach * reach;
+        }
+    }
+}
@@ -7,11 +7,32 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 
-/** @author Diemex */
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Remembers which entity caused our custom explosions, until the EntityExplodeEvent of the explosion comes in.
+ * <p/>
+ * Pending explosions are indexed by the packed block coordinates of their center, so any number of explosions can be
+ * pending at the same time. Explosions which never got an event (e.g. the chunk has been unloaded) expire after {@link
+ * #EXPIRE_AFTER} milliseconds.
+ *
+ * @author Diemex
+ */
 public class ExplosionCompatStorage extends EHMModule
 {
-    private Entity explosionCause;
-    private Location centerLocation;
+    /** Milliseconds after which a pending explosion is forgotten, a bit more than a tick */
+    public static final long EXPIRE_AFTER = 1000L;
+
+    /** Pending explosions by packed block coordinate, explosions at the same block are chained */
+    private final Map<Long, QueuedExplosion> pending = new HashMap<Long, QueuedExplosion>();
+
+    /** Same explosions in the order they have been queued, to expire them */
+    private final Queue<QueuedExplosion> byAge = new ArrayDeque<QueuedExplosion>();
+
+    private int size = 0;
 
 
     /**
@@ -39,34 +60,107 @@ public class ExplosionCompatStorage extends EHMModule
         Validate.notNull(centerLocation, "No location provided");
         Validate.notNull(cause, "No valid explosion cause");
 
-        this.centerLocation = centerLocation;
-        this.explosionCause = cause;
+        final long now = System.currentTimeMillis();
+        expire(now);
+
+        Long key = CoordHelper.pack(centerLocation.getBlockX(), centerLocation.getBlockY(), centerLocation.getBlockZ());
+        QueuedExplosion explosion = new QueuedExplosion(centerLocation, cause, now);
+        //later explosions at the same block go to the end of the chain
+        QueuedExplosion head = pending.get(key);
+        if (head == null)
+            pending.put(key, explosion);
+        else
+        {
+            while (head.next != null)
+                head = head.next;
+            head.next = explosion;
+        }
+        byAge.add(explosion);
+        size++;
     }
 
 
-    public Location getCenterLocation()
+    /**
+     * Take the explosion which has been queued at the block of the given location out of the queue
+     *
+     * @param eventLocation location of the EntityExplodeEvent
+     *
+     * @return the oldest explosion queued at this block in the same world, null if there is none
+     */
+    public QueuedExplosion takeExplosion(Location eventLocation)
     {
-        return centerLocation;
+        if (pending.isEmpty())
+            return null;
+        expire(System.currentTimeMillis());
+
+        Long key = CoordHelper.pack(eventLocation.getBlockX(), eventLocation.getBlockY(), eventLocation.getBlockZ());
+        QueuedExplosion previous = null;
+        for (QueuedExplosion explosion = pending.get(key); explosion != null; explosion = explosion.next)
+        {
+            if (explosion.getCenterLocation().getWorld() == eventLocation.getWorld())
+            {
+                unlink(key, previous, explosion);
+                return explosion;
+            }
+            previous = explosion;
+        }
+        return null;
     }
 
 
-    public Entity getExplosionCause()
+    private void unlink(Long key, QueuedExplosion previous, QueuedExplosion explosion)
     {
-        return explosionCause;
+        if (previous == null)
+        {
+            if (explosion.next == null)
+                pending.remove(key);
+            else
+                pending.put(key, explosion.next);
+        } else
+            previous.next = explosion.next;
+        explosion.next = null;
+        explosion.taken = true;
+        size--;
     }
 
 
-    /** Clear the current explosion from the queue. */
-    public void clearQueue()
+    /**
+     * Remove the explosions which didn't get an event in time
+     */
+    private void expire(long now)
     {
-        this.explosionCause = null;
-        this.centerLocation = null;
+        QueuedExplosion oldest;
+        while ((oldest = byAge.peek()) != null && (oldest.taken || now - oldest.queuedAt > EXPIRE_AFTER))
+        {
+            byAge.poll();
+            if (oldest.taken)
+                continue;
+            Location loc = oldest.getCenterLocation();
+            Long key = CoordHelper.pack(loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+            QueuedExplosion previous = null;
+            for (QueuedExplosion explosion = pending.get(key); explosion != null; explosion = explosion.next)
+            {
+                if (explosion == oldest)
+                {
+                    unlink(key, previous, explosion);
+                    break;
+                }
+                previous = explosion;
+            }
+        }
+    }
+
+
+    /** Amount of explosions waiting for their event */
+    public int size()
+    {
+        return size;
     }
 
 
     public boolean queueEmpty()
     {
-        return explosionCause == null && centerLocation == null;
+        return pending.isEmpty();
     }
 
 
@@ -79,7 +173,47 @@ public class ExplosionCompatStorage extends EHMModule
     @Override
     public void closing()
     {
-        explosionCause = null;
-        centerLocation = null;
+        pending.clear();
+        byAge.clear();
+        size = 0;
+    }
+
+
+    /**
+     * An explosion that has been created by us, but of which the event hasn't been processed yet
+     */
+    public static class QueuedExplosion
+    {
+        private final Location centerLocation;
+
+        private final Entity explosionCause;
+
+        private final long queuedAt;
+
+        /** Next explosion at the same block */
+        private QueuedExplosion next;
+
+        /** Matched to its event, but still in the age queue */
+        private boolean taken = false;
+
+
+        QueuedExplosion(Location centerLocation, Entity explosionCause, long queuedAt)
+        {
+            this.centerLocation = centerLocation;
+            this.explosionCause = explosionCause;
+            this.queuedAt = queuedAt;
+        }
+
+
+        public Location getCenterLocation()
+        {
+            return centerLocation;
+        }
+
+
+        public Entity getExplosionCause()
+        {
+            return explosionCause;
+        }
     }
 }
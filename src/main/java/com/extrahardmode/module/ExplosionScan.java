@@ -0,0 +1,359 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.compatibility.CompatHandler;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Computes the blocks destroyed by a cluster of explosions, usually on a worker thread.
+ * <p/>
+ * The rays are cast like vanilla does it: 1352 rays from the center to the surface of a 16x16x16 cube, each loses
+ * strength with every step and with the blast resistance of the blocks it passes. The explosions of a cluster are
+ * traced one after the other against the same snapshots, each one sees the blocks destroyed by the explosions before it
+ * as air, and the result is the union of the blocks they destroy. Which blocks fly or catch fire is decided here too,
+ * so only the final block list has to be applied on the main thread by the {@link ExplosionBatcher}. Entities are left
+ * to vanilla.
+ *
+ * @author Diemex
+ */
+public class ExplosionScan extends ChunkScan
+{
+    /** The block is destroyed */
+    public static final int BREAK = 0;
+
+    /** The block is destroyed and spawns a flying block */
+    public static final int FLY = 1;
+
+    /** An air block which catches fire */
+    public static final int FIRE = 2;
+
+    /** Length of one step of a ray */
+    private static final double STEP = 0.3;
+
+    /** Strength a ray loses per step */
+    private static final float DECAY = 0.22500001F;
+
+    /** Blast resistance of solid blocks not in the table */
+    private static final float DEFAULT_RESISTANCE = 3.0F;
+
+    /** Blast resistance by Material id, as in vanilla (e.g. stone 6, obsidian 1200) */
+    private static final float[] RESISTANCE = new float[256];
+
+    /** Solid Materials by id, only these can fly and catch fire on top */
+    private static final boolean[] SOLID = new boolean[256];
+
+
+    static
+    {
+        for (Material material : Material.values())
+            if (material.isBlock() && material.getId() < SOLID.length)
+            {
+                SOLID[material.getId()] = material.isSolid();
+                RESISTANCE[material.getId()] = material.isSolid() ? DEFAULT_RESISTANCE : 0.0F;
+            }
+
+        setResistance(3600000.0F, Material.BEDROCK, Material.ENDER_PORTAL_FRAME, Material.ENDER_PORTAL, Material.PORTAL, Material.COMMAND);
+        setResistance(1200.0F, Material.OBSIDIAN, Material.ENCHANTMENT_TABLE, Material.ANVIL);
+        setResistance(600.0F, Material.ENDER_CHEST);
+        setResistance(100.0F, Material.WATER, Material.STATIONARY_WATER, Material.LAVA, Material.STATIONARY_LAVA);
+        setResistance(9.0F, Material.ENDER_STONE);
+        setResistance(6.0F, Material.STONE, Material.COBBLESTONE, Material.MOSSY_COBBLESTONE, Material.COBBLE_WALL,
+                Material.COBBLESTONE_STAIRS, Material.BRICK, Material.BRICK_STAIRS, Material.SMOOTH_BRICK, Material.SMOOTH_STAIRS,
+                Material.NETHER_BRICK, Material.NETHER_BRICK_STAIRS, Material.NETHER_FENCE, Material.DOUBLE_STEP, Material.STEP,
+                Material.GOLD_BLOCK, Material.IRON_BLOCK, Material.DIAMOND_BLOCK, Material.EMERALD_BLOCK, Material.COAL_BLOCK,
+                Material.REDSTONE_BLOCK, Material.JUKEBOX);
+        setResistance(5.0F, Material.IRON_DOOR_BLOCK, Material.MOB_SPAWNER);
+        setResistance(4.8F, Material.HOPPER);
+        setResistance(4.2F, Material.HARD_CLAY, Material.STAINED_CLAY);
+        setResistance(4.0F, Material.WEB);
+        setResistance(3.5F, Material.FURNACE, Material.BURNING_FURNACE, Material.DISPENSER, Material.DROPPER);
+        setResistance(3.0F, Material.COAL_ORE, Material.IRON_ORE, Material.GOLD_ORE, Material.DIAMOND_ORE, Material.LAPIS_ORE,
+                Material.REDSTONE_ORE, Material.GLOWING_REDSTONE_ORE, Material.EMERALD_ORE, Material.QUARTZ_ORE, Material.LAPIS_BLOCK,
+                Material.WOOD, Material.WOOD_STAIRS, Material.SPRUCE_WOOD_STAIRS, Material.BIRCH_WOOD_STAIRS, Material.JUNGLE_WOOD_STAIRS,
+                Material.ACACIA_STAIRS, Material.DARK_OAK_STAIRS, Material.WOOD_DOUBLE_STEP, Material.WOOD_STEP, Material.FENCE,
+                Material.FENCE_GATE, Material.WOODEN_DOOR);
+        setResistance(2.5F, Material.CHEST, Material.TRAPPED_CHEST, Material.WORKBENCH);
+        setResistance(2.0F, Material.LOG, Material.LOG_2);
+        setResistance(1.5F, Material.BOOKSHELF);
+        setResistance(1.0F, Material.PUMPKIN, Material.JACK_O_LANTERN, Material.MELON_BLOCK);
+        setResistance(0.8F, Material.SANDSTONE, Material.WOOL, Material.QUARTZ_BLOCK);
+        setResistance(0.6F, Material.GRASS, Material.MYCEL, Material.GRAVEL, Material.CLAY, Material.SOIL, Material.SPONGE);
+        setResistance(0.5F, Material.DIRT, Material.SAND, Material.SOUL_SAND, Material.ICE, Material.PACKED_ICE,
+                Material.PISTON_BASE, Material.PISTON_STICKY_BASE, Material.PISTON_EXTENSION);
+        setResistance(0.4F, Material.NETHERRACK, Material.CACTUS);
+        setResistance(0.3F, Material.GLASS, Material.THIN_GLASS, Material.STAINED_GLASS, Material.GLOWSTONE);
+        setResistance(0.2F, Material.LEAVES, Material.LEAVES_2, Material.SNOW_BLOCK);
+    }
+
+
+    private static void setResistance(float resistance, Material... materials)
+    {
+        for (Material material : materials)
+            RESISTANCE[material.getId()] = resistance;
+    }
+
+
+    /**
+     * Get the blast resistance of a block type
+     *
+     * @param typeId Material id of the block
+     *
+     * @return resistance, 0 for air
+     */
+    public static float getResistance(int typeId)
+    {
+        return typeId >= 0 && typeId < RESISTANCE.length ? RESISTANCE[typeId] : DEFAULT_RESISTANCE;
+    }
+
+
+    private static boolean isSolid(int typeId)
+    {
+        return typeId >= SOLID.length || (typeId > 0 && SOLID[typeId]);
+    }
+
+
+    private final ExplosionBatcher batcher;
+
+    /** Explosions of one cluster, their rays are traced against the same snapshots */
+    private final List<ExplosionBatcher.Request> explosions;
+
+    /** Chance for a solid block to fly in percent */
+    private final int flyPercentage;
+
+    private final long seed;
+
+    /** Blocks to destroy by the first explosion which destroys them, only accessed on the main thread */
+    private final List<List<Block>> blocks;
+
+    /** Destroyed blocks which fly */
+    private final List<Block> flying = new ArrayList<Block>();
+
+    /** Air blocks to set on fire by explosion */
+    private final List<List<Block>> fires;
+
+
+    /**
+     * Constructor. Called on the main thread.
+     *
+     * @param batcher       to hand the results back to, null to only scan
+     * @param explosions    the explosions to compute, the blocks of all of them are computed together
+     * @param flyPercentage chance in percent for a destroyed solid block to fly
+     * @param seed          seed for the random strength of the rays
+     */
+    public ExplosionScan(ExplosionBatcher batcher, List<ExplosionBatcher.Request> explosions, int flyPercentage, long seed)
+    {
+        this.batcher = batcher;
+        this.explosions = explosions;
+        this.flyPercentage = flyPercentage;
+        this.seed = seed;
+        this.blocks = new ArrayList<List<Block>>(explosions.size());
+        this.fires = new ArrayList<List<Block>>(explosions.size());
+        for (int i = 0; i < explosions.size(); i++)
+        {
+            blocks.add(new ArrayList<Block>());
+            fires.add(new ArrayList<Block>());
+        }
+    }
+
+
+    /**
+     * How far the rays of an explosion reach at most
+     *
+     * @param power power of the explosion
+     *
+     * @return reach in blocks
+     */
+    public static int getReach(float power)
+    {
+        return (int) Math.ceil(power * 1.3F / DECAY * STEP) + 1;
+    }
+
+
+    /**
+     * The tag of a block in the result consists of what happens to it and the index of the explosion it belongs to
+     */
+    private static int tag(int kind, int explosion)
+    {
+        return kind | explosion << 2;
+    }
+
+
+    @Override
+    public void scan(SnapshotArea area, BlockList result)
+    {
+        final Random random = new Random(seed);
+        //every explosion is traced on its own, like vanilla would create them one after the other
+        final Set<Long> listed = new HashSet<Long>();
+        final Set<Long> destroyed = new HashSet<Long>();
+        for (int e = 0; e < explosions.size(); e++)
+            if (explosions.get(e).damageWorld)
+            {
+                final int start = result.size();
+                castRays(area, result, e, random, listed, destroyed);
+                //the next explosions see the crater of this one
+                for (int i = start; i < result.size(); i++)
+                    if ((result.getTag(i) & 3) != FIRE)
+                        destroyed.add(CoordHelper.pack(result.getX(i), result.getY(i), result.getZ(i)));
+            }
+    }
+
+
+    /**
+     * Cast the 1352 rays of one explosion
+     *
+     * @param listed    blocks which are already in the result, each block is listed once
+     * @param destroyed blocks destroyed by the explosions before this one, the rays pass through them like through air
+     */
+    private void castRays(SnapshotArea area, BlockList result, int index, Random random, Set<Long> listed, Set<Long> destroyed)
+    {
+        final ExplosionBatcher.Request explosion = explosions.get(index);
+        for (int i = 0; i < 16; i++)
+            for (int j = 0; j < 16; j++)
+                for (int k = 0; k < 16; k++)
+                {
+                    //only the surface of the cube
+                    if (i != 0 && i != 15 && j != 0 && j != 15 && k != 0 && k != 15)
+                        continue;
+                    double dx = i / 15.0 * 2.0 - 1.0, dy = j / 15.0 * 2.0 - 1.0, dz = k / 15.0 * 2.0 - 1.0;
+                    final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+                    dx = dx / length * STEP;
+                    dy = dy / length * STEP;
+                    dz = dz / length * STEP;
+
+                    double x = explosion.x, y = explosion.y, z = explosion.z;
+                    for (float strength = explosion.power * (0.7F + random.nextFloat() * 0.6F); strength > 0.0F; strength -= DECAY)
+                    {
+                        final int bx = floor(x), by = floor(y), bz = floor(z);
+                        final int id = getTypeId(area, destroyed, bx, by, bz);
+                        if (id < 0) //not captured or outside of the world
+                            break;
+                        if (id > 0)
+                            strength -= (getResistance(id) + 0.3F) * 0.3F;
+                        if (strength > 0.0F && (id > 0 || explosion.setFire) && listed.add(CoordHelper.pack(bx, by, bz)))
+                        {
+                            if (id > 0)
+                                result.add(bx, by, bz, tag(isSolid(id) && random.nextInt(100) < flyPercentage ? FLY : BREAK, index));
+                            else if (isSolid(getTypeId(area, destroyed, bx, by - 1, bz)) && random.nextInt(3) == 0)
+                                result.add(bx, by, bz, tag(FIRE, index));
+                        }
+                        x += dx;
+                        y += dy;
+                        z += dz;
+                    }
+                }
+    }
+
+
+    /**
+     * Type of a block in the snapshots, blocks destroyed by an earlier explosion of the cluster are air
+     */
+    private static int getTypeId(SnapshotArea area, Set<Long> destroyed, int x, int y, int z)
+    {
+        final int id = area.getTypeId(x, y, z);
+        return id > 0 && destroyed.contains(CoordHelper.pack(x, y, z)) ? 0 : id;
+    }
+
+
+    private static int floor(double value)
+    {
+        final int floored = (int) value;
+        return value < floored ? floored - 1 : floored;
+    }
+
+
+    @Override
+    public void apply(Block block, int tag)
+    {
+        final int kind = tag & 3, explosion = tag >> 2;
+        //the world might have changed since the snapshot was taken, protection plugins can only be asked on the main thread
+        if (kind == FIRE)
+        {
+            if (block.getType() == Material.AIR)
+                fires.get(explosion).add(block);
+        } else if (block.getType() != Material.AIR && !CompatHandler.isExplosionProtected(block.getLocation()))
+        {
+            blocks.get(explosion).add(block);
+            if (kind == FLY)
+                flying.add(block);
+        }
+    }
+
+
+    /** The explosion should happen as soon as possible, not after a big result of another scan */
+    @Override
+    public boolean isUrgent()
+    {
+        return true;
+    }
+
+
+    @Override
+    public void done()
+    {
+        if (batcher != null)
+            batcher.detonate(this);
+    }
+
+
+    /** The explosions of the cluster in the order they have been requested */
+    public List<ExplosionBatcher.Request> getExplosions()
+    {
+        return explosions;
+    }
+
+
+    /**
+     * Blocks to destroy, filled on the main thread
+     *
+     * @param explosion index of the explosion in {@link #getExplosions()}
+     *
+     * @return the blocks of this explosion which no explosion before it in the cluster destroys
+     */
+    public List<Block> getBlocks(int explosion)
+    {
+        return blocks.get(explosion);
+    }
+
+
+    /** Blocks of all explosions which should fly, all of them are also in one of the {@link #getBlocks(int)} lists */
+    public List<Block> getFlying()
+    {
+        return flying;
+    }
+
+
+    /** Air blocks which catch fire from the given explosion */
+    public List<Block> getFires(int explosion)
+    {
+        return fires.get(explosion);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+
+/**
+ * Counts the live FallingBlocks we spawned in a world, per chunk and in total.
+ * <p/>
+ * FallingBlocks are counted in the chunk they have been spawned in until they land, get unloaded or are older than
+ * {@link #MAX_AGE}, after which vanilla removes them anyway. That way FallingBlocks which vanished without an event
+ * (e.g. broke on a torch) don't keep using up the budget.
+ *
+ * @author Diemex
+ */
+public class FallingBlockBudget
+{
+    /** Milliseconds after which a FallingBlock is no longer counted, vanilla removes them after 600 ticks */
+    public static final long MAX_AGE = 30000L;
+
+    /** Live FallingBlocks by UUID */
+    private final Map<UUID, Tracked> live = new HashMap<UUID, Tracked>();
+
+    /** Amount of live FallingBlocks by packed chunk coordinates */
+    private final Map<Long, Integer> perChunk = new HashMap<Long, Integer>();
+
+    /** Same FallingBlocks in the order they have been spawned, to expire them */
+    private final Queue<Tracked> byAge = new ArrayDeque<Tracked>();
+
+
+    /**
+     * Can another FallingBlock be spawned in this chunk
+     *
+     * @param chunkX      chunk coordinate
+     * @param chunkZ      chunk coordinate
+     * @param maxPerChunk limit for the chunk, 0 = no limit
+     * @param maxPerWorld limit for the world, 0 = no limit
+     * @param now         current time in milliseconds
+     *
+     * @return true if both limits allow another FallingBlock
+     */
+    public boolean hasRoom(int chunkX, int chunkZ, int maxPerChunk, int maxPerWorld, long now)
+    {
+        expire(now);
+        return (maxPerWorld <= 0 || live.size() < maxPerWorld) && (maxPerChunk <= 0 || getCount(chunkX, chunkZ) < maxPerChunk);
+    }
+
+
+    /**
+     * Count a FallingBlock which has been spawned
+     *
+     * @param id     UUID of the FallingBlock
+     * @param chunkX chunk it has been spawned in
+     * @param chunkZ chunk it has been spawned in
+     * @param now    current time in milliseconds
+     */
+    public void track(UUID id, int chunkX, int chunkZ, long now)
+    {
+        if (live.containsKey(id))
+            return;
+        Tracked tracked = new Tracked(id, CoordHelper.packChunk(chunkX, chunkZ), now);
+        live.put(id, tracked);
+        byAge.add(tracked);
+        Integer count = perChunk.get(tracked.chunk);
+        perChunk.put(tracked.chunk, count == null ? 1 : count + 1);
+    }
+
+
+    /**
+     * Stop counting a FallingBlock because it landed or got unloaded
+     *
+     * @param id UUID of the FallingBlock
+     *
+     * @return true if it has been counted
+     */
+    public boolean release(UUID id)
+    {
+        Tracked tracked = live.remove(id);
+        if (tracked == null)
+            return false;
+        tracked.released = true;
+        Integer count = perChunk.get(tracked.chunk);
+        if (count == null || count <= 1)
+            perChunk.remove(tracked.chunk);
+        else
+            perChunk.put(tracked.chunk, count - 1);
+        return true;
+    }
+
+
+    /**
+     * Release all FallingBlocks which are older than {@link #MAX_AGE}
+     */
+    public void expire(long now)
+    {
+        Tracked oldest;
+        while ((oldest = byAge.peek()) != null && (oldest.released || now - oldest.spawnedAt > MAX_AGE))
+        {
+            byAge.poll();
+            if (!oldest.released)
+                release(oldest.id);
+        }
+    }
+
+
+    /**
+     * Get the amount of live FallingBlocks spawned in a chunk
+     */
+    public int getCount(int chunkX, int chunkZ)
+    {
+        Integer count = perChunk.get(CoordHelper.packChunk(chunkX, chunkZ));
+        return count == null ? 0 : count;
+    }
+
+
+    /**
+     * Get the amount of live FallingBlocks in the world
+     */
+    public int size()
+    {
+        return live.size();
+    }
+
+
+    public void clear()
+    {
+        live.clear();
+        perChunk.clear();
+        byAge.clear();
+    }
+
+
+    /** A FallingBlock that is being counted */
+    private static class Tracked
+    {
+        final UUID id;
+
+        final long chunk;
+
+        final long spawnedAt;
+
+        /** Landed or unloaded, but still in the age queue */
+        boolean released = false;
+
+
+        Tracked(UUID id, long chunk, long spawnedAt)
+        {
+            this.id = id;
+            this.chunk = chunk;
+            this.spawnedAt = spawnedAt;
+        }
+    }
+}
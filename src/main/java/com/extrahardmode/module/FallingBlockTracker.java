@@ -0,0 +1,151 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.service.ListenerModule;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the {@link FallingBlockBudget} of every world up to date, so big explosions and cave-ins can't fill a chunk
+ * with hundreds of FallingBlock entities.
+ * <p/>
+ * If there is no room left the BlockModule moves blocks directly to where they would land and explosions let one
+ * FallingBlock fly for a whole cluster of blocks.
+ *
+ * @author Diemex
+ */
+public class FallingBlockTracker extends ListenerModule
+{
+    private RootConfig CFG;
+
+    private final Map<World, FallingBlockBudget> budgets = new WeakHashMap<World, FallingBlockBudget>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public FallingBlockTracker(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        CFG = plugin.getModuleForClass(RootConfig.class);
+    }
+
+
+    private FallingBlockBudget getBudget(World world)
+    {
+        FallingBlockBudget budget = budgets.get(world);
+        if (budget == null)
+        {
+            budget = new FallingBlockBudget();
+            budgets.put(world, budget);
+        }
+        return budget;
+    }
+
+
+    /**
+     * Can a FallingBlock be spawned at this block without exceeding the budget of the chunk or world
+     *
+     * @param block where the FallingBlock would be spawned
+     *
+     * @return true if there is room for another FallingBlock
+     */
+    public boolean hasRoom(Block block)
+    {
+        final WorldSettings settings = CFG.getSettings(block.getWorld());
+        return getBudget(block.getWorld()).hasRoom(block.getX() >> 4, block.getZ() >> 4,
+                settings.getInt(RootNode.MORE_FALLING_BLOCKS_MAX_PER_CHUNK), settings.getInt(RootNode.MORE_FALLING_BLOCKS_MAX_PER_WORLD),
+                System.currentTimeMillis());
+    }
+
+
+    /**
+     * Count a FallingBlock we spawned until it lands
+     *
+     * @param fallingBlock the spawned FallingBlock
+     */
+    public void track(FallingBlock fallingBlock)
+    {
+        getBudget(fallingBlock.getWorld()).track(fallingBlock.getUniqueId(),
+                fallingBlock.getLocation().getBlockX() >> 4, fallingBlock.getLocation().getBlockZ() >> 4, System.currentTimeMillis());
+    }
+
+
+    /**
+     * A FallingBlock dies when it lands, even if the event is cancelled
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onBlockLand(EntityChangeBlockEvent event)
+    {
+        if (event.getEntity() instanceof FallingBlock)
+        {
+            FallingBlockBudget budget = budgets.get(event.getEntity().getWorld());
+            if (budget != null)
+                budget.release(event.getEntity().getUniqueId());
+        }
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event)
+    {
+        FallingBlockBudget budget = budgets.get(event.getWorld());
+        if (budget == null || budget.size() == 0)
+            return;
+        for (Entity entity : event.getChunk().getEntities())
+            if (entity instanceof FallingBlock)
+                budget.release(entity.getUniqueId());
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        budgets.clear();
+    }
+}
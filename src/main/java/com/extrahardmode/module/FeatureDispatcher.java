@@ -0,0 +1,302 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.TimingStats;
+import com.extrahardmode.service.Timings;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Listens once for events which almost every feature handles and passes them on to the features which are enabled in
+ * the world of the event.
+ * <p/>
+ * The enabled handlers are resolved once per compiled {@link WorldSettings}, so in a world where most features are
+ * turned off an event only costs a settings lookup and a loop over a short array.
+ *
+ * @author Diemex
+ */
+public class FeatureDispatcher extends ListenerModule
+{
+    /**
+     * A feature handling an event
+     */
+    public interface Handler<T extends Event>
+    {
+        /**
+         * Can this handler do anything in a world with these settings. Handlers are only called in worlds where this
+         * returned true.
+         *
+         * @param settings settings of the world
+         */
+        boolean isEnabled(WorldSettings settings);
+
+
+        /**
+         * Handle the event
+         *
+         * @param event event that occurred
+         */
+        void handle(T event);
+    }
+
+
+    private RootConfig CFG;
+
+    private final Dispatch<EntityDeathEvent> deaths = new Dispatch<EntityDeathEvent>("EntityDeathEvent", false);
+
+    private final Dispatch<CreatureSpawnEvent> spawns = new Dispatch<CreatureSpawnEvent>("CreatureSpawnEvent", false);
+
+    private final Dispatch<EntityDamageEvent> damages = new Dispatch<EntityDamageEvent>("EntityDamageEvent", true);
+
+    private final Map<Class<? extends Event>, Dispatch<?>> dispatches = new HashMap<Class<? extends Event>, Dispatch<?>>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public FeatureDispatcher(ExtraHardMode plugin)
+    {
+        super(plugin);
+        dispatches.put(EntityDeathEvent.class, deaths);
+        dispatches.put(CreatureSpawnEvent.class, spawns);
+        dispatches.put(EntityDamageEvent.class, damages);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        CFG = plugin.getModuleForClass(RootConfig.class);
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        //Features unregister themselves when they close, we only drop the resolved arrays
+        for (Dispatch<?> dispatch : dispatches.values())
+            dispatch.invalidate();
+    }
+
+
+    /**
+     * Register a handler for an event. Handlers are called in the order they have been registered, just like
+     * Bukkit would call them.
+     *
+     * @param type    EntityDeathEvent (NORMAL), CreatureSpawnEvent (LOW) or EntityDamageEvent (LOWEST, ignores cancelled
+     *                events)
+     * @param owner   the feature registering the handler, used to unregister it again
+     * @param handler handler to call
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Event> void register(Class<T> type, Object owner, Handler<T> handler)
+    {
+        Dispatch<T> dispatch = (Dispatch<T>) dispatches.get(type);
+        if (dispatch == null)
+            throw new IllegalArgumentException(type.getSimpleName() + " can't be dispatched");
+        dispatch.add(owner, handler);
+    }
+
+
+    /**
+     * Remove all handlers of the given feature
+     *
+     * @param owner feature which registered the handlers
+     */
+    public void unregisterAll(Object owner)
+    {
+        for (Dispatch<?> dispatch : dispatches.values())
+            dispatch.remove(owner);
+    }
+
+
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        deaths.dispatch(CFG.getSettings(event.getEntity().getWorld()), event);
+    }
+
+
+    @EventHandler(priority = EventPriority.LOW)
+    public void onCreatureSpawn(CreatureSpawnEvent event)
+    {
+        spawns.dispatch(CFG.getSettings(event.getLocation().getWorld()), event);
+    }
+
+
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        damages.dispatch(CFG.getSettings(event.getEntity().getWorld()), event);
+    }
+
+
+    /**
+     * A registered handler and the feature it belongs to
+     */
+    private static class Registration<T extends Event>
+    {
+        final Object owner;
+
+        final Handler<T> handler;
+
+        /**
+         * Lazily created once timings are enabled
+         */
+        TimingStats stats;
+
+
+        Registration(Object owner, Handler<T> handler)
+        {
+            this.owner = owner;
+            this.handler = handler;
+        }
+    }
+
+
+    /**
+     * The handlers of one event type
+     */
+    private class Dispatch<T extends Event>
+    {
+        /**
+         * Skip the remaining handlers once the event has been cancelled
+         */
+        private final boolean ignoreCancelled;
+
+        /**
+         * Name of the event for timings
+         */
+        private final String eventName;
+
+        private final List<Registration<T>> registrations = new ArrayList<Registration<T>>();
+
+        /**
+         * Enabled handlers by the settings they have been resolved for. The settings get replaced when the config
+         * changes so old arrays simply aren't accessed anymore
+         */
+        private final Map<WorldSettings, Registration<T>[]> enabled = new WeakHashMap<WorldSettings, Registration<T>[]>();
+
+
+        Dispatch(String eventName, boolean ignoreCancelled)
+        {
+            this.eventName = eventName;
+            this.ignoreCancelled = ignoreCancelled;
+        }
+
+
+        void add(Object owner, Handler<T> handler)
+        {
+            registrations.add(new Registration<T>(owner, handler));
+            invalidate();
+        }
+
+
+        void remove(Object owner)
+        {
+            for (Iterator<Registration<T>> iter = registrations.iterator(); iter.hasNext(); )
+                if (iter.next().owner == owner)
+                    iter.remove();
+            invalidate();
+        }
+
+
+        void invalidate()
+        {
+            enabled.clear();
+        }
+
+
+        @SuppressWarnings("unchecked")
+        private Registration<T>[] resolve(WorldSettings settings)
+        {
+            List<Registration<T>> list = new ArrayList<Registration<T>>();
+            for (Registration<T> registration : registrations)
+                if (registration.handler.isEnabled(settings))
+                    list.add(registration);
+            return list.toArray(new Registration[list.size()]);
+        }
+
+
+        void dispatch(WorldSettings settings, T event)
+        {
+            Registration<T>[] resolved = enabled.get(settings);
+            if (resolved == null)
+            {
+                resolved = resolve(settings);
+                enabled.put(settings, resolved);
+            }
+            final boolean timed = Timings.isEnabled();
+            for (Registration<T> registration : resolved)
+            {
+                if (ignoreCancelled && ((Cancellable) event).isCancelled())
+                    continue;
+                //Bukkit would log the Exception and still call the other handlers
+                try
+                {
+                    if (timed)
+                        handleTimed(registration, event);
+                    else
+                        registration.handler.handle(event);
+                } catch (RuntimeException e)
+                {
+                    plugin.getLogger().log(Level.SEVERE, "Error while passing " + event.getEventName() + " to " + registration.owner.getClass().getSimpleName(), e);
+                }
+            }
+        }
+
+
+        private void handleTimed(Registration<T> registration, T event)
+        {
+            if (registration.stats == null)
+                registration.stats = Timings.get(registration.owner.getClass().getSimpleName() + "#" + eventName + "@dispatched");
+            final long alloc = Timings.allocatedBytes();
+            final long start = System.nanoTime();
+            try
+            {
+                registration.handler.handle(event);
+            } finally
+            {
+                registration.stats.record(System.nanoTime() - start, alloc < 0 ? -1 : Timings.allocatedBytes() - alloc);
+            }
+        }
+    }
+}
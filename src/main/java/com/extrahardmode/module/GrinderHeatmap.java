@@ -0,0 +1,295 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+/**
+ * Rolling kill density per chunk, used to find mob grinders without probing the surroundings of every monster that
+ * dies.
+ * <p/>
+ * Every chunk has a heat value which goes up by one for each kill and by a fraction for environmental damage and
+ * halves every {@link #HALF_LIFE} milliseconds. The decay is applied lazily when a chunk is accessed. Chunks which have
+ * cooled down are dropped when the table grows. A chunk is remembered as a farm once the expensive checks found
+ * {@link #FARM_STREAK} easy kills in a row. A fair kill is never remembered, it would exempt the farm next to it.
+ * <p/>
+ * Open addressing over primitive arrays keyed by {@link CoordHelper#packChunk(int, int)}, only accessed from the main
+ * thread.
+ *
+ * @author Diemex
+ */
+public final class GrinderHeatmap
+{
+    /** Milliseconds after which the heat of a chunk has halved */
+    public static final long HALF_LIFE = 2 * 60 * 1000L;
+
+    /** Environmental damage equal to the health of a zombie counts as one kill */
+    public static final float DAMAGE_PER_KILL = 20.0F;
+
+    /** Heat below which a chunk without a remembered verdict can be forgotten */
+    private static final float COLD = 0.05F;
+
+    private static final int MIN_CAPACITY = 64;
+
+    public static final int UNKNOWN = 0;
+
+    public static final int FARM = 1;
+
+    /** Easy kills in a row before a chunk is remembered as a farm */
+    public static final int FARM_STREAK = 3;
+
+    private boolean[] used;
+
+    private long[] keys;
+
+    /** Heat at the time of the last update */
+    private float[] heat;
+
+    private long[] updated;
+
+    private byte[] verdict;
+
+    private long[] verdictUntil;
+
+    /** Easy kills in a row since the last fair kill */
+    private byte[] streak;
+
+    private int size = 0;
+
+
+    public GrinderHeatmap()
+    {
+        allocate(MIN_CAPACITY);
+    }
+
+
+    private void allocate(int capacity)
+    {
+        used = new boolean[capacity];
+        keys = new long[capacity];
+        heat = new float[capacity];
+        updated = new long[capacity];
+        verdict = new byte[capacity];
+        verdictUntil = new long[capacity];
+        streak = new byte[capacity];
+        size = 0;
+    }
+
+
+    /**
+     * Count a kill in the chunk
+     *
+     * @param chunk packed chunk coordinates
+     * @param now   current time in milliseconds
+     *
+     * @return heat of the chunk including this kill
+     */
+    public float recordKill(long chunk, long now)
+    {
+        return add(chunk, 1.0F, now);
+    }
+
+
+    /**
+     * Count environmental damage in the chunk, e.g. monsters falling or drowning in a farm
+     *
+     * @param chunk  packed chunk coordinates
+     * @param damage amount of damage
+     * @param now    current time in milliseconds
+     */
+    public void recordDamage(long chunk, double damage, long now)
+    {
+        add(chunk, (float) (damage / DAMAGE_PER_KILL), now);
+    }
+
+
+    /**
+     * Get the heat of a chunk, roughly the number of kills in the last {@link #HALF_LIFE}
+     */
+    public float getHeat(long chunk, long now)
+    {
+        int slot = find(chunk);
+        return slot < 0 ? 0.0F : decayed(slot, now);
+    }
+
+
+    /**
+     * Get the remembered result of the checks for this chunk
+     *
+     * @return {@link #FARM} or {@link #UNKNOWN} if there is no verdict or it has expired
+     */
+    public int getVerdict(long chunk, long now)
+    {
+        int slot = find(chunk);
+        return slot < 0 || verdictUntil[slot] <= now ? UNKNOWN : verdict[slot];
+    }
+
+
+    /**
+     * Record the result of the checks for one kill in this chunk
+     *
+     * @param chunk    packed chunk coordinates
+     * @param easyKill if the monster had no chance
+     * @param now      current time in milliseconds
+     * @param duration for how many milliseconds the chunk is remembered as a farm
+     *
+     * @return {@link #FARM} if this was the last kill of a streak, {@link #UNKNOWN} otherwise
+     */
+    public int recordCheck(long chunk, boolean easyKill, long now, long duration)
+    {
+        int slot = findOrInsert(chunk, now);
+        if (!easyKill)
+        {
+            streak[slot] = 0;
+            return UNKNOWN;
+        }
+        if (++streak[slot] < FARM_STREAK)
+            return UNKNOWN;
+        streak[slot] = 0;
+        verdict[slot] = FARM;
+        verdictUntil[slot] = now + duration;
+        return FARM;
+    }
+
+
+    /** Number of chunks in the table, including ones which have cooled down but haven't been dropped yet */
+    public int size()
+    {
+        return size;
+    }
+
+
+    public void clear()
+    {
+        allocate(MIN_CAPACITY);
+    }
+
+
+    private float add(long chunk, float amount, long now)
+    {
+        int slot = findOrInsert(chunk, now);
+        float value = decayed(slot, now) + amount;
+        heat[slot] = value;
+        updated[slot] = now;
+        return value;
+    }
+
+
+    private float decayed(int slot, long now)
+    {
+        long elapsed = now - updated[slot];
+        if (elapsed <= 0)
+            return heat[slot];
+        return (float) (heat[slot] * Math.exp(-elapsed * Math.log(2) / HALF_LIFE));
+    }
+
+
+    private static int hash(long key, int mask)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+
+    private int find(long chunk)
+    {
+        final int mask = keys.length - 1;
+        for (int slot = hash(chunk, mask); used[slot]; slot = (slot + 1) & mask)
+            if (keys[slot] == chunk)
+                return slot;
+        return -1;
+    }
+
+
+    private int findOrInsert(long chunk, long now)
+    {
+        int slot = find(chunk);
+        if (slot >= 0)
+            return slot;
+        if ((size + 1) * 2 > keys.length)
+            rehash(now);
+        final int mask = keys.length - 1;
+        slot = hash(chunk, mask);
+        while (used[slot])
+            slot = (slot + 1) & mask;
+        used[slot] = true;
+        keys[slot] = chunk;
+        heat[slot] = 0.0F;
+        updated[slot] = now;
+        verdict[slot] = UNKNOWN;
+        verdictUntil[slot] = 0;
+        streak[slot] = 0;
+        size++;
+        return slot;
+    }
+
+
+    /**
+     * Drop the chunks which have cooled down and resize the table so it is at most a quarter full afterwards
+     */
+    private void rehash(long now)
+    {
+        boolean[] oldUsed = used;
+        long[] oldKeys = keys;
+        float[] oldHeat = heat;
+        long[] oldUpdated = updated;
+        byte[] oldVerdict = verdict;
+        long[] oldVerdictUntil = verdictUntil;
+        byte[] oldStreak = streak;
+
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldUsed[i] && isLive(oldHeat[i], oldUpdated[i], oldVerdictUntil[i], now))
+                live++;
+        int capacity = MIN_CAPACITY;
+        while (capacity < (live + 1) * 4)
+            capacity <<= 1;
+
+        allocate(capacity);
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (!oldUsed[i] || !isLive(oldHeat[i], oldUpdated[i], oldVerdictUntil[i], now))
+                continue;
+            int slot = hash(oldKeys[i], mask);
+            while (used[slot])
+                slot = (slot + 1) & mask;
+            used[slot] = true;
+            keys[slot] = oldKeys[i];
+            heat[slot] = oldHeat[i];
+            updated[slot] = oldUpdated[i];
+            verdict[slot] = oldVerdict[i];
+            verdictUntil[slot] = oldVerdictUntil[i];
+            streak[slot] = oldStreak[i];
+            size++;
+        }
+    }
+
+
+    private static boolean isLive(float heat, long updated, long verdictUntil, long now)
+    {
+        if (verdictUntil > now)
+            return true;
+        long elapsed = now - updated;
+        return heat * Math.exp(-Math.max(0, elapsed) * Math.log(2) / HALF_LIFE) >= COLD;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Lookup table which classifies Materials. The traits are stored as a bitset per Material id and computed once, so the
+ * block place, falling block and spawn handlers don't have to compare names or walk long chains of comparisons.
+ * <p/>
+ * The defaults can be adjusted in the config with entries like "TOOL@STICK" or "-NATURAL_OVERWORLD_SPAWN@OBSIDIAN".
+ *
+ * @author Diemex
+ */
+public final class MaterialTraits
+{
+    /**
+     * All the traits a Material can have
+     */
+    public enum Trait
+    {
+        /**
+         * A tool, e.g. doesn't stack
+         */
+        TOOL,
+        /**
+         * Helmets, chestplates, leggings and boots
+         */
+        ARMOR,
+        /**
+         * Half and double slabs
+         */
+        SLAB,
+        /**
+         * All kinds of stairs
+         */
+        STAIRS,
+        /**
+         * A FallingBlock which lands on this Material breaks and drops as an item
+         */
+        BREAKS_FALLING_BLOCK,
+        /**
+         * Monsters spawning on this Material in the overworld are considered natural
+         */
+        NATURAL_OVERWORLD_SPAWN,
+        /**
+         * Monsters spawning on this Material in the nether are considered natural
+         */
+        NATURAL_NETHER_SPAWN;
+
+        private final int mask = 1 << ordinal();
+
+
+        /**
+         * Get the bit of this Trait
+         */
+        public int getMask()
+        {
+            return mask;
+        }
+    }
+
+
+    /**
+     * Traits by Material id as compiled from the hardcoded rules
+     */
+    private static final int[] DEFAULTS;
+
+    /**
+     * Traits by Material id including the overrides from the config
+     */
+    private static int[] traits;
+
+
+    static
+    {
+        int maxId = 0;
+        for (Material material : Material.values())
+            maxId = Math.max(maxId, material.getId());
+        DEFAULTS = new int[maxId + 1];
+        for (Material material : Material.values())
+            DEFAULTS[material.getId()] |= defaultTraits(material);
+        traits = DEFAULTS.clone();
+    }
+
+
+    private MaterialTraits()
+    {
+    }
+
+
+    /**
+     * Does the Material have the given Trait
+     *
+     * @param material material to check, null is treated as having no traits
+     * @param trait    trait to check for
+     */
+    public static boolean has(Material material, Trait trait)
+    {
+        return material != null && has(material.getId(), trait);
+    }
+
+
+    /**
+     * Does the Material with the given id have the given Trait
+     *
+     * @param typeId id of the material
+     * @param trait  trait to check for
+     */
+    public static boolean has(int typeId, Trait trait)
+    {
+        final int[] table = traits;
+        return typeId >= 0 && typeId < table.length && (table[typeId] & trait.mask) != 0;
+    }
+
+
+    /**
+     * Does the Material have at least one of the given Traits
+     *
+     * @param material material to check
+     * @param mask     masks of the traits ORed together
+     */
+    public static boolean hasAny(Material material, int mask)
+    {
+        final int[] table = traits;
+        final int id = material.getId();
+        return id >= 0 && id < table.length && (table[id] & mask) != 0;
+    }
+
+
+    /**
+     * Reset to the defaults and apply the given overrides. Entries are in the format "Trait@Material,Material", a
+     * leading minus removes the trait. Materials can be given as name or id.
+     *
+     * @param overrides entries from the config
+     *
+     * @return entries or parts of entries which couldn't be parsed, empty if all were valid
+     */
+    public static List<String> load(List<String> overrides)
+    {
+        List<String> invalid = new ArrayList<String>();
+        int[] table = DEFAULTS.clone();
+        Pattern whitespace = Pattern.compile("\\s");
+        for (String entry : overrides)
+        {
+            entry = whitespace.matcher(entry).replaceAll("");
+            String[] split = entry.split("@");
+            if (split.length != 2)
+            {
+                invalid.add(entry);
+                continue;
+            }
+
+            boolean remove = split[0].startsWith("-");
+            Trait trait;
+            try
+            {
+                trait = Trait.valueOf((remove ? split[0].substring(1) : split[0]).toUpperCase());
+            } catch (IllegalArgumentException ignored)
+            {
+                invalid.add(entry);
+                continue;
+            }
+
+            for (String materialString : split[1].split(","))
+            {
+                Material material = Material.matchMaterial(materialString);
+                if (material == null)
+                {
+                    invalid.add(materialString);
+                    continue;
+                }
+                if (remove)
+                    table[material.getId()] &= ~trait.mask;
+                else
+                    table[material.getId()] |= trait.mask;
+            }
+        }
+        traits = table;
+        return invalid;
+    }
+
+
+    /**
+     * Throw away all overrides
+     */
+    public static void reset()
+    {
+        traits = DEFAULTS.clone();
+    }
+
+
+    /**
+     * Classify a Material by the hardcoded rules, only called once per Material
+     */
+    private static int defaultTraits(Material material)
+    {
+        final String name = material.name();
+        int bits = 0;
+
+        if (name.endsWith("AXE") //axe & pickaxe
+                || name.endsWith("SPADE")
+                || name.endsWith("SWORD")
+                || name.endsWith("HOE")
+                || name.endsWith("BUCKET") //water, milk, lava,..
+                || material == Material.BOW
+                || material == Material.FISHING_ROD
+                || material == Material.WATCH
+                || material == Material.COMPASS
+                || material == Material.FLINT_AND_STEEL)
+            bits |= Trait.TOOL.mask;
+
+        if (name.endsWith("HELMET")
+                || name.endsWith("CHESTPLATE")
+                || name.endsWith("LEGGINGS")
+                || name.endsWith("BOOTS"))
+            bits |= Trait.ARMOR.mask;
+
+        final boolean slab = name.endsWith("STEP");
+        if (slab)
+            bits |= Trait.SLAB.mask;
+
+        if (name.endsWith("STAIRS"))
+            bits |= Trait.STAIRS.mask;
+
+        if ((material.isTransparent() &&
+                material != Material.PORTAL &&
+                material != Material.ENDER_PORTAL) ||
+                material == Material.WEB ||
+                material == Material.DAYLIGHT_DETECTOR ||
+                material == Material.TRAP_DOOR ||
+                material == Material.SIGN_POST ||
+                material == Material.WALL_SIGN ||
+                //Match all slabs besides double slab
+                (slab && !name.startsWith("DOUBLE")))
+            bits |= Trait.BREAKS_FALLING_BLOCK.mask;
+
+        if (material == Material.GRASS
+                || material == Material.DIRT
+                || material == Material.STONE
+                || material == Material.SAND
+                || material == Material.GRAVEL
+                || material == Material.MOSSY_COBBLESTONE
+                || material == Material.OBSIDIAN
+                || material == Material.COBBLESTONE
+                || material == Material.BEDROCK
+                || material == Material.AIR      //Ghast, Bat
+                || material == Material.WATER)   //Squid
+            bits |= Trait.NATURAL_OVERWORLD_SPAWN.mask;
+
+        if (material == Material.NETHERRACK
+                || material == Material.NETHER_BRICK
+                || material == Material.SOUL_SAND
+                || material == Material.GRAVEL
+                || material == Material.AIR)
+            bits |= Trait.NATURAL_NETHER_SPAWN.mask;
+
+        return bits;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.config.messages.MessageNode;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers when a Player has last been shown each message, so he doesn't get spammed with the same message.
+ * <p/>
+ * The times are stored in an array indexed by {@link MessageNode#ordinal()} and come from {@link System#nanoTime()},
+ * which doesn't jump when the system clock gets adjusted. One instance per online Player, see {@link
+ * DataStoreModule.PlayerData#getMessageThrottle()}.
+ *
+ * @author Diemex
+ */
+public class MessageThrottle
+{
+    /** A notification is repeated immediately if it's a different one, the same one only after this many nanoseconds */
+    public static final long NOTIFICATION_TIMEOUT = TimeUnit.SECONDS.toNanos(30);
+
+    /** The same tutorial message is shown at most once in this many nanoseconds */
+    public static final long TUTORIAL_TIMEOUT = TimeUnit.SECONDS.toNanos(120);
+
+    /** Marks a message that hasn't been shown yet, nanoTime can be any value including 0 */
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private static final int NODE_COUNT = MessageNode.values().length;
+
+    /** When the tutorial messages have been shown last by ordinal */
+    private final long[] tutorialShown = new long[NODE_COUNT];
+
+    /** Ordinal of the last notification, -1 if none */
+    private int lastNotification = -1;
+
+    private long lastNotificationShown = NEVER;
+
+
+    public MessageThrottle()
+    {
+        Arrays.fill(tutorialShown, NEVER);
+    }
+
+
+    /**
+     * Check if the notification may be shown and remember it as shown if so
+     *
+     * @param node notification
+     * @param now  current time from {@link System#nanoTime()}
+     *
+     * @return true if it should be shown
+     */
+    public boolean tryNotification(MessageNode node, long now)
+    {
+        if (node.ordinal() == lastNotification && now - lastNotificationShown <= NOTIFICATION_TIMEOUT)
+            return false;
+        lastNotification = node.ordinal();
+        lastNotificationShown = now;
+        return true;
+    }
+
+
+    /**
+     * Check if the tutorial message may be shown and remember it as shown if so
+     *
+     * @param node tutorial message
+     * @param now  current time from {@link System#nanoTime()}
+     *
+     * @return true if it should be shown
+     */
+    public boolean tryTutorial(MessageNode node, long now)
+    {
+        final int i = node.ordinal();
+        if (tutorialShown[i] != NEVER && now - tutorialShown[i] <= TUTORIAL_TIMEOUT)
+            return false;
+        tutorialShown[i] = now;
+        return true;
+    }
+
+
+    /**
+     * Forget when the tutorial message has been shown
+     */
+    public void reset(MessageNode node)
+    {
+        tutorialShown[node.ordinal()] = NEVER;
+    }
+}
@@ -29,15 +29,12 @@ import com.extrahardmode.config.messages.MsgCategory;
 import com.extrahardmode.service.EHMModule;
 import com.extrahardmode.service.FindAndReplace;
 import com.extrahardmode.service.PermissionNode;
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import de.diemex.scoreboardnotifier.NotificationManager;
 import org.apache.commons.lang.Validate;
 import org.bukkit.ChatColor;
 import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 
-import java.util.Calendar;
 import java.util.List;
 
 /** @author Max */
@@ -45,11 +42,10 @@ public class MsgModule extends EHMModule
 {
     private MessageConfig messages;
     private MsgPersistModule persistModule;
+    private DataStoreModule dataStore;
 
     private NotificationManager manager;
 
-    private final Table<String, MessageNode, Long> timeouts = HashBasedTable.create();
-
 
     /** Constructor */
     public MsgModule(ExtraHardMode plugin)
@@ -63,6 +59,7 @@ public class MsgModule extends EHMModule
     {
         messages = plugin.getModuleForClass(MessageConfig.class);
         persistModule = plugin.getModuleForClass(MsgPersistModule.class);
+        dataStore = plugin.getModuleForClass(DataStoreModule.class);
         manager = new NotificationManager(plugin);
         /*try
         {
@@ -79,7 +76,6 @@ public class MsgModule extends EHMModule
     @Override
     public void closing()
     {
-        timeouts.clear();
     }
 
 
@@ -94,30 +90,27 @@ public class MsgModule extends EHMModule
                 } else
                 {
                     // FEATURE: don't spam messages
-                    DataStoreModule.PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-                    long now = Calendar.getInstance().getTimeInMillis();
-
-                    if (!node.equals(playerData.lastMessageSent) || now - playerData.lastMessageTimestamp > 30000)
+                    MessageThrottle throttle = dataStore.getPlayerData(player).getMessageThrottle();
+                    if (throttle.tryNotification(node, System.nanoTime()))
                     {
                         if (popupsAreEnabled(MsgCategory.NOTIFICATION))
                             sendPopup(player, MsgCategory.NOTIFICATION, message);
                         else
                             player.sendMessage(message);
-                        playerData.lastMessageSent = node;
-                        playerData.lastMessageTimestamp = now;
                     }
 
                 }
                 break;
             case TUTORIAL:
                 Validate.notNull(player);
+                //counts are still loading in the background, better to skip a message than to show it too often
+                if (!persistModule.isLoaded(player.getName()))
+                    break;
+                MessageThrottle throttle = dataStore.getPlayerData(player).getMessageThrottle();
                 if (persistModule.getCountFor(node, player.getName()) < messages.getMsgCount(node))
                 {
-                    long now = Calendar.getInstance().getTimeInMillis();
-
-                    if (!timeouts.contains(player.getName(), node) || now - timeouts.get(player.getName(), node) > 120000) //only if contains
+                    if (throttle.tryTutorial(node, System.nanoTime()))
                     {
-                        timeouts.put(player.getName(), node, now);
                         String msgText = messages.getString(node);
                         if (manager != null)
                             sendPopup(player, MsgCategory.TUTORIAL, msgText);
@@ -126,7 +119,7 @@ public class MsgModule extends EHMModule
                         persistModule.increment(node, player.getName());
                     }
                 } else
-                    timeouts.remove(player, message);
+                    throttle.reset(node);
                 break;
             case BROADCAST:
                 plugin.getServer().broadcastMessage(message);
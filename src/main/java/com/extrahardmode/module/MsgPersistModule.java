@@ -19,6 +19,7 @@
  * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.extrahardmode.module;
 
 
@@ -26,30 +27,63 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.messages.MessageConfig;
 import com.extrahardmode.config.messages.MessageNode;
 import com.extrahardmode.config.messages.MsgCategory;
-import com.extrahardmode.service.EHMModule;
+import com.extrahardmode.service.ListenerModule;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import org.apache.commons.lang.Validate;
-
-import java.sql.*;
-import java.util.HashMap;
-import java.util.Map;
-
-/** @author Diemex */
-public class MsgPersistModule extends EHMModule
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists how often a Player has seen a message.
+ * <p/>
+ * The counts are held in memory and loaded for each Player when he joins. Changes are written back in batches on a
+ * separate thread, so the main thread never has to wait for the database.
+ *
+ * @author Diemex
+ */
+public class MsgPersistModule extends ListenerModule
 {
     private final String dbFile;
 
-    private final String msgTable = "messages";
-
-    private final String playerTable = "players";
+    /** How often to write changed counts to the db in seconds */
+    private final int flushInterval = 30;
 
     private MessageConfig messages;
 
-    /** Buffer player ids (playerName, playerId) */
-    private Map<String, Integer> playerIdBuffer;
+    /** Connection to the db, only accessed by the db thread */
+    private MsgPersistence persistence;
+
+    /** Counts of the Players that are online (playerName, message, value). Guarded by itself */
+    private Table<String, MessageNode, Integer> buffer;
+
+    /** Players for which the counts have been loaded. Guarded by buffer */
+    private Set<String> loadedPlayers;
+
+    /** Load that is still queued for a Player, a quit removes it so the result is discarded. Guarded by buffer */
+    private Map<String, Integer> pendingLoads;
 
-    /** Buffer data from the db (playerid, message, value) */
-    private Table<Integer, MessageNode, Integer> buffer;
+    /** Counter to tell loads of the same Player apart. Guarded by buffer */
+    private int loadGeneration = 0;
+
+    /** Counts which have changed since the last flush. Guarded by buffer */
+    private Table<String, MessageNode, Integer> dirty;
+
+    /** Messages which have a column in the db */
+    private List<MessageNode> trackedNodes;
+
+    /** Single thread which does all the db work */
+    private ScheduledExecutorService dbExecutor;
 
 
     /**
@@ -67,167 +101,246 @@ public class MsgPersistModule extends EHMModule
     @Override
     public void starting()
     {
+        super.starting();
         messages = plugin.getModuleForClass(MessageConfig.class);
-        playerIdBuffer = new HashMap<String, Integer>();
-        testJDBC();
-        initializeTables();
+        buffer = HashBasedTable.create();
+        dirty = HashBasedTable.create();
+        loadedPlayers = new HashSet<String>();
+        pendingLoads = new HashMap<String, Integer>();
+        trackedNodes = new ArrayList<MessageNode>();
+        for (MessageNode node : MessageNode.getMessageNodes())
+        {
+            MsgCategory cat = messages.getCat(node);
+            if (node.getColumnName() != null && (cat == MsgCategory.TUTORIAL || cat == MsgCategory.ONE_TIME))
+                trackedNodes.add(node);
+        }
+
+        persistence = new MsgPersistence(dbFile, trackedNodes);
+        dbExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "ExtraHardMode-MsgPersist");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        dbExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    persistence.open();
+                } catch (SQLException e)
+                {
+                    plugin.getLogger().severe("Couldn't open " + dbFile + " : " + e);
+                    persistence.close();
+                }
+            }
+        });
+        dbExecutor.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeCounts(drainDirty(null));
+            }
+        }, flushInterval, flushInterval, TimeUnit.SECONDS);
+
+        //Players that are already online, e.g. after a reload
+        for (Player player : plugin.getServer().getOnlinePlayers())
+            loadAsync(player.getName());
     }
 
 
     @Override
     public void closing()
     {
-        playerIdBuffer = null;
+        super.closing();
+        if (dbExecutor != null)
+        {
+            //Final flush, the executor finishes all queued tasks before shutting down
+            final Table<String, MessageNode, Integer> remaining = drainDirty(null);
+            dbExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    writeCounts(remaining);
+                    persistence.close();
+                }
+            });
+            dbExecutor.shutdown();
+            try
+            {
+                if (!dbExecutor.awaitTermination(10, TimeUnit.SECONDS))
+                    plugin.getLogger().warning("Timed out while saving message counts to " + dbFile);
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            dbExecutor = null;
+        }
+        synchronized (buffer)
+        {
+            buffer.clear();
+            loadedPlayers.clear();
+            pendingLoads.clear();
+        }
+    }
+
+
+    /** Load the counts of joining Players in the background */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerJoin(PlayerJoinEvent event)
+    {
+        loadAsync(event.getPlayer().getName());
     }
 
 
-    /** Make sure JDBC is enabled/loaded */
-    protected void testJDBC()
+    /** Write the counts of leaving Players and remove them from memory */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerQuit(PlayerQuitEvent event)
     {
-        try
-        {
-            Class.forName("org.sqlite.JDBC");
-        } catch (ClassNotFoundException e)
+        final String playerName = event.getPlayer().getName();
+        final Table<String, MessageNode, Integer> changed = drainDirty(playerName);
+        synchronized (buffer)
         {
-            plugin.getLogger().severe("JDBC Driver not found : " + e);
-            closing();
+            buffer.row(playerName).clear();
+            loadedPlayers.remove(playerName);
+            pendingLoads.remove(playerName);
         }
+        dbExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                writeCounts(changed);
+                persistence.forgetPlayer(playerName);
+            }
+        });
     }
 
 
     /**
-     * Get the id of the Player. Buffers id in a Map. Creates new id if Player not in the db yet.
+     * Load the counts of a Player on the db thread
      *
      * @param playerName name of the Player
-     *
-     * @return id of Player
      */
-    private int getPlayerId(String playerName)
+    private void loadAsync(final String playerName)
     {
-        if (playerIdBuffer.containsKey(playerName))
-            return playerIdBuffer.get(playerName);
-        int id = 0;
-
-        Connection conn = null;
-        Statement aStatement;
-        try
+        final int generation;
+        synchronized (buffer)
         {
-            conn = retrieveConnection();
-            aStatement = conn.createStatement();
-            String playerIdQuery = String.format(
-                    "SELECT id FROM %s WHERE %s = %s", playerTable, "name", '"' + playerName + '"');
-
-            ResultSet resultSet = aStatement.executeQuery(playerIdQuery);
-            if (resultSet.next())
-                id = resultSet.getInt("id");
-
-            if (id == 0) //Create a new Player
+            generation = ++loadGeneration;
+            pendingLoads.put(playerName, generation);
+        }
+        dbExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
             {
-                String newPlayerQuery = String.format( //new id
-                        "INSERT INTO %s (%s) VALUES (%s)", playerTable, "name", '"' + playerName + '"');
-                aStatement.executeUpdate(newPlayerQuery);
-
-                //Get the id of the just inserted row, I tried getGeneratedKeys() but that wasn't supported by jdbc
-                resultSet = aStatement.executeQuery(playerIdQuery);
-                if (resultSet.next())
-                    id = resultSet.getInt("id");
-
-                String newPlayerDataQuery = String.format( //empty row in messages
-                        "INSERT INTO %s (%s) VALUES (%s)", msgTable, "id", id);
-                aStatement.executeUpdate(newPlayerDataQuery);
-                aStatement.close();
+                Map<MessageNode, Integer> counts = loadCounts(playerName);
+                synchronized (buffer)
+                {
+                    //the Player quit (and maybe rejoined) before we got to load his counts
+                    Integer pending = pendingLoads.get(playerName);
+                    if (pending == null || pending != generation)
+                        return;
+                    pendingLoads.remove(playerName);
+                    for (Map.Entry<MessageNode, Integer> entry : counts.entrySet())
+                    {   //don't overwrite counts that have been set in the meantime
+                        if (!buffer.contains(playerName, entry.getKey()))
+                            buffer.put(playerName, entry.getKey(), entry.getValue());
+                    }
+                    loadedPlayers.add(playerName);
+                }
             }
+        });
+    }
 
-            playerIdBuffer.put(playerName, id);
-        } catch (SQLException e)
-        {
-            e.printStackTrace();
-        } finally
+
+    /**
+     * Remove the changed counts so they can be written to the db
+     *
+     * @param playerName only drain this Player, null for all Players
+     *
+     * @return a copy of the changed counts
+     */
+    private Table<String, MessageNode, Integer> drainDirty(String playerName)
+    {
+        Table<String, MessageNode, Integer> drained = HashBasedTable.create();
+        synchronized (buffer)
         {
-            try
+            if (playerName == null)
             {
-                if (conn != null) conn.close();
-            } catch (SQLException e)
+                drained.putAll(dirty);
+                dirty.clear();
+            } else
             {
-                e.printStackTrace();
+                for (Map.Entry<MessageNode, Integer> entry : dirty.row(playerName).entrySet())
+                    drained.put(playerName, entry.getKey(), entry.getValue());
+                dirty.row(playerName).clear();
             }
         }
-
-        return id;
+        return drained;
     }
 
 
     /**
-     * Get a connection to our database
+     * Read all counts of a Player from the db. Only call from the db thread.
      *
-     * @return a connection
+     * @param playerName player to load
+     *
+     * @return the counts of all tracked messages, empty if the db isn't available
      */
-    private Connection retrieveConnection() throws SQLException
+    private Map<MessageNode, Integer> loadCounts(String playerName)
     {
-        return DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+        try
+        {
+            if (persistence.isOpen())
+                return persistence.loadCounts(playerName);
+        } catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        return Collections.emptyMap();
     }
 
 
-    /** Creates tables if they do not exist. */
-    private void initializeTables()
+    /**
+     * Write the given counts in one transaction. Only call from the db thread.
+     *
+     * @param counts (playerName, message, value) to write
+     */
+    private void writeCounts(Table<String, MessageNode, Integer> counts)
     {
-        Connection conn = null;
         try
         {
-            conn = retrieveConnection();
-            Statement statement = conn.createStatement();
-            statement.setQueryTimeout(30);
-
-            //One table holding the playername id relation
-            String playerQuery = String.format(
-                    "CREATE TABLE IF NOT EXISTS %s (id INTEGER PRIMARY KEY AUTOINCREMENT, %s STRING)", playerTable, "name");
-            statement.executeUpdate(playerQuery);
-
-            //One column for every message
-            StringBuilder columns = new StringBuilder();
-            for (MessageNode node : MessageNode.getMessageNodes())
-            {
-                MsgCategory cat = messages.getCat(node);
-                if (node.getColumnName() != null && (cat == MsgCategory.TUTORIAL || cat == MsgCategory.ONE_TIME))
-                {
-                    columns.append(',');
-                    columns.append(node.getColumnName());
-                }
-            }
-
-            String msgQuery = String.format(
-                    "CREATE TABLE IF NOT EXISTS %s (id INTEGER PRIMARY KEY UNIQUE %s)", msgTable, columns);
-            statement.executeUpdate(msgQuery);
-
-            //Check if all columns are present
-            DatabaseMetaData dmd = conn.getMetaData();
-            //Add missing columns
-            for (MessageNode node : MessageNode.getMessageNodes())
-            {
-                MsgCategory cat = messages.getCat(node);
-                if (cat == MsgCategory.TUTORIAL || cat == MsgCategory.ONE_TIME)
-                {
-                    ResultSet set = dmd.getColumns(null, null, msgTable, node.getColumnName());
-                    if (!set.next())
-                    {
-                        String updateQuery = String.format(
-                                "ALTER TABLE %s ADD COLUMN %s", msgTable, node.getColumnName());
-                        statement.executeUpdate(updateQuery);
-                    }
-                }
-            }
+            if (persistence.isOpen())
+                persistence.writeCounts(counts);
         } catch (SQLException e)
         {
             e.printStackTrace();
-        } finally
+        }
+    }
+
+
+    /**
+     * Has the data of this Player been loaded from the db yet
+     *
+     * @param playerName player to check
+     *
+     * @return if the counts for this player are in memory
+     */
+    public boolean isLoaded(String playerName)
+    {
+        synchronized (buffer)
         {
-            try
-            {
-                if (conn != null) conn.close();
-            } catch (SQLException e)
-            {
-                e.printStackTrace();
-            }
+            return loadedPlayers.contains(playerName);
         }
     }
 
@@ -240,51 +353,34 @@ public class MsgPersistModule extends EHMModule
      */
     public void increment(MessageNode node, String playerName)
     {
-        int playerId = getPlayerId(playerName);
-        int value = getCountFor(node, playerId);
-
-        set(node, playerId, ++value);
+        synchronized (buffer)
+        {
+            set(node, playerName, getCountFor(node, playerName) + 1);
+        }
     }
 
 
     /**
      * Set the count of a certain message to a certain value
      *
-     * @param node     node to set the count for
-     * @param playerId player for whom we are tracking the count
-     * @param value    value to set
+     * @param node       node to set the count for
+     * @param playerName player for whom we are tracking the count
+     * @param value      value to set
      */
-    private void set(MessageNode node, int playerId, int value)
+    private void set(MessageNode node, String playerName, int value)
     {
         Validate.isTrue(value >= 0, "Count has to be positive");
-        Connection conn = null;
-        try
+        synchronized (buffer)
         {
-            conn = retrieveConnection();
-            Statement statement = conn.createStatement();
-
-            //Set the count to the provided value
-            String setQuery = String.format(
-                    "UPDATE %s SET %s = %s WHERE id = %s", msgTable, node.getColumnName(), value, playerId);
-            statement.execute(setQuery);
-        } catch (SQLException e)
-        {
-            e.printStackTrace();
-        } finally
-        {
-            try
-            {
-                if (conn != null) conn.close();
-            } catch (SQLException e)
-            {
-                e.printStackTrace();
-            }
+            buffer.put(playerName, node, value);
+            dirty.put(playerName, node, value);
         }
     }
 
 
     /**
-     * Get the count of a message
+     * Get the count of a message. The counts are loaded in the background when a Player joins, check {@link
+     * #isLoaded(String)} first.
      *
      * @param node       which message
      * @param playerName player which has seen this message
@@ -293,54 +389,11 @@ public class MsgPersistModule extends EHMModule
      */
     public int getCountFor(MessageNode node, String playerName)
     {
-        return getCountFor(node, getPlayerId(playerName));
-    }
-
-
-    /**
-     * Get how often a message has been displayed
-     *
-     * @param node     to get the count for
-     * @param playerId id of the player to get the count for
-     *
-     * @return how often this message has been displayed
-     */
-    private int getCountFor(MessageNode node, int playerId)
-    {
-        Connection conn = null;
-        int value = 0;
-
-        try
-        {
-            conn = retrieveConnection();
-            Statement statement = conn.createStatement();
-
-            String select = String.format("SELECT * FROM %s WHERE %s = %s", msgTable, "id", playerId);
-
-            ResultSet result = statement.executeQuery(select);
-            if (result.next())
-                value = result.getInt(node.getColumnName());
-            else //create the missing row
-            {
-                String newPlayerDataQuery = String.format( //empty row in messages
-                        "INSERT INTO %s (%s) VALUES (%s)", msgTable, "id", playerId);
-                conn.createStatement().executeUpdate(newPlayerDataQuery);
-            }
-        } catch (SQLException e)
-        {
-            e.printStackTrace();
-        } finally
+        synchronized (buffer)
         {
-            try
-            {
-                if (conn != null) conn.close();
-            } catch (SQLException e)
-            {
-                e.printStackTrace();
-            }
+            Integer value = buffer.get(playerName, node);
+            return value != null ? value : 0;
         }
-
-        return value;
     }
 
 
@@ -351,13 +404,7 @@ public class MsgPersistModule extends EHMModule
      */
     public void resetAll(String playerName)
     {
-        int playerId = getPlayerId(playerName);
-        for (MessageNode node : MessageNode.values())
-        {
-            if (node.getColumnName() != null)
-            {
-                set(node, playerId, 0);
-            }
-        }
+        for (MessageNode node : trackedNodes)
+            set(node, playerName, 0);
     }
 }
@@ -0,0 +1,307 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.config.messages.MessageNode;
+import com.google.common.collect.Table;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Database access for the message counts.
+ * <p/>
+ * Holds one connection to the sqlite db for its whole lifetime and caches all prepared statements. The db runs in WAL
+ * journal mode, so writes don't block readers. Not thread safe, all calls have to come from the same thread.
+ *
+ * @author Diemex
+ */
+public class MsgPersistence
+{
+    private final String dbFile;
+
+    private final String msgTable = "messages";
+
+    private final String playerTable = "players";
+
+    /** Messages which have a column in the db */
+    private final List<MessageNode> trackedNodes;
+
+    /** Buffer player ids (playerName, playerId) of the players who are online */
+    private final Map<String, Integer> playerIdBuffer = new HashMap<String, Integer>();
+
+    private Connection conn;
+
+    private PreparedStatement selectPlayerId;
+
+    private PreparedStatement insertPlayer;
+
+    private PreparedStatement lastInsertId;
+
+    private PreparedStatement insertMessageRow;
+
+    private PreparedStatement selectCounts;
+
+    /** One update statement per column */
+    private final Map<MessageNode, PreparedStatement> updateCount = new EnumMap<MessageNode, PreparedStatement>(MessageNode.class);
+
+
+    /**
+     * Constructor
+     *
+     * @param dbFile       path to the sqlite file
+     * @param trackedNodes messages which should have a column in the db
+     */
+    public MsgPersistence(String dbFile, List<MessageNode> trackedNodes)
+    {
+        this.dbFile = dbFile;
+        this.trackedNodes = trackedNodes;
+    }
+
+
+    /**
+     * Open the connection, create missing tables/columns and prepare all statements
+     */
+    public void open() throws SQLException
+    {
+        try
+        {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e)
+        {
+            throw new SQLException("JDBC Driver not found : " + e);
+        }
+
+        conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
+        Statement statement = conn.createStatement();
+        try
+        {
+            statement.setQueryTimeout(30);
+            //Writers don't block readers and commits are a lot cheaper
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+        } finally
+        {
+            statement.close();
+        }
+        initializeTables();
+
+        selectPlayerId = conn.prepareStatement(String.format("SELECT id FROM %s WHERE name = ?", playerTable));
+        insertPlayer = conn.prepareStatement(String.format("INSERT INTO %s (name) VALUES (?)", playerTable));
+        //The driver doesn't support getGeneratedKeys() or RETURNING, but the rowid of the last insert on this connection is the id
+        lastInsertId = conn.prepareStatement("SELECT last_insert_rowid()");
+        insertMessageRow = conn.prepareStatement(String.format("INSERT OR IGNORE INTO %s (id) VALUES (?)", msgTable));
+        selectCounts = conn.prepareStatement(String.format("SELECT * FROM %s WHERE id = ?", msgTable));
+        for (MessageNode node : trackedNodes)
+            updateCount.put(node, conn.prepareStatement(String.format("UPDATE %s SET %s = ? WHERE id = ?", msgTable, node.getColumnName())));
+    }
+
+
+    /**
+     * Close all statements and the connection
+     */
+    public void close()
+    {
+        try
+        {
+            if (conn != null)
+                conn.close(); //closes all statements aswell
+        } catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+        conn = null;
+        updateCount.clear();
+        playerIdBuffer.clear();
+    }
+
+
+    /** Is the connection open */
+    public boolean isOpen()
+    {
+        return conn != null;
+    }
+
+
+    /** Creates tables if they do not exist. */
+    private void initializeTables() throws SQLException
+    {
+        Statement statement = conn.createStatement();
+        try
+        {
+            statement.setQueryTimeout(30);
+
+            //One table holding the playername id relation
+            String playerQuery = String.format(
+                    "CREATE TABLE IF NOT EXISTS %s (id INTEGER PRIMARY KEY AUTOINCREMENT, %s STRING)", playerTable, "name");
+            statement.executeUpdate(playerQuery);
+
+            //One column for every message
+            StringBuilder columns = new StringBuilder();
+            for (MessageNode node : trackedNodes)
+            {
+                columns.append(',');
+                columns.append(node.getColumnName());
+            }
+
+            String msgQuery = String.format(
+                    "CREATE TABLE IF NOT EXISTS %s (id INTEGER PRIMARY KEY UNIQUE %s)", msgTable, columns);
+            statement.executeUpdate(msgQuery);
+
+            //Check if all columns are present
+            DatabaseMetaData dmd = conn.getMetaData();
+            //Add missing columns
+            for (MessageNode node : trackedNodes)
+            {
+                ResultSet set = dmd.getColumns(null, null, msgTable, node.getColumnName());
+                if (!set.next())
+                {
+                    String updateQuery = String.format(
+                            "ALTER TABLE %s ADD COLUMN %s", msgTable, node.getColumnName());
+                    statement.executeUpdate(updateQuery);
+                }
+                set.close();
+            }
+        } finally
+        {
+            statement.close();
+        }
+    }
+
+
+    /**
+     * Get the id of the Player. Buffers id in a Map. Creates new id if Player not in the db yet.
+     *
+     * @param playerName name of the Player
+     *
+     * @return id of Player
+     */
+    public int getPlayerId(String playerName) throws SQLException
+    {
+        Integer buffered = playerIdBuffer.get(playerName);
+        if (buffered != null)
+            return buffered;
+        int id = 0;
+
+        selectPlayerId.setString(1, playerName);
+        ResultSet resultSet = selectPlayerId.executeQuery();
+        if (resultSet.next())
+            id = resultSet.getInt(1);
+        resultSet.close();
+
+        if (id == 0) //Create a new Player
+        {
+            insertPlayer.setString(1, playerName);
+            insertPlayer.executeUpdate();
+
+            resultSet = lastInsertId.executeQuery();
+            if (resultSet.next())
+                id = resultSet.getInt(1);
+            resultSet.close();
+
+            insertMessageRow.setInt(1, id);
+            insertMessageRow.executeUpdate();
+        }
+
+        playerIdBuffer.put(playerName, id);
+        return id;
+    }
+
+
+    /**
+     * Remove the buffered id of a Player who left, so the buffer only holds the players who are online
+     *
+     * @param playerName name of the Player
+     */
+    public void forgetPlayer(String playerName)
+    {
+        playerIdBuffer.remove(playerName);
+    }
+
+
+    /**
+     * Read all counts of a Player from the db
+     *
+     * @param playerName player to load
+     *
+     * @return the counts of all tracked messages
+     */
+    public Map<MessageNode, Integer> loadCounts(String playerName) throws SQLException
+    {
+        Map<MessageNode, Integer> counts = new EnumMap<MessageNode, Integer>(MessageNode.class);
+        int playerId = getPlayerId(playerName);
+
+        selectCounts.setInt(1, playerId);
+        ResultSet result = selectCounts.executeQuery();
+        if (result.next())
+        {
+            for (MessageNode node : trackedNodes)
+                counts.put(node, result.getInt(node.getColumnName()));
+        } else //create the missing row
+        {
+            insertMessageRow.setInt(1, playerId);
+            insertMessageRow.executeUpdate();
+        }
+        result.close();
+        return counts;
+    }
+
+
+    /**
+     * Write the given counts in one transaction
+     *
+     * @param counts (playerName, message, value) to write
+     */
+    public void writeCounts(Table<String, MessageNode, Integer> counts) throws SQLException
+    {
+        if (counts.isEmpty())
+            return;
+        conn.setAutoCommit(false);
+        try
+        {
+            Set<PreparedStatement> used = new HashSet<PreparedStatement>();
+            for (Table.Cell<String, MessageNode, Integer> cell : counts.cellSet())
+            {
+                PreparedStatement update = updateCount.get(cell.getColumnKey());
+                if (update == null) //not a tracked message
+                    continue;
+                update.setInt(1, cell.getValue());
+                update.setInt(2, getPlayerId(cell.getRowKey()));
+                update.addBatch();
+                used.add(update);
+            }
+            for (PreparedStatement update : used)
+                update.executeBatch();
+            conn.commit();
+        } catch (SQLException e)
+        {
+            conn.rollback();
+            playerIdBuffer.clear(); //might contain ids of rolled back inserts
+            throw e;
+        } finally
+        {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pending physics checks of one world.
+ * <p/>
+ * Checks are keyed by their packed block coordinate, so a block which is queued multiple times is only checked once. The
+ * recursion depth travels with the queued check instead of creating a new task for every block.
+ *
+ * @author Diemex
+ */
+public class PhysicsQueue
+{
+    /** Delays are bucketed in a ring, longer delays get clamped */
+    private static final int MAX_DELAY = 15;
+
+    /** Pending checks by packed coordinate */
+    private final Map<Long, PendingCheck> pending = new HashMap<Long, PendingCheck>();
+
+    /** Keys of checks that will be due in tick % ring.length */
+    private final ArrayDeque<Long>[] ring;
+
+    /** Due checks that didn't fit into the budget of a previous tick */
+    private final ArrayDeque<Long> ready = new ArrayDeque<Long>();
+
+    /** Last tick we moved the due checks to ready */
+    private long lastTick = -1;
+
+
+    @SuppressWarnings("unchecked")
+    public PhysicsQueue()
+    {
+        ring = new ArrayDeque[MAX_DELAY + 1];
+        for (int i = 0; i < ring.length; i++)
+            ring[i] = new ArrayDeque<Long>();
+    }
+
+
+    /**
+     * Queue a physics check. If the block is already queued the checks get merged.
+     *
+     * @param key            packed coordinate of the block
+     * @param recursionCount how many times to continue checking neighbours
+     * @param force          check neighbours even if this block doesn't fall
+     * @param wait           ticks to wait
+     * @param currentTick    the current tick
+     */
+    public void add(long key, int recursionCount, boolean force, int wait, long currentTick)
+    {
+        wait = Math.max(0, Math.min(wait, MAX_DELAY));
+        long due = currentTick + wait;
+        PendingCheck check = pending.get(key);
+        if (check == null)
+        {
+            pending.put(key, new PendingCheck(recursionCount, force, due));
+        } else
+        {
+            check.recursionCount = Math.max(check.recursionCount, recursionCount);
+            check.force |= force;
+            if (due >= check.due) //already queued in the same or an earlier bucket
+                return;
+            check.due = due;
+        }
+        if (wait == 0 && lastTick == currentTick) //the bucket for this tick has already been drained
+            ready.add(key);
+        else
+            ring[(int) (due % ring.length)].add(key);
+    }
+
+
+    /**
+     * Get the next check which is due
+     *
+     * @param currentTick the current tick
+     * @param keyOut      the key of the returned check gets written to keyOut[0]
+     *
+     * @return the check or null if nothing is due
+     */
+    public PendingCheck poll(long currentTick, long[] keyOut)
+    {
+        if (lastTick != currentTick)
+        {   //catch up on all buckets since the last call
+            for (long tick = Math.max(lastTick + 1, currentTick - MAX_DELAY); tick <= currentTick; tick++)
+            {
+                ArrayDeque<Long> bucket = ring[(int) (tick % ring.length)];
+                ready.addAll(bucket);
+                bucket.clear();
+            }
+            lastTick = currentTick;
+        }
+
+        Long key;
+        while ((key = ready.poll()) != null)
+        {
+            PendingCheck check = pending.get(key);
+            //already processed
+            if (check == null)
+                continue;
+            //drained early because the task skipped ticks
+            if (check.due > currentTick)
+            {
+                ring[(int) (check.due % ring.length)].add(key);
+                continue;
+            }
+            pending.remove(key);
+            keyOut[0] = key;
+            return check;
+        }
+        return null;
+    }
+
+
+    /** How many checks are pending */
+    public int size()
+    {
+        return pending.size();
+    }
+
+
+    /** Remove all pending checks */
+    public void clear()
+    {
+        pending.clear();
+        ready.clear();
+        for (ArrayDeque<Long> bucket : ring)
+            bucket.clear();
+    }
+
+
+    /** A queued physics check */
+    public static class PendingCheck
+    {
+        /** Number of times to continue checking the neighbours */
+        public int recursionCount;
+
+        /** Check the neighbours no matter if the center falls */
+        public boolean force;
+
+        /** Tick at which this check is due */
+        long due;
+
+
+        PendingCheck(int recursionCount, boolean force, long due)
+        {
+            this.recursionCount = recursionCount;
+            this.force = force;
+            this.due = due;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Players of one world bucketed by the chunk they are in. Proximity queries only look at the chunks in range instead of
+ * all players of the world.
+ * <p/>
+ * Has to be kept up to date by calling {@link #update} whenever a player enters a new chunk, this is done by the {@link
+ * PlayerGridModule}. Only accessed from the main thread.
+ *
+ * @author Diemex
+ */
+public class PlayerGrid
+{
+    /** Players by packed chunk coordinates */
+    private final Map<Long, List<Player>> cells = new HashMap<Long, List<Player>>();
+
+    /** Packed chunk of every player in this grid by name */
+    private final Map<String, Long> cellOf = new HashMap<String, Long>();
+
+
+    /**
+     * Put the player in the bucket of the chunk of the location, does nothing if he is already in this bucket
+     *
+     * @param player   player to track
+     * @param location current location of the player in the world of this grid
+     */
+    public void update(Player player, Location location)
+    {
+        final long cell = CoordHelper.packChunk(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        Long previous = cellOf.get(player.getName());
+        if (previous != null)
+        {
+            if (previous == cell)
+                return;
+            removeFromCell(previous, player.getName());
+        }
+        cellOf.put(player.getName(), cell);
+        List<Player> players = cells.get(cell);
+        if (players == null)
+        {
+            players = new ArrayList<Player>(2);
+            cells.put(cell, players);
+        }
+        players.add(player);
+    }
+
+
+    /**
+     * Stop tracking the player, e.g. when he left this world
+     */
+    public void remove(Player player)
+    {
+        Long previous = cellOf.remove(player.getName());
+        if (previous != null)
+            removeFromCell(previous, player.getName());
+    }
+
+
+    private void removeFromCell(long cell, String playerName)
+    {
+        List<Player> players = cells.get(cell);
+        if (players == null)
+            return;
+        for (int i = 0; i < players.size(); i++)
+        {
+            if (players.get(i).getName().equals(playerName))
+            {
+                players.remove(i);
+                break;
+            }
+        }
+        if (players.isEmpty())
+            cells.remove(cell);
+    }
+
+
+    /**
+     * Is there at least one player closer than the given distance to the location
+     *
+     * @param loc      location around which to check
+     * @param distance distance around the location to check for players
+     */
+    public boolean anyWithin(Location loc, double distance)
+    {
+        return find(loc, distance, null);
+    }
+
+
+    /**
+     * Get all players closer than the given distance to the location
+     *
+     * @param loc      location around which to check
+     * @param distance distance around the location to check for players
+     *
+     * @return the found players, empty if there are none
+     */
+    public List<Player> playersWithin(Location loc, double distance)
+    {
+        List<Player> found = new ArrayList<Player>();
+        find(loc, distance, found);
+        return found;
+    }
+
+
+    /**
+     * Look at all chunks in range of the location
+     *
+     * @param found add all players in range to this list, if null return on the first player in range
+     *
+     * @return if a player has been found
+     */
+    private boolean find(Location loc, double distance, List<Player> found)
+    {
+        if (cells.isEmpty())
+            return false;
+        final double x = loc.getX(), y = loc.getY(), z = loc.getZ();
+        final double squared = distance * distance;
+        final int minX = (int) Math.floor(x - distance) >> 4, maxX = (int) Math.floor(x + distance) >> 4;
+        final int minZ = (int) Math.floor(z - distance) >> 4, maxZ = (int) Math.floor(z + distance) >> 4;
+
+        boolean any = false;
+        for (int cx = minX; cx <= maxX; cx++)
+        {
+            for (int cz = minZ; cz <= maxZ; cz++)
+            {
+                List<Player> players = cells.get(CoordHelper.packChunk(cx, cz));
+                if (players == null)
+                    continue;
+                for (Player player : players)
+                {
+                    Location playerLoc = player.getLocation();
+                    double dx = playerLoc.getX() - x, dy = playerLoc.getY() - y, dz = playerLoc.getZ() - z;
+                    if (dx * dx + dy * dy + dz * dz < squared)
+                    {
+                        if (found == null)
+                            return true;
+                        found.add(player);
+                        any = true;
+                    }
+                }
+            }
+        }
+        return any;
+    }
+
+
+    /** Amount of players in this grid */
+    public int size()
+    {
+        return cellOf.size();
+    }
+
+
+    public void clear()
+    {
+        cells.clear();
+        cellOf.clear();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.service.ListenerModule;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.player.*;
+
+/**
+ * Keeps the {@link PlayerGrid}s of all worlds up to date, players are only moved to a different bucket when they enter
+ * a new chunk.
+ *
+ * @author Diemex
+ */
+public class PlayerGridModule extends ListenerModule
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public PlayerGridModule(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        EntityHelper.clearPlayerGrids();
+        for (Player player : plugin.getServer().getOnlinePlayers())
+            EntityHelper.getPlayerGrid(player.getWorld()).update(player, player.getLocation());
+    }
+
+
+    private void move(Player player, Location from, Location to)
+    {
+        if (from.getWorld() != to.getWorld())
+            EntityHelper.getPlayerGrid(from.getWorld()).remove(player);
+        EntityHelper.getPlayerGrid(to.getWorld()).update(player, to);
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event)
+    {
+        Player player = event.getPlayer();
+        EntityHelper.getPlayerGrid(player.getWorld()).update(player, player.getLocation());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event)
+    {
+        Player player = event.getPlayer();
+        EntityHelper.getPlayerGrid(player.getWorld()).remove(player);
+    }
+
+
+    /**
+     * Most moves stay in the same chunk, these don't touch the grid at all
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event)
+    {
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (((from.getBlockX() ^ to.getBlockX()) >> 4) != 0 || ((from.getBlockZ() ^ to.getBlockZ()) >> 4) != 0 || from.getWorld() != to.getWorld())
+            move(event.getPlayer(), from, to);
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event)
+    {
+        move(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event)
+    {
+        move(event.getPlayer(), event.getPlayer().getLocation(), event.getRespawnLocation());
+    }
+
+
+    /**
+     * Portals and plugins which change the world of a player without a teleport
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event)
+    {
+        Player player = event.getPlayer();
+        EntityHelper.getPlayerGrid(event.getFrom()).remove(player);
+        EntityHelper.getPlayerGrid(player.getWorld()).update(player, player.getLocation());
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        EntityHelper.clearPlayerGrids();
+    }
+}
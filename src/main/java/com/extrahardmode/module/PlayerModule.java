@@ -87,7 +87,8 @@ public class PlayerModule extends EHMModule
 
 
     /**
-     * Calculates the weight of the players inventory with the given amount of weight per item
+     * Calculates the weight of the players inventory with the given amount of weight per item. Goes through the whole
+     * inventory, use the {@link EncumbranceTracker} on hot paths.
      *
      * @param armorPoints     Points per piece of worn armor
      * @param inventoryPoints Points per full stack of one item
@@ -113,7 +114,7 @@ public class PlayerModule extends EHMModule
             if (itemStack != null && itemStack.getType() != Material.AIR)
             {
                 float addWeight = 0.0F;
-                if (BlockModule.isTool(itemStack.getType()))
+                if (Encumbrance.isTool(itemStack.getTypeId()))
                 {
                     addWeight += toolPoints;
                 } else
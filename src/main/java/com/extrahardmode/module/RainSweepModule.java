@@ -0,0 +1,382 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
+import com.extrahardmode.service.ListenerModule;
+import com.extrahardmode.service.Timings;
+import com.extrahardmode.task.RainSweepTask;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.util.*;
+
+/**
+ * Washes away exposed torches and covers exposed crops in snow when a storm starts.
+ * <p/>
+ * There is one sweep per world which works through the loaded chunks under a time budget per tick. The chunks are
+ * scanned by the {@link ChunkScanService}. Chunks that have been swept and didn't change since then are skipped in the
+ * next storm.
+ *
+ * @author Diemex
+ */
+public class RainSweepModule extends ListenerModule
+{
+    private RootConfig CFG;
+
+    /** Chunks which haven't changed since they have been swept, by World */
+    private final Map<World, Set<Long>> cleanChunks = new WeakHashMap<World, Set<Long>>();
+
+    /** Task ids of the running sweeps by World */
+    private final Map<World, Integer> sweeps = new WeakHashMap<World, Integer>();
+
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public RainSweepModule(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+
+    @Override
+    public void starting()
+    {
+        super.starting();
+        CFG = plugin.getModuleForClass(RootConfig.class);
+    }
+
+
+    /**
+     * Start sweeping all loaded chunks of the given world, a running sweep will be restarted.
+     *
+     * @param world world in which a storm started
+     */
+    public void startSweep(World world)
+    {
+        stopSweep(world);
+        Chunk[] chunks = world.getLoadedChunks();
+        if (chunks.length == 0)
+            return;
+
+        ArrayDeque<Long> queue = new ArrayDeque<Long>(chunks.length);
+        int startOffset = plugin.getRandom().nextInt(chunks.length);
+        for (int i = 0; i < chunks.length; i++)
+        {
+            Chunk chunk = chunks[(startOffset + i) % chunks.length];
+            queue.add(CoordHelper.packChunk(chunk.getX(), chunk.getZ()));
+        }
+
+        int id = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, Timings.wrap("RainSweepTask", new RainSweepTask(this, world, queue)), 1L, 1L);
+        // check if it was scheduled. If not, notify in console.
+        if (id == -1)
+            plugin.getLogger().severe("Failed schedule RainSweep task!");
+        else
+            sweeps.put(world, id);
+    }
+
+
+    /**
+     * Stop the sweep of the given world if there is one running
+     *
+     * @param world world in which the storm ended
+     */
+    public void stopSweep(World world)
+    {
+        Integer id = sweeps.remove(world);
+        if (id != null)
+            plugin.getServer().getScheduler().cancelTask(id);
+    }
+
+
+    /**
+     * Has the chunk been swept and not been modified since
+     *
+     * @param world world of the chunk
+     * @param key   packed chunk coordinates
+     */
+    public boolean isClean(World world, long key)
+    {
+        Set<Long> clean = cleanChunks.get(world);
+        return clean != null && clean.contains(key);
+    }
+
+
+    /**
+     * Remove exposed torches and cover exposed crops with snow in the given chunk. The chunk gets scanned on a worker
+     * thread, the blocks are changed a bit later on the main thread.
+     *
+     * @param chunk chunk to sweep
+     */
+    public void sweepChunk(Chunk chunk)
+    {
+        World world = chunk.getWorld();
+        final WorldSettings settings = CFG.getSettings(world);
+        final boolean rainBreaksTorches = settings.getBoolean(RootNode.RAIN_BREAKS_TORCHES);
+        final boolean snowBreaksCrops = settings.getBoolean(RootNode.WEAK_FOOD_CROPS) && settings.getBoolean(RootNode.SNOW_BREAKS_CROPS);
+
+        final int blockX = chunk.getX() << 4, blockZ = chunk.getZ() << 4;
+        SnapshotArea area = SnapshotArea.capture(world, blockX, blockZ, blockX + 15, blockZ + 15);
+
+        /* Changes after the capture mark the chunk dirty again */
+        Set<Long> clean = cleanChunks.get(world);
+        if (clean == null)
+        {
+            clean = new HashSet<Long>();
+            cleanChunks.put(world, clean);
+        }
+        clean.add(CoordHelper.packChunk(chunk.getX(), chunk.getZ()));
+
+        plugin.getModuleForClass(ChunkScanService.class).submit(area, new RainScan(blockX, blockZ, rainBreaksTorches, snowBreaksCrops));
+    }
+
+
+    /**
+     * Finds exposed torches and crops in a chunk
+     */
+    private class RainScan extends ChunkScan
+    {
+        private final int blockX, blockZ;
+
+        private final boolean rainBreaksTorches, snowBreaksCrops;
+
+
+        RainScan(int blockX, int blockZ, boolean rainBreaksTorches, boolean snowBreaksCrops)
+        {
+            this.blockX = blockX;
+            this.blockZ = blockZ;
+            this.rainBreaksTorches = rainBreaksTorches;
+            this.snowBreaksCrops = snowBreaksCrops;
+        }
+
+
+        @Override
+        public void scan(SnapshotArea area, BlockList result)
+        {
+            /* Start at the highest section that contains any blocks */
+            final int topY = area.getTopY(blockX, blockZ);
+            if (topY <= 0)
+                return;
+
+            for (int x = blockX; x < blockX + 16; x++)
+            {
+                for (int z = blockZ; z < blockZ + 16; z++)
+                {
+                    /* The heightmap ignores transparent blocks like torches, glass and flowers, but everything below it is covered */
+                    final int floor = Math.max(1, area.getHighestBlockYAt(x, z) - 1);
+                    int y = topY;
+                    while (y > floor && area.getTypeId(x, y, z) == 0)
+                        y--;
+
+                    Material blockType = area.getType(x, y, z);
+                    if (blockType == null)
+                        continue;
+
+                    switch (blockType)
+                    {
+                        case TORCH:
+                        {
+                            /* Biome is saved on a per column basis */
+                            if (rainBreaksTorches && area.getTemperature(x, z) < 1.0) //excludes warmer biomes like mesa and desert in which no rain falls
+                                result.add(x, y, z, blockType.getId());
+                            break;
+                        }
+                        case CROPS:
+                        case MELON_STEM:
+                        case CARROT:
+                        case PUMPKIN_STEM:
+                        case POTATO:
+                        case RED_ROSE:
+                        case YELLOW_FLOWER:
+                        case LONG_GRASS:
+                        {
+                            if (snowBreaksCrops && area.getTemperature(x, z) <= 0.15) //cold biomes in which snow falls
+                                result.add(x, y, z, blockType.getId());
+                            break;
+                        }
+                        default: /* Anything which isn't AIR will protect torches and Crops */
+                            break;
+                    }
+                }
+            }
+        }
+
+
+        @Override
+        public void apply(Block block, int tag)
+        {
+            if (block.getTypeId() != tag) //changed since the scan
+                return;
+
+            if (tag == Material.TORCH.getId())
+            {
+                /* Reduce lag by torches lying on the ground */
+                if (plugin.getRandom().nextInt(5) == 1)
+                {
+                    block.breakNaturally();
+                } else
+                {
+                    block.setType(Material.AIR);
+                }
+            } else
+            {
+                if (plugin.getRandom().nextInt(5) == 1)
+                    block.breakNaturally();
+                //Snow can't be placed if its tilled soil
+                if (block.getRelative(BlockFace.DOWN).getType() == Material.SOIL)
+                    block.getRelative(BlockFace.DOWN).setType(Material.DIRT);
+                block.setType(Material.SNOW);
+                if (plugin.getRandom().nextBoolean())
+                {
+                    block.setData((byte) 1);
+                } else
+                {
+                    block.setData((byte) 2);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A block in this chunk changed, the chunk needs to be swept again
+     */
+    private void markDirty(Block block)
+    {
+        Set<Long> clean = cleanChunks.get(block.getWorld());
+        if (clean != null)
+            clean.remove(CoordHelper.packChunk(block.getX() >> 4, block.getZ() >> 4));
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    /**
+     * FallingBlocks and Endermen
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event)
+    {
+        markDirty(event.getBlock());
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onExplosion(EntityExplodeEvent event)
+    {
+        for (Block block : event.blockList())
+            markDirty(block);
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event)
+    {
+        Set<Long> clean = cleanChunks.get(event.getWorld());
+        if (clean != null)
+            clean.remove(CoordHelper.packChunk(event.getChunk().getX(), event.getChunk().getZ()));
+    }
+
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event)
+    {
+        stopSweep(event.getWorld());
+        cleanChunks.remove(event.getWorld());
+    }
+
+
+    @Override
+    public void closing()
+    {
+        super.closing();
+        for (Integer id : sweeps.values())
+            plugin.getServer().getScheduler().cancelTask(id);
+        sweeps.clear();
+        cleanChunks.clear();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.module;
+
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Read only view of an area of a World made up of ChunkSnapshots, which can safely be read from any thread.
+ * <p/>
+ * Takes block coordinates. Blocks in chunks that weren't loaded when the area was captured have the type id -1.
+ *
+ * @author Diemex
+ */
+public class SnapshotArea
+{
+    private final World world;
+
+    private final int maxHeight;
+
+    /** Chunk coordinates of the chunk with the lowest x and z */
+    private final int minChunkX, minChunkZ;
+
+    /** Size of the area in chunks */
+    private final int width, depth;
+
+    /** Indexed by (chunkX - minChunkX) * depth + (chunkZ - minChunkZ), null if not loaded */
+    private final ChunkSnapshot[] snapshots;
+
+
+    /**
+     * Constructor. Use {@link #capture} on the main thread.
+     */
+    public SnapshotArea(World world, int maxHeight, int minChunkX, int minChunkZ, int width, int depth, ChunkSnapshot[] snapshots)
+    {
+        if (snapshots.length != width * depth)
+            throw new IllegalArgumentException("Expected " + width * depth + " snapshots but got " + snapshots.length);
+        this.world = world;
+        this.maxHeight = maxHeight;
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.width = width;
+        this.depth = depth;
+        this.snapshots = snapshots;
+    }
+
+
+    /**
+     * Capture the loaded chunks that contain the given block coordinates. Has to be called from the main thread, chunks
+     * won't be loaded.
+     *
+     * @param world world to capture
+     * @param minX  lowest x block coordinate
+     * @param minZ  lowest z block coordinate
+     * @param maxX  highest x block coordinate
+     * @param maxZ  highest z block coordinate
+     *
+     * @return area which can be read from other threads
+     */
+    public static SnapshotArea capture(World world, int minX, int minZ, int maxX, int maxZ)
+    {
+        final int minChunkX = minX >> 4, minChunkZ = minZ >> 4;
+        final int width = (maxX >> 4) - minChunkX + 1, depth = (maxZ >> 4) - minChunkZ + 1;
+        ChunkSnapshot[] snapshots = new ChunkSnapshot[width * depth];
+        for (int cx = 0; cx < width; cx++)
+            for (int cz = 0; cz < depth; cz++)
+                if (world.isChunkLoaded(minChunkX + cx, minChunkZ + cz))
+                    snapshots[cx * depth + cz] = world.getChunkAt(minChunkX + cx, minChunkZ + cz).getChunkSnapshot(true, false, true);
+        return new SnapshotArea(world, world.getMaxHeight(), minChunkX, minChunkZ, width, depth, snapshots);
+    }
+
+
+    /**
+     * The World of this area, don't access it from other threads
+     */
+    public World getWorld()
+    {
+        return world;
+    }
+
+
+    public int getMaxHeight()
+    {
+        return maxHeight;
+    }
+
+
+    /**
+     * Get the snapshot of the chunk containing the block
+     *
+     * @return snapshot or null if outside of the area or not loaded
+     */
+    private ChunkSnapshot getSnapshot(int x, int z)
+    {
+        final int cx = (x >> 4) - minChunkX, cz = (z >> 4) - minChunkZ;
+        if (cx < 0 || cz < 0 || cx >= width || cz >= depth)
+            return null;
+        return snapshots[cx * depth + cz];
+    }
+
+
+    /**
+     * Is the block in a chunk which has been captured
+     */
+    public boolean isLoaded(int x, int z)
+    {
+        return getSnapshot(x, z) != null;
+    }
+
+
+    /**
+     * Get the type id of a block
+     *
+     * @return type id or -1 if not captured
+     */
+    public int getTypeId(int x, int y, int z)
+    {
+        ChunkSnapshot snapshot = getSnapshot(x, z);
+        if (snapshot == null || y < 0 || y >= maxHeight)
+            return -1;
+        return snapshot.getBlockTypeId(x & 15, y, z & 15);
+    }
+
+
+    /**
+     * Get the Material of a block
+     *
+     * @return Material or null if not captured
+     */
+    public Material getType(int x, int y, int z)
+    {
+        final int id = getTypeId(x, y, z);
+        return id < 0 ? null : Material.getMaterial(id);
+    }
+
+
+    /**
+     * Get the data value of a block
+     *
+     * @return data or -1 if not captured
+     */
+    public int getData(int x, int y, int z)
+    {
+        ChunkSnapshot snapshot = getSnapshot(x, z);
+        if (snapshot == null || y < 0 || y >= maxHeight)
+            return -1;
+        return snapshot.getBlockData(x & 15, y, z & 15);
+    }
+
+
+    /**
+     * Get the y coordinate of the heightmap. Transparent blocks like torches or glass aren't included in the heightmap.
+     *
+     * @return y or -1 if not captured
+     */
+    public int getHighestBlockYAt(int x, int z)
+    {
+        ChunkSnapshot snapshot = getSnapshot(x, z);
+        return snapshot != null ? snapshot.getHighestBlockYAt(x & 15, z & 15) : -1;
+    }
+
+
+    /**
+     * Get the biome temperature of the column
+     */
+    public double getTemperature(int x, int z)
+    {
+        ChunkSnapshot snapshot = getSnapshot(x, z);
+        return snapshot != null ? snapshot.getRawBiomeTemperature(x & 15, z & 15) : 0;
+    }
+
+
+    /**
+     * Get the highest y that might contain a block in the chunk of the given block
+     *
+     * @return y of the top of the highest non empty section or -1 if not captured or empty
+     */
+    public int getTopY(int x, int z)
+    {
+        ChunkSnapshot snapshot = getSnapshot(x, z);
+        if (snapshot == null)
+            return -1;
+        int topY = maxHeight - 1;
+        while (topY >= 0 && snapshot.isSectionEmpty(topY >> 4))
+            topY -= 16;
+        return topY;
+    }
+}
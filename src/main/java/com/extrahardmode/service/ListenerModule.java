@@ -43,7 +43,20 @@ public class ListenerModule implements IModule, Listener
     @Override
     public void starting()
     {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        registerEvents();
+    }
+
+
+    /**
+     * (Re)register the event handlers of this module, they are only wrapped for measuring if {@link Timings} are enabled
+     */
+    public void registerEvents()
+    {
+        HandlerList.unregisterAll(this);
+        if (Timings.isEnabled())
+            Timings.registerTimedEvents(this, plugin);
+        else
+            plugin.getServer().getPluginManager().registerEvents(this, plugin);
     }
 
 
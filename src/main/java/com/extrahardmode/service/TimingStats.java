@@ -0,0 +1,136 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Invocation count, time and allocations of one event handler or task. All counters are atomics so async tasks can
+ * record into them without locking.
+ *
+ * @author Diemex
+ */
+public final class TimingStats
+{
+    /**
+     * Amount of histogram buckets, bucket n holds durations in [2^(n-1), 2^n) nanoseconds, the last one everything above
+     */
+    public static final int BUCKETS = 32;
+
+    private final String name;
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+
+    TimingStats(String name)
+    {
+        this.name = name;
+    }
+
+
+    /**
+     * Record one invocation
+     *
+     * @param nanos     how long it took
+     * @param allocated bytes allocated by the thread during the invocation, negative if unknown
+     */
+    public void record(long nanos, long allocated)
+    {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        if (allocated > 0)
+            allocatedBytes.addAndGet(allocated);
+
+        long max;
+        while (nanos > (max = maxNanos.get()))
+            if (maxNanos.compareAndSet(max, nanos))
+                break;
+
+        histogram.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, nanos))));
+    }
+
+
+    /**
+     * Set all counters back to 0
+     */
+    public void reset()
+    {
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        allocatedBytes.set(0);
+        for (int i = 0; i < BUCKETS; i++)
+            histogram.set(i, 0);
+    }
+
+
+    public String getName()
+    {
+        return name;
+    }
+
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+
+    public long getTotalNanos()
+    {
+        return totalNanos.get();
+    }
+
+
+    public long getMaxNanos()
+    {
+        return maxNanos.get();
+    }
+
+
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes.get();
+    }
+
+
+    /**
+     * Get the amount of invocations in the given bucket
+     *
+     * @param bucket 0 to {@link #BUCKETS} - 1
+     */
+    public long getBucket(int bucket)
+    {
+        return histogram.get(bucket);
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel for delayed tasks which is advanced by one tick at a time.
+ * <p/>
+ * Tasks are stored in the bucket of the tick they are due in, tasks which are more than one revolution away count down
+ * their remaining rounds. Scheduling and running a task is O(1), cancelling by owner walks all pending tasks. Every task
+ * has an owner and a world (both optional), so all tasks of e.g. a dead entity or an unloaded world can be cancelled at
+ * once.
+ * <p/>
+ * Not thread safe, only use it on the main thread.
+ *
+ * @author Diemex
+ */
+public class TimingWheel
+{
+    private final Bucket[] buckets;
+
+    private final int mask;
+
+    /** Ticks the wheel has been advanced */
+    private long tick = 0L;
+
+    private int size = 0;
+
+    /** Tasks due in the current tick, they run after being taken out of their bucket */
+    private final Bucket due = new Bucket();
+
+
+    /**
+     * Constructor.
+     *
+     * @param slots amount of buckets, has to be a power of two
+     */
+    public TimingWheel(int slots)
+    {
+        if (slots <= 0 || (slots & (slots - 1)) != 0)
+            throw new IllegalArgumentException("Slots have to be a power of two, got " + slots);
+        buckets = new Bucket[slots];
+        for (int i = 0; i < slots; i++)
+            buckets[i] = new Bucket();
+        mask = slots - 1;
+    }
+
+
+    /**
+     * Schedule a task
+     *
+     * @param task  task to run
+     * @param delay ticks until the task runs, at least 1
+     * @param owner owner of the task, e.g. an entity. may be null
+     * @param world world the task affects, may be null
+     */
+    public void schedule(Runnable task, long delay, Object owner, Object world)
+    {
+        if (task == null)
+            throw new IllegalArgumentException("Task can't be null");
+        if (delay < 1L)
+            delay = 1L;
+        final long slots = buckets.length;
+        buckets[(int) ((tick + delay) & mask)].add(task, owner, world, (int) Math.min(Integer.MAX_VALUE, (delay - 1L) / slots));
+        size++;
+    }
+
+
+    /**
+     * Advance the wheel by one tick and run all tasks which are due. Tasks scheduled or cancelled by a running task take
+     * effect immediately, an exception in one task doesn't stop the others from running.
+     */
+    public void tick()
+    {
+        tick++;
+        Bucket bucket = buckets[(int) (tick & mask)];
+        int kept = 0;
+        for (int i = 0; i < bucket.size; i++)
+        {
+            if (bucket.rounds[i] == 0)
+                due.add(bucket.tasks[i], bucket.owners[i], bucket.worlds[i], 0);
+            else
+                bucket.set(kept++, bucket.tasks[i], bucket.owners[i], bucket.worlds[i], bucket.rounds[i] - 1);
+        }
+        bucket.truncate(kept);
+        size -= due.size;
+
+        try
+        {
+            for (int i = 0; i < due.size; i++)
+            {
+                Runnable task = due.tasks[i];
+                if (task == null) //cancelled by a previous task
+                    continue;
+                due.tasks[i] = null;
+                try
+                {
+                    task.run();
+                } catch (RuntimeException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        } finally
+        {
+            due.truncate(0);
+        }
+    }
+
+
+    /**
+     * Cancel all tasks with the given owner or world
+     *
+     * @param ownerOrWorld owner or world the tasks have been scheduled with
+     *
+     * @return amount of cancelled tasks
+     */
+    public int cancel(Object ownerOrWorld)
+    {
+        if (ownerOrWorld == null)
+            return 0;
+        int cancelled = 0;
+        for (Bucket bucket : buckets)
+            cancelled += bucket.remove(ownerOrWorld);
+        size -= cancelled;
+        for (int i = 0; i < due.size; i++)
+            if (due.tasks[i] != null && (due.owners[i] == ownerOrWorld || due.worlds[i] == ownerOrWorld))
+            {
+                due.tasks[i] = null;
+                cancelled++;
+            }
+        return cancelled;
+    }
+
+
+    /**
+     * Amount of pending tasks
+     */
+    public int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Amount of tasks in the fullest bucket, a measure for how bursty the scheduled tasks are
+     */
+    public int getMaxBucketSize()
+    {
+        int max = 0;
+        for (Bucket bucket : buckets)
+            max = Math.max(max, bucket.size);
+        return max;
+    }
+
+
+    /**
+     * Remove all pending tasks without running them
+     */
+    public void clear()
+    {
+        for (Bucket bucket : buckets)
+            bucket.truncate(0);
+        for (int i = 0; i < due.size; i++)
+            due.tasks[i] = null;
+        size = 0;
+    }
+
+
+    /** Tasks due in the same slot, stored in parallel arrays */
+    private static class Bucket
+    {
+        Runnable[] tasks = new Runnable[4];
+
+        Object[] owners = new Object[4];
+
+        Object[] worlds = new Object[4];
+
+        /** Revolutions of the wheel left before the task is due */
+        int[] rounds = new int[4];
+
+        int size = 0;
+
+
+        void add(Runnable task, Object owner, Object world, int round)
+        {
+            if (size == tasks.length)
+            {
+                tasks = Arrays.copyOf(tasks, size * 2);
+                owners = Arrays.copyOf(owners, size * 2);
+                worlds = Arrays.copyOf(worlds, size * 2);
+                rounds = Arrays.copyOf(rounds, size * 2);
+            }
+            set(size++, task, owner, world, round);
+        }
+
+
+        void set(int i, Runnable task, Object owner, Object world, int round)
+        {
+            tasks[i] = task;
+            owners[i] = owner;
+            worlds[i] = world;
+            rounds[i] = round;
+        }
+
+
+        /** Remove all tasks with the owner or world, keeps the order */
+        int remove(Object ownerOrWorld)
+        {
+            int kept = 0;
+            for (int i = 0; i < size; i++)
+                if (owners[i] != ownerOrWorld && worlds[i] != ownerOrWorld)
+                    set(kept++, tasks[i], owners[i], worlds[i], rounds[i]);
+            final int removed = size - kept;
+            truncate(kept);
+            return removed;
+        }
+
+
+        /** Drop the references to all tasks from index newSize on */
+        void truncate(int newSize)
+        {
+            Arrays.fill(tasks, newSize, size, null);
+            Arrays.fill(owners, newSize, size, null);
+            Arrays.fill(worlds, newSize, size, null);
+            size = newSize;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.RegisteredListener;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Opt-in instrumentation of our event handlers and tasks.
+ * <p/>
+ * When disabled event handlers are registered directly with Bukkit and wrapped tasks only check a flag, so nothing is
+ * measured and nothing is allocated.
+ *
+ * @author Diemex
+ */
+public final class Timings
+{
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentMap<String, TimingStats> STATS = new ConcurrentHashMap<String, TimingStats>();
+
+    /**
+     * Only available on HotSpot, null if allocations can't be measured
+     */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+
+
+    static
+    {
+        com.sun.management.ThreadMXBean bean = null;
+        try
+        {
+            java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean)
+            {
+                bean = (com.sun.management.ThreadMXBean) threadBean;
+                if (bean.isThreadAllocatedMemorySupported())
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                else
+                    bean = null;
+            }
+        } catch (Throwable ignored) //Not a Sun/Oracle jvm
+        {
+            bean = null;
+        }
+        THREAD_BEAN = bean;
+    }
+
+
+    private Timings()
+    {
+    }
+
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+
+    /**
+     * Turn the instrumentation on or off. ListenerModules have to re-register their events to pick up the change
+     */
+    public static void setEnabled(boolean enable)
+    {
+        enabled = enable;
+    }
+
+
+    /**
+     * Get the stats for the given name, creating them if necessary
+     */
+    public static TimingStats get(String name)
+    {
+        TimingStats stats = STATS.get(name);
+        if (stats == null)
+        {
+            TimingStats created = new TimingStats(name);
+            stats = STATS.putIfAbsent(name, created);
+            if (stats == null)
+                stats = created;
+        }
+        return stats;
+    }
+
+
+    /**
+     * Get all recorded stats sorted by total time, highest first
+     */
+    public static List<TimingStats> getAll()
+    {
+        List<TimingStats> all = new ArrayList<TimingStats>(STATS.values());
+        Collections.sort(all, new Comparator<TimingStats>()
+        {
+            @Override
+            public int compare(TimingStats o1, TimingStats o2)
+            {
+                return o1.getTotalNanos() < o2.getTotalNanos() ? 1 : o1.getTotalNanos() > o2.getTotalNanos() ? -1 : 0;
+            }
+        });
+        return all;
+    }
+
+
+    /**
+     * Set all counters back to 0, handlers and tasks keep their references to the stats
+     */
+    public static void reset()
+    {
+        for (TimingStats stats : STATS.values())
+            stats.reset();
+    }
+
+
+    /**
+     * Bytes allocated by the current thread so far
+     *
+     * @return bytes or -1 if this isn't supported by the jvm
+     */
+    public static long allocatedBytes()
+    {
+        return THREAD_BEAN != null ? THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+
+    /**
+     * Wrap a task which only runs once, named after its class
+     *
+     * @param task task to wrap
+     *
+     * @return the task itself if timings are disabled, otherwise a wrapped task
+     */
+    public static Runnable wrap(Runnable task)
+    {
+        return enabled ? wrap(task.getClass().getSimpleName(), task) : task;
+    }
+
+
+    /**
+     * Wrap a long running or repeating task so its runs get recorded while timings are enabled
+     *
+     * @param name name to record the runs under
+     * @param task task to wrap
+     *
+     * @return wrapped task
+     */
+    public static Runnable wrap(final String name, final Runnable task)
+    {
+        return new Runnable()
+        {
+            private TimingStats stats;
+
+
+            @Override
+            public void run()
+            {
+                if (!enabled)
+                {
+                    task.run();
+                    return;
+                }
+                if (stats == null)
+                    stats = get(name);
+                final long alloc = allocatedBytes();
+                final long start = System.nanoTime();
+                try
+                {
+                    task.run();
+                } finally
+                {
+                    stats.record(System.nanoTime() - start, alloc < 0 ? -1 : allocatedBytes() - alloc);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Register the event handlers of a Listener so that every call gets recorded, one entry per handled event and
+     * priority
+     *
+     * @param listener listener to register
+     * @param plugin   plugin owning the listener
+     */
+    public static void registerTimedEvents(Listener listener, Plugin plugin)
+    {
+        PluginManager pm = plugin.getServer().getPluginManager();
+        final String listenerName = listener.getClass().getSimpleName();
+        for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : plugin.getPluginLoader().createRegisteredListeners(listener, plugin).entrySet())
+        {
+            for (final RegisteredListener registered : entry.getValue())
+            {
+                final TimingStats stats = get(listenerName + "#" + entry.getKey().getSimpleName() + "@" + registered.getPriority().name());
+                pm.registerEvent(entry.getKey(), listener, registered.getPriority(), new EventExecutor()
+                {
+                    @Override
+                    public void execute(Listener listener, Event event) throws EventException
+                    {
+                        if (!enabled)
+                        {
+                            registered.callEvent(event);
+                            return;
+                        }
+                        final long alloc = allocatedBytes();
+                        final long start = System.nanoTime();
+                        try
+                        {
+                            registered.callEvent(event);
+                        } finally
+                        {
+                            stats.record(System.nanoTime() - start, alloc < 0 ? -1 : allocatedBytes() - alloc);
+                        }
+                    }
+                }, plugin, registered.isIgnoringCancelled());
+            }
+        }
+    }
+
+
+    /**
+     * Write all stats as csv and json into the given folder
+     *
+     * @param folder folder to write into, usually the data folder of the plugin
+     *
+     * @return the csv file, the json file has the same name with a different extension
+     *
+     * @throws IOException if the files couldn't be written
+     */
+    public static File dump(File folder) throws IOException
+    {
+        if (!folder.exists() && !folder.mkdirs())
+            throw new IOException("Couldn't create " + folder);
+        List<TimingStats> all = getAll();
+        String baseName = "timings-" + System.currentTimeMillis();
+        File csvFile = new File(folder, baseName + ".csv");
+        File jsonFile = new File(folder, baseName + ".json");
+
+        StringBuilder csv = new StringBuilder("name,count,totalNanos,avgNanos,maxNanos,allocatedBytes");
+        for (int i = 0; i < TimingStats.BUCKETS; i++)
+            csv.append(",lt2^").append(i);
+        csv.append('\n');
+        StringBuilder json = new StringBuilder("[\n");
+
+        for (int s = 0; s < all.size(); s++)
+        {
+            TimingStats stats = all.get(s);
+            long avg = stats.getCount() > 0 ? stats.getTotalNanos() / stats.getCount() : 0;
+            csv.append('"').append(stats.getName()).append('"').append(',').append(stats.getCount()).append(',')
+                    .append(stats.getTotalNanos()).append(',').append(avg).append(',').append(stats.getMaxNanos()).append(',')
+                    .append(stats.getAllocatedBytes());
+            json.append("  {\"name\": \"").append(stats.getName()).append("\", \"count\": ").append(stats.getCount())
+                    .append(", \"totalNanos\": ").append(stats.getTotalNanos()).append(", \"avgNanos\": ").append(avg)
+                    .append(", \"maxNanos\": ").append(stats.getMaxNanos()).append(", \"allocatedBytes\": ").append(stats.getAllocatedBytes())
+                    .append(", \"histogram\": [");
+            for (int i = 0; i < TimingStats.BUCKETS; i++)
+            {
+                csv.append(',').append(stats.getBucket(i));
+                json.append(i > 0 ? ", " : "").append(stats.getBucket(i));
+            }
+            csv.append('\n');
+            json.append("]}").append(s < all.size() - 1 ? "," : "").append('\n');
+        }
+        json.append("]\n");
+
+        write(csvFile, csv.toString());
+        write(jsonFile, json.toString());
+        return csvFile;
+    }
+
+
+    private static void write(File file, String content) throws IOException
+    {
+        FileWriter writer = new FileWriter(file);
+        try
+        {
+            writer.write(content);
+        } finally
+        {
+            writer.close();
+        }
+    }
+}
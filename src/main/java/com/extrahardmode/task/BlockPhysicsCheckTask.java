@@ -19,22 +19,29 @@
  * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.extrahardmode.task;
 
 
 import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.BlockTypeSet;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.CoordHelper;
+import com.extrahardmode.module.PhysicsQueue;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 
-import java.util.List;
 import java.util.Map;
 
 /**
- * Called to apply physics to a block and its neighbors if necessary.
+ * Runs every tick and works off the queued physics checks of all worlds.
+ * <p/>
+ * Applies physics to a block and queues its neighbors if necessary. The amount of checks per tick is limited per world.
  */
 public class BlockPhysicsCheckTask implements Runnable
 {
@@ -44,54 +51,82 @@ public class BlockPhysicsCheckTask implements Runnable
     private final ExtraHardMode plugin;
 
     /**
-     * Target block.
-     */
-    private final Block block;
-
-    /**
-     * Recursion count.
+     * Config Reference
      */
-    private final int recursionCount;
+    private final RootConfig CFG;
 
     /**
-     * Will the the adjacent blocks be checked no matter if the center falls or not?
+     * Queues by World
      */
-    private final boolean force;
+    private final Map<World, PhysicsQueue> queues;
 
     /**
-     * Config Reference
+     * Ticks since the task has been started
      */
-    private final RootConfig CFG;
+    private long currentTick = 0;
 
 
     /**
      * Constructor.
      *
-     * @param plugin         - Plugin instance.
-     * @param block          - Target block for task.
-     * @param recursionCount - Recursion count for task.
-     * @param force          - do we want to check adjacent blocks no matter if the center block falls or not? Also checks a lot
-     *                       further down
+     * @param plugin - Plugin instance.
+     * @param queues - physics queues of the BlockModule
      */
-    public BlockPhysicsCheckTask(ExtraHardMode plugin, Block block, int recursionCount, boolean force)
+    public BlockPhysicsCheckTask(ExtraHardMode plugin, Map<World, PhysicsQueue> queues)
     {
         this.plugin = plugin;
-        this.block = block;
-        this.recursionCount = recursionCount;
-        this.force = force;
+        this.queues = queues;
         CFG = plugin.getModuleForClass(RootConfig.class);
     }
 
 
+    /**
+     * Get the tick the task is currently at, used to schedule delayed checks
+     */
+    public long getCurrentTick()
+    {
+        return currentTick;
+    }
+
+
     @Override
     public void run()
     {
-
+        currentTick++;
         BlockModule module = plugin.getModuleForClass(BlockModule.class);
-        boolean fall = false;
+        long[] key = new long[1];
+        for (Map.Entry<World, PhysicsQueue> entry : queues.entrySet())
+        {
+            World world = entry.getKey();
+            PhysicsQueue queue = entry.getValue();
+            if (queue.size() == 0)
+                continue;
+
+            final WorldSettings settings = CFG.getSettings(world);
+            final int budget = settings.getInt(RootNode.MORE_FALLING_BLOCKS_CHECKS_PER_TICK);
+            final boolean fallingBlocksEnabled = settings.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE);
+            final BlockTypeSet fallingBlocks = settings.getBlockTypes(RootNode.MORE_FALLING_BLOCKS);
+
+            PhysicsQueue.PendingCheck check;
+            for (int i = 0; (budget <= 0 || i < budget) && (check = queue.poll(currentTick, key)) != null; i++)
+            {
+                Block block = world.getBlockAt(CoordHelper.unpackX(key[0]), CoordHelper.unpackY(key[0]), CoordHelper.unpackZ(key[0]));
+                check(module, block, check.recursionCount, check.force, fallingBlocksEnabled, fallingBlocks);
+            }
+        }
+    }
 
-        final boolean fallingBlocksEnabled = CFG.getBoolean(RootNode.MORE_FALLING_BLOCKS_ENABLE, block.getWorld().getName());
-        final Map<Integer, List<Byte>> fallingBlocks = CFG.getMappedNode(RootNode.MORE_FALLING_BLOCKS, block.getWorld().getName());
+
+    /**
+     * Apply physics to the block if it should fall and queue the neighbours
+     *
+     * @param recursionCount - Recursion count for this check.
+     * @param force          - do we want to check adjacent blocks no matter if the center block falls or not? Also
+     *                       checks a lot further down
+     */
+    private void check(BlockModule module, Block block, int recursionCount, boolean force, boolean fallingBlocksEnabled, BlockTypeSet fallingBlocks)
+    {
+        boolean fall = false;
 
         Material material = block.getType();
         Block underBlock = block.getRelative(BlockFace.DOWN);
@@ -99,7 +134,7 @@ public class BlockPhysicsCheckTask implements Runnable
         if ((underBlock.getType() == Material.AIR || underBlock.isLiquid() || underBlock.getType() == Material.TORCH)
                 && (material == Material.SAND || material == Material.GRAVEL ||
                 /* Our extra blocks */
-                (fallingBlocks.containsKey(material.getId()) && (fallingBlocks.get(material.getId()).isEmpty() || fallingBlocks.get(material.getId()).contains(block.getData()))))
+                fallingBlocks.contains(material.getId(), block.getData()))
                 && fallingBlocksEnabled && material != Material.AIR)
         {
             module.applyPhysics(block, true);
@@ -112,42 +147,16 @@ public class BlockPhysicsCheckTask implements Runnable
             {
                 if (force)
                 {
-                    Block neighbor = block.getRelative(BlockFace.DOWN, 1);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 1);
-
-                    neighbor = block.getRelative(BlockFace.DOWN, 2);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 2);
-
-                    neighbor = block.getRelative(BlockFace.DOWN, 3);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 3);
-
-                    neighbor = block.getRelative(BlockFace.DOWN, 4);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 4);
-
-                    neighbor = block.getRelative(BlockFace.DOWN, 5);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 5);
-
-                    neighbor = block.getRelative(BlockFace.DOWN, 6);
-                    module.physicsCheck(neighbor, recursionCount - 1, false, 6);
+                    for (int i = 1; i <= 6; i++)
+                        module.physicsCheck(block.getRelative(BlockFace.DOWN, i), recursionCount - 1, false, i);
                 }
 
-                Block neighbor = block.getRelative(BlockFace.UP);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 1);
-
-                neighbor = block.getRelative(BlockFace.DOWN);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 2);
-
-                neighbor = block.getRelative(BlockFace.EAST);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 3);
-
-                neighbor = block.getRelative(BlockFace.WEST);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 4);
-
-                neighbor = block.getRelative(BlockFace.NORTH);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 5);
-
-                neighbor = block.getRelative(BlockFace.SOUTH);
-                module.physicsCheck(neighbor, recursionCount - 1, false, 6);
+                module.physicsCheck(block.getRelative(BlockFace.UP), recursionCount - 1, false, 1);
+                module.physicsCheck(block.getRelative(BlockFace.DOWN), recursionCount - 1, false, 2);
+                module.physicsCheck(block.getRelative(BlockFace.EAST), recursionCount - 1, false, 3);
+                module.physicsCheck(block.getRelative(BlockFace.WEST), recursionCount - 1, false, 4);
+                module.physicsCheck(block.getRelative(BlockFace.NORTH), recursionCount - 1, false, 5);
+                module.physicsCheck(block.getRelative(BlockFace.SOUTH), recursionCount - 1, false, 6);
             }
         }
     }
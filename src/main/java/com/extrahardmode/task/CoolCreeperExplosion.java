@@ -26,11 +26,12 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.ExplosionType;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.module.DelayedTaskService;
 import com.extrahardmode.module.UtilityModule;
+import com.extrahardmode.service.Timings;
 import org.bukkit.FireworkEffect;
 import org.bukkit.Location;
 import org.bukkit.entity.Creeper;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.util.Vector;
 
 /**
@@ -46,7 +47,7 @@ public class CoolCreeperExplosion implements Runnable
 
     private final UtilityModule utils;
 
-    private final BukkitScheduler scheduler;
+    private final DelayedTaskService scheduler;
 
     private final RootConfig CFG;
 
@@ -70,7 +71,7 @@ public class CoolCreeperExplosion implements Runnable
         creeper = entity;
         loc = creeper.getLocation();
         utils = plugin.getModuleForClass(UtilityModule.class);
-        scheduler = plugin.getServer().getScheduler();
+        scheduler = plugin.getModuleForClass(DelayedTaskService.class);
         numOfFireworks = CFG.getInt(RootNode.FLAMING_CREEPERS_FIREWORK, loc.getWorld().getName());
         creeperAscendSpeed = CFG.getDouble(RootNode.FLAMING_CREEPERS_ROCKET, loc.getWorld().getName());
     }
@@ -86,11 +87,11 @@ public class CoolCreeperExplosion implements Runnable
         for (int i = 0; i < numOfFireworks; i++)
         {
             mainDelay += ticksBetweenFireworks;
-            scheduler.runTaskLater(plugin, new Firework(), mainDelay);
+            scheduler.schedule(Timings.wrap(new Firework()), mainDelay, creeper);
         }
         //Catapult into air and explode midair
         mainDelay += ticksBeforeCatapult;
-        scheduler.runTaskLater(plugin, new AscendToHeaven(), mainDelay);
+        scheduler.schedule(Timings.wrap(new AscendToHeaven()), mainDelay, creeper);
     }
 
 
@@ -120,10 +121,10 @@ public class CoolCreeperExplosion implements Runnable
                 creeper.setTarget(null);
                 for (int i = 0; i < 10; i++)
                 {
-                    scheduler.runTaskLater(plugin, new RiseToGlory(), (long) ticksInbetween);
+                    scheduler.schedule(Timings.wrap(new RiseToGlory()), (long) ticksInbetween, creeper);
                     ticksInbetween += i;
                 }
-                scheduler.runTaskLater(plugin, new Suicide(), ticksBeforeSuicide);
+                scheduler.schedule(Timings.wrap(new Suicide()), ticksBeforeSuicide, creeper);
             }
         }
     }
@@ -26,8 +26,7 @@ import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.ExplosionType;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
-import com.extrahardmode.module.EntityHelper;
-import com.extrahardmode.module.ExplosionCompatStorage;
+import com.extrahardmode.module.ExplosionBatcher;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 
@@ -37,6 +36,9 @@ import org.bukkit.entity.Entity;
  * specified y-level.
  * <p/>
  * Fires an Explosion Event before every Event with a creeper as Entity
+ * <p/>
+ * The explosion is handed to the {@link ExplosionBatcher}, it is created right away unless it overlaps another
+ * explosion of this tick.
  */
 public class CreateExplosionTask implements Runnable
 {
@@ -175,13 +177,8 @@ public class CreateExplosionTask implements Runnable
         //{
         //if (CompatHandler.isExplosionProtected(loc))
         //    damageWorld = false;
-        if (explosionCause != null) //ignore pure "visual" explosions
-            plugin.getModuleForClass(ExplosionCompatStorage.class).queueExplosion(location, explosionCause);
-
-
-        //entity should be ignored so our code doesn't think that it's a regular creeper etc.
-        EntityHelper.flagIgnore(plugin, explosionCause);
-        loc.getWorld().createExplosion(loc.getX(), loc.getY(), loc.getZ(), power, setFire, damageWorld);
+        //overlapping explosions of this tick are created together in the next tick
+        plugin.getModuleForClass(ExplosionBatcher.class).request(loc, power, setFire, damageWorld, explosionCause);
         //}
     }
 
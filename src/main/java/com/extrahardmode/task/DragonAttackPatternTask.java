@@ -25,6 +25,8 @@ package com.extrahardmode.task;
 
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.module.DelayedTaskService;
+import com.extrahardmode.service.Timings;
 
 import org.bukkit.World;
 import org.bukkit.entity.Damageable;
@@ -101,12 +103,13 @@ public class DragonAttackPatternTask implements Runnable
             return;
         }
 
+        DelayedTaskService scheduler = plugin.getModuleForClass(DelayedTaskService.class);
         for (int i = 0; i < 3; i++)
         {
             DragonAttackTask task = new DragonAttackTask(plugin, this.dragon, this.player);
-            plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 20L * (long) i + (long) (plugin.getRandom().nextInt(20)));
+            scheduler.schedule(Timings.wrap(task), 20L * (long) i + (long) (plugin.getRandom().nextInt(20)), this.dragon);
         }
 
-        plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, this, 20L * 30L);
+        scheduler.schedule(Timings.wrap(this), 20L * 30L, this.dragon);
     }
 }
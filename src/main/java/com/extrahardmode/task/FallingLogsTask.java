@@ -24,6 +24,7 @@ package com.extrahardmode.task;
 
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.DelayedTaskService;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
@@ -130,17 +131,17 @@ public class FallingLogsTask implements Runnable
                 for (int i = 0; i < looseLogs.size(); i++)
                 {
                     final Block looseLog = looseLogs.get(i);
-                    plugin.getServer().getScheduler().runTaskLater(plugin, new Runnable()
+                    plugin.getModuleForClass(DelayedTaskService.class).schedule(new Runnable()
                     {
                         @Override
                         public void run()
                         {
                             blockModule.applyPhysics(looseLog, true);
                         }
-                    }, i /*delay to prevent FallingBlock collision*/);
+                    }, i /*delay to prevent FallingBlock collision*/, looseLog);
 
                 }
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -19,12 +19,14 @@
  * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
  */
 
+
 package com.extrahardmode.task;
 
 
 import com.extrahardmode.ExtraHardMode;
 import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
+import com.extrahardmode.config.WorldSettings;
 import com.extrahardmode.module.DataStoreModule;
 import com.extrahardmode.module.EntityHelper;
 import com.extrahardmode.module.PlayerModule;
@@ -35,10 +37,17 @@ import org.bukkit.World.Environment;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 
-import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Queue;
 
 /**
  * Task to spawn more monsters, especially in light.
+ * <p/>
+ * Runs every tick, but every player only gets his turn once per {@link #PERIOD}. The players are spread over the period
+ * by the hash of their name, so the work doesn't pile up in one tick. A monster spawns at the location which has been
+ * saved on the previous turn of the player and a new location gets saved for the next turn.
  */
 public class MoreMonstersTask implements Runnable
 {
@@ -46,6 +55,11 @@ public class MoreMonstersTask implements Runnable
     //TODO Return to this and make it actually spawn and not just take the old locations
     //TODO if block not valid check random block nearby
 
+    /**
+     * Ticks between two turns of a player
+     */
+    public static final int PERIOD = 600;
+
     /**
      * Plugin instance.
      */
@@ -58,6 +72,36 @@ public class MoreMonstersTask implements Runnable
 
     private final PlayerModule playerModule;
 
+    /**
+     * Online players at the start of this period sorted by their slot
+     */
+    private Player[] schedule = new Player[0];
+
+    /**
+     * Index of the next player in the schedule whose turn hasn't come yet
+     */
+    private int cursor = 0;
+
+    /**
+     * Players whose turn has come, but which couldn't be processed because the budget of the tick was used up
+     */
+    private final Queue<Player> pending = new ArrayDeque<Player>();
+
+    /**
+     * Current tick in the period
+     */
+    private int tick = 0;
+
+    private static final Comparator<Player> BY_SLOT = new Comparator<Player>()
+    {
+        @Override
+        public int compare(Player a, Player b)
+        {
+            int slotA = slotOf(a), slotB = slotOf(b);
+            return slotA < slotB ? -1 : (slotA == slotB ? 0 : 1);
+        }
+    };
+
 
     /**
      * Constructor.
@@ -74,21 +118,72 @@ public class MoreMonstersTask implements Runnable
     }
 
 
+    /**
+     * Get the tick in the period when it's the turn of the player. Stays the same as long as the name doesn't change, so
+     * every player gets his turn every {@link #PERIOD} ticks.
+     */
+    static int slotOf(Player player)
+    {
+        return (player.getName().hashCode() & Integer.MAX_VALUE) % PERIOD;
+    }
+
+
     @Override
     public void run()
     {
+        if (tick == 0)
+        {
+            // plan the new period, players who joined in the last period get their first turn now
+            // players who couldn't be processed in time will get their turn in this period anyways
+            pending.clear();
+            schedule = plugin.getServer().getOnlinePlayers();
+            Arrays.sort(schedule, BY_SLOT);
+            cursor = 0;
+        }
+
+        while (cursor < schedule.length && slotOf(schedule[cursor]) <= tick)
+            pending.add(schedule[cursor++]);
+
         DataStoreModule dataStore = plugin.getModuleForClass(DataStoreModule.class);
-        // spawn monsters from the last pass
-        for (SimpleEntry<Player, Location> entry : dataStore.getPreviousLocations())
+        int processed = 0;
+        Player player;
+        while ((player = pending.peek()) != null)
         {
-            Location location = entry.getValue();
-            Player player = entry.getKey();
-            World world = location.getWorld();
+            if (!player.isOnline())
+            {
+                pending.poll();
+                continue;
+            }
+            final WorldSettings settings = CFG.getSettings(player.getWorld());
+            final int budget = settings.getInt(RootNode.MONSTER_SPAWNS_IN_LIGHT_PER_TICK);
+            if (settings.isEnabled() && budget > 0 && processed >= budget)
+                break;
+            pending.poll();
+            if (settings.isEnabled())
+            {
+                processPlayer(dataStore.getPlayerData(player), player);
+                processed++;
+            }
+        }
+
+        tick = (tick + 1) % PERIOD;
+    }
 
+
+    /**
+     * Spawn a monster at the location from the last turn of the player and save his current location for the next turn
+     */
+    private void processPlayer(DataStoreModule.PlayerData data, Player player)
+    {
+        Location location = data.moreMonstersLocation;
+        data.moreMonstersLocation = null;
+        if (location != null)
+        {
+            World world = location.getWorld();
             try
             {
                 location = verifyLocation(location);
-                if (location != null && location.getChunk().isLoaded() && player.isOnline()) //fix monsters spawning at previous locations on login
+                if (location != null && location.getChunk().isLoaded())
                 {//Check if the player is within 64 blocks, but there are no other players within 16 blocks
                     if (world.getEnvironment() == Environment.NORMAL &&
                             (location.distanceSquared(player.getLocation()) < 64 * 64) && !EntityHelper.arePlayersNearby(location, 16.0))
@@ -102,17 +197,9 @@ public class MoreMonstersTask implements Runnable
             } // in case the player is in a different world from the saved location
         }
 
-        // plan for the next pass
-        dataStore.getPreviousLocations().clear();
-        for (Player player : plugin.getServer().getOnlinePlayers())
-        {
-            Location verifiedLocation = null;
-            //only if player hasn't got bypass and is in survival check location
-            if (!playerModule.playerBypasses(player, Feature.MONSTERRULES))
-                verifiedLocation = verifyLocation(player.getLocation());
-            if (verifiedLocation != null)
-                dataStore.getPreviousLocations().add(new SimpleEntry<Player, Location>(player, verifiedLocation));
-        }
+        // plan for the next turn, only if player hasn't got bypass and is in survival check location
+        if (!playerModule.playerBypasses(player, Feature.MONSTERRULES))
+            data.moreMonstersLocation = verifyLocation(player.getLocation());
     }
 
     //TODO move this into a utility class
@@ -128,7 +215,7 @@ public class MoreMonstersTask implements Runnable
         World world = location.getWorld();
         Location verifiedLoc = null;
 
-        final int maxY = CFG.getInt(RootNode.MONSTER_SPAWNS_IN_LIGHT_MAX_Y, world.getName());
+        final int maxY = CFG.getSettings(world).getInt(RootNode.MONSTER_SPAWNS_IN_LIGHT_MAX_Y);
 
         // Only spawn monsters in normal world. End is crowded with endermen and nether is too extreme anyway, add config later
         int lightLvl = location.getBlock().getLightFromSky();
@@ -137,4 +224,4 @@ public class MoreMonstersTask implements Runnable
 
         return verifiedLoc;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.task;
+
+
+import com.extrahardmode.module.CoordHelper;
+import com.extrahardmode.module.RainSweepModule;
+import org.bukkit.World;
+
+import java.util.Queue;
+
+/**
+ * Works through the loaded chunks of a world while it is storming, a few chunks per tick.
+ */
+public class RainSweepTask implements Runnable
+{
+    /**
+     * Maximum time to spend per tick in nanoseconds
+     */
+    private static final long TICK_BUDGET = 1000000L;
+
+    /**
+     * Module which does the actual work
+     */
+    private final RainSweepModule module;
+
+    /**
+     * World to sweep
+     */
+    private final World world;
+
+    /**
+     * Packed coordinates of the chunks which still need to be swept
+     */
+    private final Queue<Long> chunks;
+
+
+    /**
+     * Constructor.
+     *
+     * @param module - Sweep module.
+     * @param world  - World in which it is storming.
+     * @param chunks - Packed coordinates of the chunks to sweep.
+     */
+    public RainSweepTask(RainSweepModule module, World world, Queue<Long> chunks)
+    {
+        this.module = module;
+        this.world = world;
+        this.chunks = chunks;
+    }
+
+
+    @Override
+    public void run()
+    {
+        if (!world.hasStorm())
+        {
+            module.stopSweep(world);
+            return;
+        }
+
+        final long deadline = System.nanoTime() + TICK_BUDGET;
+        do
+        {
+            Long key = chunks.poll();
+            if (key == null)
+            {
+                module.stopSweep(world);
+                return;
+            }
+            final int x = CoordHelper.unpackChunkX(key), z = CoordHelper.unpackChunkZ(key);
+            if (world.isChunkLoaded(x, z) && !module.isClean(world, key))
+                module.sweepChunk(world.getChunkAt(x, z));
+        } while (System.nanoTime() < deadline);
+    }
+}
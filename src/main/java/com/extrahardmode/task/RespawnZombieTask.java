@@ -54,19 +54,26 @@ public class RespawnZombieTask implements Runnable
      */
     private final Player player;
 
+    /**
+     * How often the zombie has respawned, including this time.
+     */
+    private final int respawnCount;
+
 
     /**
      * Constructor.
      *
-     * @param plugin   - Plugin instance.
-     * @param location - Respawn location.
-     * @param target   - Target player.
+     * @param plugin       - Plugin instance.
+     * @param location     - Respawn location.
+     * @param target       - Target player.
+     * @param respawnCount - How often the zombie has respawned.
      */
-    public RespawnZombieTask(ExtraHardMode plugin, Location location, Player target)
+    public RespawnZombieTask(ExtraHardMode plugin, Location location, Player target, int respawnCount)
     {
         this.plugin = plugin;
         this.location = location;
         this.player = target;
+        this.respawnCount = respawnCount;
     }
 
 
@@ -84,6 +91,7 @@ public class RespawnZombieTask implements Runnable
         // this zombie will not drop loot (again)
         EntityHelper.markLootLess(plugin, zombie);
         EntityHelper.markAsOurs(plugin, zombie);
+        EntityHelper.getStates().getOrCreate(zombie).respawnCount = respawnCount;
         // zombie is still madat the same player
         if (this.player != null && this.player.isOnline())
         {
@@ -11,13 +11,12 @@ import org.bukkit.scoreboard.Objective;
 import org.bukkit.scoreboard.Score;
 import org.bukkit.scoreboard.Scoreboard;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Every player gets a handler that handles new messages, removal of messages and restoring of the previous scoreboard once there are no messages to display anymore
+ * <p/>
+ * The handler remembers which lines are shown with which score and only adds, removes or moves the lines that changed.
  *
  * @author Diemex
  */
@@ -68,6 +67,21 @@ public class PlayerNotificationHandler
      */
     private Map<String, Integer> idMap = new HashMap<String, Integer>();
 
+    /**
+     * Lines currently shown on our scoreboard and their score
+     */
+    private Map<String, Integer> renderedLines = new HashMap<String, Integer>();
+
+    /**
+     * OfflinePlayer handles of the shown lines, so they don't have to be looked up on every update
+     */
+    private final Map<String, OfflinePlayer> lineHandles = new HashMap<String, OfflinePlayer>();
+
+    /**
+     * Title currently shown
+     */
+    private String renderedTitle;
+
 
     public PlayerNotificationHandler(String scoreboardTitle, Plugin plugin, String playerName)
     {
@@ -151,15 +165,9 @@ public class PlayerNotificationHandler
      */
     public void removeMessage(String id)
     {
-        if (idMap.containsKey(id))
-        {
-            int index = idMap.get(id);
-            idMap.remove(id);
+        Integer index = idMap.remove(id);
+        if (index != null)
             removeMessage(index);
-            updateIndexes();
-            if (!messagesScheduled())
-                restoreScoreboard();
-        }
     }
 
 
@@ -174,13 +182,8 @@ public class PlayerNotificationHandler
         if (notifications.containsKey(id))
         {
             msgCount--;
-            for (String line : notifications.get(id).getMsg())
-            {
-                OfflinePlayer remove = plugin.getServer().getOfflinePlayer(line);
-                msgBoard.resetScores(remove);
-            }
             notifications.remove(id);
-            //Update all the line numbers
+            //Update all the line numbers, the lines of the message get removed with it
             updateIndexes();
             if (!messagesScheduled())
                 restoreScoreboard();
@@ -188,44 +191,102 @@ public class PlayerNotificationHandler
     }
 
 
+    /**
+     * Bring the scoreboard up to date with the notifications, only the lines which changed are touched
+     */
     private void updateIndexes()
+    {
+        if (objective == null) //never been shown
+            return;
+
+        Map<String, Integer> wanted = new HashMap<String, Integer>();
+        String title = layout(wanted);
+        if (title != null && !title.equals(renderedTitle))
+        {
+            objective.setDisplayName(title);
+            renderedTitle = title;
+        }
+
+        List<String> removed = new ArrayList<String>();
+        Map<String, Integer> changed = diff(renderedLines, wanted, removed);
+        for (String line : removed)
+        {
+            msgBoard.resetScores(getLineHandle(line));
+            lineHandles.remove(line);
+        }
+        for (Map.Entry<String, Integer> line : changed.entrySet())
+            objective.getScore(getLineHandle(line.getKey())).setScore(line.getValue());
+        renderedLines = wanted;
+    }
+
+
+    /**
+     * Compute the lines of all notifications and put separators in between the messages
+     *
+     * @param lines gets the lines and their score
+     *
+     * @return title and color of the newest message, null if there are no messages
+     */
+    private String layout(Map<String, Integer> lines)
     {
         int lastLine = lineCount() + notifications.size() - 1; //separators, no separator on the last line
         int separator = 0; //pos of =
+        String title = null;
 
-        //Clear scoreboard
-        for (OfflinePlayer player : msgBoard.getPlayers())
-            msgBoard.resetScores(player);
-
-        //Update the scores and put separators in between the lines
-        boolean updateTitle = true;
         for (int i = getHighestIndex(); i > 0; i--)
         {
-            if (notifications.containsKey(i))
+            NotificationHolder popup = notifications.get(i);
+            if (popup != null)
             {
                 //Use the title and color of the newest message
-                if (updateTitle)
-                {
-                    objective.setDisplayName(notifications.get(i).getTitle());
-                    updateTitle = false;
-                }
-
-                NotificationHolder popup = notifications.get(i);
-                List<String> msg = popup.getMsg();
-                for (String msgLine : msg)
-                {
-                    OfflinePlayer line = plugin.getServer().getOfflinePlayer(msgLine);
-                    Score score = objective.getScore(line);
-                    score.setScore(lastLine--);
-                }
+                if (title == null)
+                    title = popup.getTitle();
+
+                for (String msgLine : popup.getMsg())
+                    lines.put(msgLine, lastLine--);
 
                 StringBuilder sb = new StringBuilder(StringUtils.repeat("-", 16));
                 sb.setCharAt(separator < 16 ? separator++ : 0, '='); //Maximum of 16 messages at a time...
-                OfflinePlayer dash = plugin.getServer().getOfflinePlayer(sb.toString());
                 if (i != 1) //not last line
-                    objective.getScore(dash).setScore(lastLine--);
+                    lines.put(sb.toString(), lastLine--);
             }
         }
+        return title;
+    }
+
+
+    /**
+     * Compute the changes needed to get from the rendered lines to the wanted lines
+     *
+     * @param rendered lines currently shown and their score
+     * @param wanted   lines which should be shown and their score
+     * @param removed  gets the lines which have to be removed from the board
+     *
+     * @return lines which have to be added or moved to a different score
+     */
+    public static Map<String, Integer> diff(Map<String, Integer> rendered, Map<String, Integer> wanted, Collection<String> removed)
+    {
+        for (String line : rendered.keySet())
+            if (!wanted.containsKey(line))
+                removed.add(line);
+
+        Map<String, Integer> changed = new HashMap<String, Integer>();
+        for (Map.Entry<String, Integer> line : wanted.entrySet())
+            if (!line.getValue().equals(rendered.get(line.getKey())))
+                changed.put(line.getKey(), line.getValue());
+        return changed;
+    }
+
+
+    private OfflinePlayer getLineHandle(String line)
+    {
+        OfflinePlayer handle = lineHandles.get(line);
+        if (handle == null)
+        {
+            handle = plugin.getServer().getOfflinePlayer(line);
+            lineHandles.put(line, handle);
+        }
+        return handle;
     }
 
 
@@ -0,0 +1,104 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.config;
+
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the BlockTypeSet matches the same blocks as the parsed config lists
+ */
+public class TestBlockTypeSet
+{
+    private final BlockTypeSet set;
+
+
+    public TestBlockTypeSet()
+    {
+        Map<Integer, List<Byte>> blocks = new HashMap<Integer, List<Byte>>();
+        blocks.put(3, Collections.<Byte>emptyList());    //Dirt with any data
+        blocks.put(44, Arrays.asList((byte) 3, (byte) 11)); //cobble slabs
+        blocks.put(64, Arrays.asList((byte) 0));
+        blocks.put(65, Arrays.asList((byte) 20));        //invalid data value
+        set = BlockTypeSet.fromMap(blocks);
+    }
+
+
+    @Test
+    public void anyData()
+    {
+        assertTrue(set.contains(3));
+        for (int data = 0; data < 16; data++)
+            assertTrue(set.contains(3, data));
+    }
+
+
+    @Test
+    public void specificData()
+    {
+        assertTrue(set.contains(44));
+        assertTrue(set.contains(44, 3));
+        assertTrue(set.contains(44, 11));
+        assertFalse(set.contains(44, 0));
+        assertFalse(set.contains(44, 4));
+        assertTrue(set.contains(64, 0));
+        assertFalse(set.contains(64, 1));
+    }
+
+
+    @Test
+    public void invalidDataNeverMatches()
+    {
+        assertTrue(set.contains(65));
+        for (int data = 0; data < 16; data++)
+            assertFalse(set.contains(65, data));
+    }
+
+
+    @Test
+    public void notContained()
+    {
+        assertFalse(set.contains(1));
+        assertFalse(set.contains(1, 0));
+        assertFalse(set.contains(-1));
+        assertFalse(set.contains(-1, 0));
+        assertFalse(set.contains(4000));
+        assertFalse(set.contains(4000, 0));
+        assertFalse(set.contains(44, -1));
+        assertFalse(set.contains(44, 16));
+    }
+
+
+    @Test
+    public void empty()
+    {
+        assertTrue(BlockTypeSet.fromMap(Collections.<Integer, List<Byte>>emptyMap()).isEmpty());
+        assertFalse(BlockTypeSet.EMPTY.contains(0));
+        assertFalse(BlockTypeSet.EMPTY.contains(0, 0));
+        assertFalse(set.isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.extrahardmode.config;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockWorld;
+import org.bukkit.World;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the compiled WorldSettings match the values in the RootConfig
+ */
+public class TestWorldSettings
+{
+    private final ExtraHardMode plugin = new MockExtraHardMode().get();
+
+    private final RootConfig cfg = new RootConfig(plugin);
+
+
+    public TestWorldSettings()
+    {
+        cfg.set("world", RootNode.WEAK_FOOD_CROPS, true);
+        cfg.set("world", RootNode.GHASTS_DEFLECT_ARROWS, 50);
+        cfg.set("world", RootNode.NO_SWIMMING_IN_ARMOR_MAX_POINTS, 18.5);
+    }
+
+
+    @Test
+    public void sameValues()
+    {
+        WorldSettings settings = cfg.getSettings(new MockWorld("world").get());
+        assertTrue(settings.isEnabled());
+        assertEquals(true, settings.getBoolean(RootNode.WEAK_FOOD_CROPS));
+        assertEquals(50, settings.getInt(RootNode.GHASTS_DEFLECT_ARROWS));
+        assertEquals(18.5, settings.getDouble(RootNode.NO_SWIMMING_IN_ARMOR_MAX_POINTS), 0.0);
+    }
+
+
+    /**
+     * Worlds where ehm isn't enabled get the values that disable a feature
+     */
+    @Test
+    public void notEnabled()
+    {
+        WorldSettings settings = cfg.getSettings("test123");
+        assertFalse(settings.isEnabled());
+        assertEquals(false, settings.getBoolean(RootNode.WEAK_FOOD_CROPS));
+        assertEquals(100, settings.getInt(RootNode.GHASTS_DEFLECT_ARROWS));
+        assertEquals("", settings.getString(RootNode.MODE));
+    }
+
+
+    /**
+     * Changing a value has to recompile the settings
+     */
+    @Test
+    public void invalidatedOnSet()
+    {
+        World world = new MockWorld("world").get();
+        assertTrue(cfg.getSettings(world).getBoolean(RootNode.WEAK_FOOD_CROPS));
+        cfg.set("world", RootNode.WEAK_FOOD_CROPS, false);
+        assertFalse(cfg.getSettings(world).getBoolean(RootNode.WEAK_FOOD_CROPS));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalArgumentBoolean()
+    {
+        cfg.getSettings("world").getBoolean(RootNode.GHASTS_DEFLECT_ARROWS);
+    }
+}
@@ -27,20 +27,29 @@ import com.extrahardmode.config.RootConfig;
 import com.extrahardmode.config.RootNode;
 import com.extrahardmode.mocks.MockBlock;
 import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockLivingEntity;
 import com.extrahardmode.mocks.MockLocation;
 import com.extrahardmode.mocks.MockWorld;
 import com.extrahardmode.mocks.events.MockCreatureSpawnEvent;
 import com.extrahardmode.module.BlockModule;
+import com.extrahardmode.module.GrinderHeatmap;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
 import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
 
 public class TestAntiGrinder
 {
@@ -56,6 +65,8 @@ public class TestAntiGrinder
     {
         //Enable AntiGrinder in the Config
         CFG.set("world", RootNode.INHIBIT_MONSTER_GRINDERS, true);
+        //check every death
+        CFG.set("world", RootNode.INHIBIT_MONSTER_GRINDERS_KILLS_PER_CHUNK, 0);
     }
 
 
@@ -138,4 +149,68 @@ public class TestAntiGrinder
 
         assertFalse("Spawn on NetherRack in the OverWorld should have failed", module.onEntitySpawn(event.get()));
     }
+
+
+    /**
+     * A monster killed by hand next to a farm mustn't make the farm drop loot
+     */
+    @Test
+    public void fairKillDoesntExemptFarm()
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            assertFalse("Monster in water dropped loot", module.onEntityDeath(zombieDeath(Material.STATIONARY_WATER)));
+            assertTrue("Fair kill didn't drop loot", module.onEntityDeath(zombieDeath(Material.DIRT)));
+        }
+    }
+
+
+    /**
+     * A single easy kill doesn't take the loot of the next fights in the chunk
+     */
+    @Test
+    public void easyKillDoesntMarkChunk()
+    {
+        assertFalse("Monster in water dropped loot", module.onEntityDeath(zombieDeath(Material.STATIONARY_WATER)));
+        assertTrue("Fair kill didn't drop loot", module.onEntityDeath(zombieDeath(Material.DIRT)));
+    }
+
+
+    /**
+     * After enough easy kills in a row the chunk is remembered as a farm
+     */
+    @Test
+    public void farmRemembered()
+    {
+        for (int i = 0; i < GrinderHeatmap.FARM_STREAK; i++)
+            module.onEntityDeath(zombieDeath(Material.STATIONARY_WATER));
+        assertFalse("Farm chunk should have been remembered", module.onEntityDeath(zombieDeath(Material.DIRT)));
+    }
+
+
+    /**
+     * A zombie dying in the same chunk on a block surrounded by the given material
+     */
+    private EntityDeathEvent zombieDeath(Material surrounding)
+    {
+        World world = new MockWorld("world").get();
+        LivingEntity zombie = new MockLivingEntity(world, EntityType.ZOMBIE).get();
+
+        MockBlock block = new MockBlock();
+        block.setWorld(world);
+        block.setMaterial(Material.AIR);
+        MockBlock relative = new MockBlock();
+        relative.setWorld(world);
+        relative.setMaterial(surrounding);
+        block.setRelative(BlockFace.DOWN, relative.get());
+
+        MockLocation location = new MockLocation(world);
+        location.setBlock(block);
+        when(zombie.getLocation()).thenReturn(location.get());
+        when(zombie.getEyeLocation()).thenReturn(location.get());
+
+        List<ItemStack> drops = new ArrayList<ItemStack>();
+        drops.add(new ItemStack(Material.ROTTEN_FLESH));
+        return new EntityDeathEvent(zombie, drops, 5);
+    }
 }
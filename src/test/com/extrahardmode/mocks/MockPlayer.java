@@ -24,6 +24,8 @@ package com.extrahardmode.mocks;
 
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +45,7 @@ public class MockPlayer
     public MockPlayer(String name)
     {
         when(myPlayer.getName()).thenReturn(name);
+        when(myPlayer.getUniqueId()).thenReturn(UUID.nameUUIDFromBytes(name.getBytes()));
     }
 
 
@@ -0,0 +1,99 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockLocation;
+import com.extrahardmode.mocks.MockPlayer;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.DataStoreModule;
+import org.bukkit.entity.Player;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the data of Players who left is purged after the grace period
+ */
+public class TestDataStoreModule
+{
+    private final ExtraHardMode plugin = new MockExtraHardMode().get();
+
+    private final DataStoreModule dataStore = new DataStoreModule(plugin, new RootConfig(plugin));
+
+    private final Player player = new MockPlayer("Diemex").get();
+
+
+    @Test
+    public void samePlayerSameData()
+    {
+        DataStoreModule.PlayerData data = dataStore.join(player);
+        assertSame(data, dataStore.getPlayerData(player));
+        assertSame(data, dataStore.getPlayerData(new MockPlayer("Diemex").get()));
+        assertNotSame(data, dataStore.getPlayerData(new MockPlayer("Max").get()));
+    }
+
+
+    @Test
+    public void purgedAfterGracePeriod()
+    {
+        dataStore.join(player).inDebug = true;
+        dataStore.quit(player, 1000);
+
+        assertEquals(0, dataStore.purge(1000 + DataStoreModule.GRACE_PERIOD));
+        assertEquals(1, dataStore.size());
+        assertEquals(1, dataStore.purge(1001 + DataStoreModule.GRACE_PERIOD));
+        assertEquals(0, dataStore.size());
+        assertFalse(dataStore.join(player).inDebug);
+    }
+
+
+    /**
+     * A Player who comes back within the grace period keeps his data
+     */
+    @Test
+    public void rejoinKeepsData()
+    {
+        dataStore.join(player).inDebug = true;
+        dataStore.quit(player, 1000);
+        dataStore.join(player);
+
+        assertEquals(0, dataStore.purge(1000 + 2 * DataStoreModule.GRACE_PERIOD));
+        assertTrue(dataStore.getPlayerData(player).inDebug);
+    }
+
+
+    /**
+     * The MoreMonstersTask shouldn't spawn a monster where the Player logged out
+     */
+    @Test
+    public void monsterLocationClearedOnQuit()
+    {
+        dataStore.join(player).moreMonstersLocation = new MockLocation(new MockWorld("world").get()).get();
+        dataStore.quit(player, 1000);
+        assertNull(dataStore.join(player).moreMonstersLocation);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.mocks.MockPlayer;
+import com.extrahardmode.mocks.MockPlayerInventory;
+import com.extrahardmode.module.Encumbrance;
+import com.extrahardmode.module.PlayerModule;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test that the incremental weight matches the weight of the whole inventory
+ */
+public class TestEncumbrance
+{
+    private final Player myPlayer = new MockPlayer("Diemex94").get();
+
+    private final ItemStack[] armor = new ItemStack[4];
+
+    private final ItemStack[] inv = new ItemStack[4 * 9];
+
+
+    public TestEncumbrance()
+    {
+        new MockPlayerInventory(myPlayer, armor, inv);
+    }
+
+
+    @Test
+    public void matchesFullCount()
+    {
+        armor[0] = new ItemStack(Material.IRON_BOOTS);
+        inv[0] = new ItemStack(Material.DIAMOND_SWORD);
+        inv[9] = new ItemStack(Material.BOOK, 32);
+        inv[12] = new ItemStack(Material.ENDER_PEARL, 8);
+
+        Encumbrance encumbrance = new Encumbrance();
+        encumbrance.update(myPlayer.getInventory());
+        assertEquals(PlayerModule.inventoryWeight(myPlayer, 5, 64, 1), encumbrance.getWeight(5, 64, 1), 0.001);
+        assertEquals("1 armor, 1 tool, half a stack of books and half a stack of pearls", 5 + 1 + 32 + 32, encumbrance.getWeight(5, 64, 1), 0.001);
+    }
+
+
+    @Test
+    public void onlyChangedSlots()
+    {
+        inv[3] = new ItemStack(Material.DIRT, 64);
+        inv[4] = new ItemStack(Material.DIAMOND_PICKAXE);
+
+        Encumbrance encumbrance = new Encumbrance();
+        assertEquals(2, encumbrance.update(myPlayer.getInventory()));
+        assertEquals("Nothing changed", 0, encumbrance.update(myPlayer.getInventory()));
+
+        inv[3] = new ItemStack(Material.DIRT, 16);
+        armor[2] = new ItemStack(Material.IRON_CHESTPLATE);
+        inv[4] = null;
+        assertEquals(3, encumbrance.update(myPlayer.getInventory()));
+        assertEquals(PlayerModule.inventoryWeight(myPlayer, 5, 64, 1), encumbrance.getWeight(5, 64, 1), 0.001);
+        assertEquals(5 + 16, encumbrance.getWeight(5, 64, 1), 0.001);
+    }
+}
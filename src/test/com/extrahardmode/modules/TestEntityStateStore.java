@@ -0,0 +1,125 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.module.EntityState;
+import com.extrahardmode.module.EntityStateStore;
+import org.bukkit.entity.Entity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the flags and counters of the EntityStateStore
+ */
+public class TestEntityStateStore
+{
+    private final EntityStateStore store = new EntityStateStore();
+
+
+    private Entity mockEntity(int id, boolean valid)
+    {
+        Entity entity = mock(Entity.class);
+        when(entity.getEntityId()).thenReturn(id);
+        when(entity.isValid()).thenReturn(valid);
+        return entity;
+    }
+
+
+    @Test
+    public void flags()
+    {
+        Entity first = mockEntity(1, true);
+        Entity second = mockEntity(2, true);
+
+        assertFalse(store.hasFlag(first, EntityState.IGNORE));
+        store.setFlag(first, EntityState.IGNORE);
+        store.setFlag(first, EntityState.OURS);
+        assertTrue(store.hasFlag(first, EntityState.IGNORE));
+        assertTrue(store.hasFlag(first, EntityState.OURS));
+        assertFalse(store.hasFlag(first, EntityState.PROCESS));
+        assertFalse(store.hasFlag(second, EntityState.IGNORE));
+        assertNull("Reading doesn't create a state", store.get(second));
+
+        store.remove(first);
+        assertFalse(store.hasFlag(first, EntityState.IGNORE));
+    }
+
+
+    @Test
+    public void minions()
+    {
+        EntityState state = store.getOrCreate(mockEntity(1, true));
+        state.addMinion(10);
+        state.addMinion(11);
+        state.addMinion(12);
+        state.addMinion(13);
+        state.addMinion(14);
+        state.removeMinion(11);
+
+        assertEquals(4, state.getMinionCount());
+        assertEquals(5, state.totalMinions);
+        for (int i = 0; i < state.getMinionCount(); i++)
+            assertTrue(state.getMinion(i) != 11);
+    }
+
+
+    /**
+     * Minions and summoners are unlinked when either of them is removed
+     */
+    @Test
+    public void links()
+    {
+        Entity skeleton = mockEntity(1, true);
+        Entity first = mockEntity(2, true);
+        Entity second = mockEntity(3, true);
+        store.link(skeleton, first);
+        store.link(skeleton, second);
+
+        assertEquals(2, store.getMinions(skeleton).size());
+        assertSame(skeleton, store.getSummoner(first));
+
+        store.remove(first);
+        assertEquals(1, store.getMinions(skeleton).size());
+        assertSame(second, store.getMinions(skeleton).get(0));
+        assertEquals("Total count stays", 2, store.get(skeleton).totalMinions);
+
+        store.remove(skeleton);
+        assertNull(store.getSummoner(second));
+        assertEquals(-1, store.get(second).summonerId);
+    }
+
+
+    @Test
+    public void purge()
+    {
+        store.getOrCreate(mockEntity(1, true));
+        store.getOrCreate(mockEntity(2, false));
+        assertEquals(1, store.purgeInvalid());
+        assertEquals(1, store.size());
+        assertNotNull(store.get(1));
+    }
+}
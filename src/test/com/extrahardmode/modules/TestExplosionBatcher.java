@@ -0,0 +1,159 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.ExtraHardMode;
+import com.extrahardmode.config.RootConfig;
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.ExplosionBatcher;
+import com.extrahardmode.module.ExplosionBatcher.Cluster;
+import com.extrahardmode.module.ExplosionBatcher.Request;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the clustering of explosions which have been requested in the same tick
+ */
+public class TestExplosionBatcher
+{
+    private final World world = new MockWorld("world").get();
+
+    private final World nether = new MockWorld("world_nether").get();
+
+
+    @Test
+    public void overlappingCluster()
+    {
+        Entity tnt = mock(Entity.class);
+        Request first = new Request(world, 0, 64, 0, 4, false, true, tnt);
+        Request second = new Request(world, 2, 64, 0, 4, false, true, null);
+        List<Cluster> clusters = ExplosionBatcher.cluster(Arrays.asList(first, second));
+        assertEquals(1, clusters.size());
+        List<Request> explosions = clusters.get(0).getExplosions();
+        assertEquals("Explosions are kept as they are", 2, explosions.size());
+        assertSame(first, explosions.get(0));
+        assertSame(second, explosions.get(1));
+    }
+
+
+    @Test
+    public void distantDontCluster()
+    {
+        List<Cluster> clusters = ExplosionBatcher.cluster(Arrays.asList(
+                new Request(world, 0, 64, 0, 4, false, true, null),
+                new Request(world, 20, 64, 0, 4, false, true, null),
+                new Request(nether, 0, 64, 0, 4, false, true, null),
+                new Request(world, 0, 64, 0, 4, true, true, null)));
+        assertEquals("Different location, world or fire setting", 4, clusters.size());
+    }
+
+
+    /**
+     * A chain of explosions is split up once it gets too long
+     */
+    @Test
+    public void chainIsLimited()
+    {
+        List<Request> requests = new ArrayList<Request>();
+        for (int x = 0; x <= 2 * ExplosionBatcher.MAX_CLUSTER_SPAN; x += 2)
+            requests.add(new Request(world, x, 64, 0, 4, false, true, null));
+        List<Cluster> clusters = ExplosionBatcher.cluster(requests);
+        assertEquals(2, clusters.size());
+        assertEquals(ExplosionBatcher.MAX_CLUSTER_SPAN / 2 + 1, clusters.get(0).getExplosions().size());
+    }
+
+
+    /**
+     * 100 TNT in one spot end up in one cluster, every TNT keeps its power
+     */
+    @Test
+    public void cannon()
+    {
+        List<Request> requests = new ArrayList<Request>();
+        for (int i = 0; i < 100; i++)
+            requests.add(new Request(world, i % 3, 64, i % 2, 4, false, true, null));
+        List<Cluster> clusters = ExplosionBatcher.cluster(requests);
+        assertEquals(1, clusters.size());
+        assertEquals(100, clusters.get(0).getExplosions().size());
+        for (Request explosion : clusters.get(0).getExplosions())
+            assertEquals(4.0F, explosion.power, 0.0F);
+    }
+
+
+    /**
+     * Entities are damaged by a vanilla explosion which doesn't break blocks, so they get BLOCK_EXPLOSION damage
+     */
+    @Test
+    public void entitiesDamagedByVanilla()
+    {
+        ExplosionBatcher.damageEntities(new Request(world, 1.5, 64, 2.5, 4, true, true, mock(Entity.class)));
+        verify(world).createExplosion(1.5, 64, 2.5, 4.0F, false, false);
+        verify(world, never()).createExplosion(anyDouble(), anyDouble(), anyDouble(), anyFloat(), eq(true), anyBoolean());
+        verify(world, never()).createExplosion(anyDouble(), anyDouble(), anyDouble(), anyFloat(), anyBoolean(), eq(true));
+    }
+
+
+    /**
+     * Explosions which overlap nothing are created right away, only coincident ones wait for the next tick
+     */
+    @Test
+    public void singleExplosionRightAway()
+    {
+        ExtraHardMode plugin = new MockExtraHardMode().get();
+        when(plugin.getModuleForClass(RootConfig.class)).thenReturn(new RootConfig(plugin));
+        Server server = mock(Server.class);
+        when(plugin.getServer()).thenReturn(server);
+        when(server.getScheduler()).thenReturn(mock(BukkitScheduler.class));
+        ExplosionBatcher batcher = new ExplosionBatcher(plugin);
+        batcher.starting();
+
+        batcher.request(new Location(world, 0, 64, 0), 4, false, true, null);
+        verify(world).createExplosion(0.0, 64.0, 0.0, 4.0F, false, true);
+        batcher.request(new Location(world, 20, 64, 0), 4, false, true, null);
+        verify(world).createExplosion(20.0, 64.0, 0.0, 4.0F, false, true);
+
+        batcher.request(new Location(world, 1, 64, 0), 4, false, true, null);
+        verify(world, never()).createExplosion(eq(1.0), anyDouble(), anyDouble(), anyFloat(), anyBoolean(), anyBoolean());
+    }
+}
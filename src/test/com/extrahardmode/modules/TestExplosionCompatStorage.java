@@ -0,0 +1,81 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.mocks.MockExtraHardMode;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.ExplosionCompatStorage;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test that many explosions can be pending at once and are matched to the right cause
+ */
+public class TestExplosionCompatStorage
+{
+    private final ExplosionCompatStorage storage = new ExplosionCompatStorage(new MockExtraHardMode().get());
+
+    private final World world = new MockWorld("world").get();
+
+    private final World nether = new MockWorld("world_nether").get();
+
+
+    @Test
+    public void manyPending()
+    {
+        Entity[] causes = new Entity[100];
+        for (int i = 0; i < causes.length; i++)
+        {
+            causes[i] = mock(Entity.class);
+            storage.queueExplosion(new Location(world, i * 3.5, 30.2, -i), causes[i]);
+        }
+        assertEquals(100, storage.size());
+
+        //events come in a different order
+        for (int i = causes.length - 1; i >= 0; i--)
+            assertSame(causes[i], storage.takeExplosion(new Location(world, i * 3.5 + 0.2, 30.9, -i)).getExplosionCause());
+        assertTrue(storage.queueEmpty());
+        assertNull(storage.takeExplosion(new Location(world, 0, 30, 0)));
+    }
+
+
+    @Test
+    public void sameBlock()
+    {
+        Entity first = mock(Entity.class), second = mock(Entity.class), inNether = mock(Entity.class);
+        storage.queueExplosion(new Location(world, 10, 64, 10), first);
+        storage.queueExplosion(new Location(nether, 10, 64, 10), inNether);
+        storage.queueExplosion(new Location(world, 10, 64, 10), second);
+
+        assertSame(inNether, storage.takeExplosion(new Location(nether, 10, 64, 10)).getExplosionCause());
+        assertSame(first, storage.takeExplosion(new Location(world, 10, 64, 10)).getExplosionCause());
+        assertSame(second, storage.takeExplosion(new Location(world, 10, 64, 10)).getExplosionCause());
+        assertNull(storage.takeExplosion(new Location(world, 10, 64, 10)));
+    }
+}
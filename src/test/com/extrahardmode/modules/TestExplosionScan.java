@@ -0,0 +1,170 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.BlockList;
+import com.extrahardmode.module.CoordHelper;
+import com.extrahardmode.module.ExplosionBatcher.Request;
+import com.extrahardmode.module.ExplosionScan;
+import com.extrahardmode.module.SnapshotArea;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the ray trace of explosions against snapshots
+ */
+public class TestExplosionScan
+{
+    private final World world = new MockWorld("world").get();
+
+    /**
+     * One chunk with a stone floor at y 62 and an obsidian wall at x 12
+     */
+    private final SnapshotArea area;
+
+
+    public TestExplosionScan()
+    {
+        ChunkSnapshot chunk = mock(ChunkSnapshot.class);
+        when(chunk.getBlockTypeId(anyInt(), eq(62), anyInt())).thenReturn(Material.STONE.getId());
+        when(chunk.getBlockTypeId(eq(12), anyInt(), anyInt())).thenReturn(Material.OBSIDIAN.getId());
+        area = new SnapshotArea(world, 256, 0, 0, 1, 1, new ChunkSnapshot[]{chunk});
+    }
+
+
+    private BlockList scan(boolean setFire, int flyPercentage)
+    {
+        BlockList result = new BlockList();
+        Request explosion = new Request(world, 8.5, 63.5, 8.5, 4, setFire, true, null);
+        new ExplosionScan(null, Arrays.asList(explosion), flyPercentage, 42L).scan(area, result);
+        return result;
+    }
+
+
+    @Test
+    public void resistance()
+    {
+        assertEquals(0.0F, ExplosionScan.getResistance(Material.AIR.getId()), 0.0F);
+        assertEquals(6.0F, ExplosionScan.getResistance(Material.STONE.getId()), 0.0F);
+        assertEquals(1200.0F, ExplosionScan.getResistance(Material.OBSIDIAN.getId()), 0.0F);
+    }
+
+
+    @Test
+    public void obsidianStopsRays()
+    {
+        BlockList result = scan(false, 0);
+        boolean floor = false;
+        for (int i = 0; i < result.size(); i++)
+        {
+            assertTrue("Obsidian and everything behind it survives", result.getX(i) < 12);
+            assertEquals(ExplosionScan.BREAK, result.getTag(i));
+            if (result.getX(i) == 8 && result.getY(i) == 62 && result.getZ(i) == 8)
+                floor = true;
+        }
+        assertTrue("Stone below the center breaks", floor);
+    }
+
+
+    @Test
+    public void flyAndFire()
+    {
+        BlockList result = scan(true, 100);
+        int fires = 0;
+        for (int i = 0; i < result.size(); i++)
+        {
+            if (result.getY(i) == 62)
+                assertEquals("Stone is solid", ExplosionScan.FLY, result.getTag(i));
+            else
+            {
+                assertEquals("Only air above the floor is listed", ExplosionScan.FIRE, result.getTag(i));
+                assertEquals(63, result.getY(i));
+                fires++;
+            }
+        }
+        assertTrue(fires > 0);
+    }
+
+
+    /**
+     * Two explosions next to each other, every block is listed once for the explosion which reached it first
+     */
+    @Test
+    public void union()
+    {
+        Request first = new Request(world, 6.5, 63.5, 8.5, 4, false, true, null);
+        Request second = new Request(world, 9.5, 63.5, 8.5, 4, false, true, null);
+        BlockList result = new BlockList();
+        new ExplosionScan(null, Arrays.asList(first, second), 0, 42L).scan(area, result);
+
+        Set<Long> blocks = new HashSet<Long>();
+        boolean secondOnly = false;
+        for (int i = 0; i < result.size(); i++)
+        {
+            assertTrue("Listed once", blocks.add(CoordHelper.pack(result.getX(i), result.getY(i), result.getZ(i))));
+            assertTrue(result.getX(i) < 12);
+            if (result.getTag(i) >> 2 == 1) //index of the explosion
+                secondOnly = true;
+        }
+        assertTrue("The second explosion reaches blocks the first one doesn't", secondOnly);
+    }
+
+
+    /**
+     * Two TNT in the same spot inside of stone, the second one blows through the crater of the first one
+     */
+    @Test
+    public void stackedTnt()
+    {
+        ChunkSnapshot chunk = mock(ChunkSnapshot.class);
+        when(chunk.getBlockTypeId(anyInt(), anyInt(), anyInt())).thenReturn(Material.STONE.getId());
+        SnapshotArea stone = new SnapshotArea(world, 256, 0, 0, 1, 1, new ChunkSnapshot[]{chunk});
+        Request tnt = new Request(world, 8.5, 60.5, 8.5, 4, false, true, null);
+
+        BlockList single = new BlockList();
+        new ExplosionScan(null, Arrays.asList(tnt), 0, 42L).scan(stone, single);
+        BlockList stacked = new BlockList();
+        new ExplosionScan(null, Arrays.asList(tnt, tnt), 0, 42L).scan(stone, stacked);
+
+        assertTrue("More blocks than one explosion alone", stacked.size() > single.size());
+        boolean neighbor = false;
+        for (int i = 0; i < stacked.size(); i++)
+            if (stacked.getX(i) == 9 && stacked.getY(i) == 60 && stacked.getZ(i) == 8)
+                neighbor = true;
+        assertTrue("Stone next to the center breaks", neighbor);
+    }
+}
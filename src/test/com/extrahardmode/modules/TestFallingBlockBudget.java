@@ -0,0 +1,91 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.module.FallingBlockBudget;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test the counting of live FallingBlocks per chunk and world
+ */
+public class TestFallingBlockBudget
+{
+    private final FallingBlockBudget budget = new FallingBlockBudget();
+
+
+    @Test
+    public void chunkLimit()
+    {
+        for (int i = 0; i < 4; i++)
+        {
+            assertTrue(budget.hasRoom(0, 0, 4, 0, 0L));
+            budget.track(UUID.randomUUID(), 0, 0, 0L);
+        }
+        assertFalse("Chunk is full", budget.hasRoom(0, 0, 4, 0, 0L));
+        assertTrue("Other chunks aren't affected", budget.hasRoom(1, 0, 4, 0, 0L));
+        assertTrue("No limit", budget.hasRoom(0, 0, 0, 0, 0L));
+    }
+
+
+    @Test
+    public void worldLimit()
+    {
+        budget.track(UUID.randomUUID(), 0, 0, 0L);
+        budget.track(UUID.randomUUID(), -5, 7, 0L);
+        assertFalse(budget.hasRoom(100, 100, 0, 2, 0L));
+        assertEquals(2, budget.size());
+    }
+
+
+    @Test
+    public void releaseOnLand()
+    {
+        UUID id = UUID.randomUUID();
+        budget.track(id, 3, 3, 0L);
+        budget.track(id, 3, 3, 0L);
+        assertEquals("Tracked only once", 1, budget.getCount(3, 3));
+        assertTrue(budget.release(id));
+        assertFalse(budget.release(id));
+        assertEquals(0, budget.getCount(3, 3));
+        assertEquals(0, budget.size());
+    }
+
+
+    /**
+     * FallingBlocks which disappeared without an event don't use up the budget forever
+     */
+    @Test
+    public void expire()
+    {
+        budget.track(UUID.randomUUID(), 0, 0, 0L);
+        budget.track(UUID.randomUUID(), 0, 0, 1000L);
+        assertFalse(budget.hasRoom(0, 0, 2, 0, FallingBlockBudget.MAX_AGE));
+        assertTrue(budget.hasRoom(0, 0, 2, 0, FallingBlockBudget.MAX_AGE + 1));
+        assertEquals(1, budget.getCount(0, 0));
+    }
+}
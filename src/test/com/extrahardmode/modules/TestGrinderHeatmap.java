@@ -0,0 +1,117 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.module.CoordHelper;
+import com.extrahardmode.module.GrinderHeatmap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the decay and the remembered verdicts of the GrinderHeatmap
+ */
+public class TestGrinderHeatmap
+{
+    private final GrinderHeatmap heatmap = new GrinderHeatmap();
+
+    private final long chunk = CoordHelper.packChunk(-3, 7);
+
+
+    @Test
+    public void killsAddUp()
+    {
+        for (int i = 0; i < 10; i++)
+            heatmap.recordKill(chunk, 1000L);
+        heatmap.recordDamage(chunk, GrinderHeatmap.DAMAGE_PER_KILL * 2, 1000L);
+        assertEquals(12.0F, heatmap.getHeat(chunk, 1000L), 0.001F);
+        assertEquals("Other chunks stay cold", 0.0F, heatmap.getHeat(CoordHelper.packChunk(-3, 8), 1000L), 0.0F);
+    }
+
+
+    @Test
+    public void decay()
+    {
+        for (int i = 0; i < 8; i++)
+            heatmap.recordKill(chunk, 0L);
+        assertEquals(4.0F, heatmap.getHeat(chunk, GrinderHeatmap.HALF_LIFE), 0.001F);
+        assertEquals(2.0F, heatmap.getHeat(chunk, GrinderHeatmap.HALF_LIFE * 2), 0.001F);
+        assertEquals(3.0F, heatmap.recordKill(chunk, GrinderHeatmap.HALF_LIFE * 2), 0.001F);
+    }
+
+
+    @Test
+    public void verdictExpires()
+    {
+        assertEquals(GrinderHeatmap.UNKNOWN, heatmap.getVerdict(chunk, 0L));
+        markAsFarm(chunk, 0L, 60000L);
+        assertEquals(GrinderHeatmap.FARM, heatmap.getVerdict(chunk, 59999L));
+        assertEquals(GrinderHeatmap.UNKNOWN, heatmap.getVerdict(chunk, 60000L));
+    }
+
+
+    /**
+     * One fair kill between the easy ones mustn't exempt the farm, one easy kill mustn't mark the chunk
+     */
+    @Test
+    public void farmNeedsStreak()
+    {
+        assertEquals(GrinderHeatmap.UNKNOWN, heatmap.recordCheck(chunk, true, 0L, 60000L));
+        assertEquals(GrinderHeatmap.UNKNOWN, heatmap.recordCheck(chunk, false, 0L, 60000L));
+        for (int i = 1; i < GrinderHeatmap.FARM_STREAK; i++)
+            assertEquals(GrinderHeatmap.UNKNOWN, heatmap.recordCheck(chunk, true, 0L, 60000L));
+        assertEquals(GrinderHeatmap.UNKNOWN, heatmap.getVerdict(chunk, 0L));
+        assertEquals(GrinderHeatmap.FARM, heatmap.recordCheck(chunk, true, 0L, 60000L));
+        assertEquals(GrinderHeatmap.FARM, heatmap.getVerdict(chunk, 0L));
+    }
+
+
+    private void markAsFarm(long chunk, long now, long duration)
+    {
+        for (int i = 0; i < GrinderHeatmap.FARM_STREAK; i++)
+            heatmap.recordCheck(chunk, true, now, duration);
+    }
+
+
+    /**
+     * Chunks which have cooled down get dropped when the table grows
+     */
+    @Test
+    public void coldChunksGetDropped()
+    {
+        for (int x = 0; x < 1000; x++)
+            heatmap.recordKill(CoordHelper.packChunk(x, 0), 0L);
+        assertEquals(1000, heatmap.size());
+
+        markAsFarm(chunk, GrinderHeatmap.HALF_LIFE * 20, 1000L);
+        final long later = GrinderHeatmap.HALF_LIFE * 20;
+        //enough new chunks to make the table grow
+        for (int x = 0; x < 1500; x++)
+            heatmap.recordKill(CoordHelper.packChunk(x, 1), later);
+        assertTrue("Cold chunks should have been dropped", heatmap.size() <= 1501);
+        assertEquals(GrinderHeatmap.FARM, heatmap.getVerdict(chunk, later));
+        assertEquals(1.0F, heatmap.getHeat(CoordHelper.packChunk(0, 1), later), 0.001F);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.module.MaterialTraits;
+import org.bukkit.Material;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.extrahardmode.module.MaterialTraits.Trait.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test the defaults and config overrides of the MaterialTraits
+ */
+public class TestMaterialTraits
+{
+    @After
+    public void resetOverrides()
+    {
+        MaterialTraits.reset();
+    }
+
+
+    @Test
+    public void defaults()
+    {
+        assertTrue(MaterialTraits.has(Material.DIAMOND_PICKAXE, TOOL));
+        assertTrue(MaterialTraits.has(Material.LAVA_BUCKET, TOOL));
+        assertFalse(MaterialTraits.has(Material.STICK, TOOL));
+        assertTrue(MaterialTraits.has(Material.IRON_CHESTPLATE, ARMOR));
+        assertTrue(MaterialTraits.has(Material.STEP, SLAB));
+        assertTrue(MaterialTraits.has(Material.DOUBLE_STEP, SLAB));
+        assertTrue(MaterialTraits.has(Material.COBBLESTONE_STAIRS, STAIRS));
+        assertTrue(MaterialTraits.has(Material.STEP, BREAKS_FALLING_BLOCK));
+        assertFalse(MaterialTraits.has(Material.DOUBLE_STEP, BREAKS_FALLING_BLOCK));
+        assertTrue(MaterialTraits.has(Material.OBSIDIAN, NATURAL_OVERWORLD_SPAWN));
+        assertFalse(MaterialTraits.has(Material.NETHERRACK, NATURAL_OVERWORLD_SPAWN));
+        assertTrue(MaterialTraits.has(Material.SOUL_SAND, NATURAL_NETHER_SPAWN));
+        assertTrue(MaterialTraits.hasAny(Material.WOOD_STAIRS, SLAB.getMask() | STAIRS.getMask()));
+        assertFalse(MaterialTraits.hasAny(Material.STONE, SLAB.getMask() | STAIRS.getMask()));
+    }
+
+
+    @Test
+    public void overrides()
+    {
+        List<String> invalid = MaterialTraits.load(Arrays.asList("TOOL@STICK, BONE", "-natural_overworld_spawn@OBSIDIAN"));
+        assertTrue(invalid.isEmpty());
+        assertTrue(MaterialTraits.has(Material.STICK, TOOL));
+        assertTrue(MaterialTraits.has(Material.BONE.getId(), TOOL));
+        assertFalse(MaterialTraits.has(Material.OBSIDIAN, NATURAL_OVERWORLD_SPAWN));
+        assertTrue(MaterialTraits.has(Material.STONE, NATURAL_OVERWORLD_SPAWN));
+    }
+
+
+    @Test
+    public void reloadDropsOldOverrides()
+    {
+        MaterialTraits.load(Arrays.asList("TOOL@STICK"));
+        MaterialTraits.load(Arrays.asList("ARMOR@PUMPKIN"));
+        assertFalse(MaterialTraits.has(Material.STICK, TOOL));
+        assertTrue(MaterialTraits.has(Material.PUMPKIN, ARMOR));
+    }
+
+
+    @Test
+    public void invalidEntries()
+    {
+        List<String> invalid = MaterialTraits.load(Arrays.asList("FOO@STONE", "TOOL@NOT_A_MATERIAL,STICK", "TOOL"));
+        assertEquals(Arrays.asList("FOO@STONE", "NOT_A_MATERIAL", "TOOL"), invalid);
+        assertTrue(MaterialTraits.has(Material.STICK, TOOL));
+    }
+
+
+    @Test
+    public void unknownIds()
+    {
+        assertFalse(MaterialTraits.has(-1, TOOL));
+        assertFalse(MaterialTraits.has(Integer.MAX_VALUE, TOOL));
+        assertFalse(MaterialTraits.has((Material) null, TOOL));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.config.messages.MessageNode;
+import com.extrahardmode.module.MessageThrottle;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the timeouts between repeated messages
+ */
+public class TestMessageThrottle
+{
+    private final MessageThrottle throttle = new MessageThrottle();
+
+
+    /**
+     * nanoTime may be negative, the first message has to be shown anyway
+     */
+    @Test
+    public void firstMessageShown()
+    {
+        assertTrue(throttle.tryTutorial(MessageNode.NO_TORCHES_HERE, Long.MIN_VALUE + 1));
+        assertTrue(throttle.tryNotification(MessageNode.NO_TORCHES_HERE, -5));
+    }
+
+
+    @Test
+    public void tutorialTimeout()
+    {
+        final long start = 1000;
+        assertTrue(throttle.tryTutorial(MessageNode.NO_TORCHES_HERE, start));
+        assertFalse(throttle.tryTutorial(MessageNode.NO_TORCHES_HERE, start + MessageThrottle.TUTORIAL_TIMEOUT));
+        assertTrue(throttle.tryTutorial(MessageNode.STONE_MINING_HELP, start + 1));
+        assertTrue(throttle.tryTutorial(MessageNode.NO_TORCHES_HERE, start + MessageThrottle.TUTORIAL_TIMEOUT + 1));
+
+        throttle.reset(MessageNode.STONE_MINING_HELP);
+        assertTrue(throttle.tryTutorial(MessageNode.STONE_MINING_HELP, start + 2));
+    }
+
+
+    /**
+     * Only the same notification twice in a row is held back
+     */
+    @Test
+    public void notificationTimeout()
+    {
+        final long start = 1000;
+        assertTrue(throttle.tryNotification(MessageNode.NO_TORCHES_HERE, start));
+        assertFalse(throttle.tryNotification(MessageNode.NO_TORCHES_HERE, start + 1));
+        assertTrue(throttle.tryNotification(MessageNode.STONE_MINING_HELP, start + 2));
+        assertTrue(throttle.tryNotification(MessageNode.NO_TORCHES_HERE, start + 3));
+        assertTrue(throttle.tryNotification(MessageNode.NO_TORCHES_HERE, start + 4 + MessageThrottle.NOTIFICATION_TIMEOUT));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.config.messages.MessageNode;
+import com.extrahardmode.module.MsgPersistence;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the db access of the message counts against a temporary sqlite file
+ */
+public class TestMsgPersistence
+{
+    private final List<MessageNode> nodes = Arrays.asList(MessageNode.NO_TORCHES_HERE, MessageNode.STONE_MINING_HELP);
+
+    private final int players = 50;
+
+    private File dbFile;
+
+
+    @Before
+    public void prepare() throws IOException
+    {
+        dbFile = File.createTempFile("ehm_messages", ".db");
+        dbFile.deleteOnExit();
+    }
+
+
+    @After
+    public void cleanup()
+    {
+        dbFile.delete();
+        new File(dbFile.getPath() + "-wal").delete();
+        new File(dbFile.getPath() + "-shm").delete();
+    }
+
+
+    @Test
+    public void idsAreStable() throws SQLException
+    {
+        MsgPersistence persistence = new MsgPersistence(dbFile.getPath(), nodes);
+        persistence.open();
+        int first = persistence.getPlayerId("Diemex");
+        int second = persistence.getPlayerId("bigscary");
+        assertTrue(first != second);
+        persistence.close();
+
+        //new connection, no buffered ids
+        persistence.open();
+        assertEquals(first, persistence.getPlayerId("Diemex"));
+        assertEquals(second, persistence.getPlayerId("bigscary"));
+        persistence.close();
+    }
+
+
+    /**
+     * A Player who left is read from the db again when he comes back
+     */
+    @Test
+    public void forgottenPlayerKeepsCounts() throws SQLException
+    {
+        MsgPersistence persistence = new MsgPersistence(dbFile.getPath(), nodes);
+        persistence.open();
+        int id = persistence.getPlayerId("Diemex");
+        Table<String, MessageNode, Integer> counts = HashBasedTable.create();
+        counts.put("Diemex", MessageNode.NO_TORCHES_HERE, 3);
+        persistence.writeCounts(counts);
+
+        persistence.forgetPlayer("Diemex");
+        assertEquals(id, persistence.getPlayerId("Diemex"));
+        assertEquals(3, (int) persistence.loadCounts("Diemex").get(MessageNode.NO_TORCHES_HERE));
+        persistence.close();
+    }
+
+
+    @Test
+    public void writeAndLoad() throws SQLException
+    {
+        MsgPersistence persistence = new MsgPersistence(dbFile.getPath(), nodes);
+        persistence.open();
+        Table<String, MessageNode, Integer> counts = HashBasedTable.create();
+        counts.put("Diemex", MessageNode.NO_TORCHES_HERE, 3);
+        counts.put("Diemex", MessageNode.STONE_MINING_HELP, 1);
+        counts.put("Mitsugaru", MessageNode.NO_TORCHES_HERE, 7);
+        persistence.writeCounts(counts);
+        persistence.close();
+
+        persistence.open();
+        Map<MessageNode, Integer> loaded = persistence.loadCounts("Diemex");
+        assertEquals(3, (int) loaded.get(MessageNode.NO_TORCHES_HERE));
+        assertEquals(1, (int) loaded.get(MessageNode.STONE_MINING_HELP));
+        assertEquals(7, (int) persistence.loadCounts("Mitsugaru").get(MessageNode.NO_TORCHES_HERE));
+        assertEquals(0, (int) persistence.loadCounts("unknown").get(MessageNode.NO_TORCHES_HERE));
+        persistence.close();
+    }
+
+
+    /**
+     * Counts written the way we used to, with a connection and an unprepared statement for every query, are read and
+     * incremented by the pooled connection. The throughput is measured by BenchMsgPersist.
+     */
+    @Test
+    public void legacyCountsCompatible() throws SQLException
+    {
+        MsgPersistence persistence = new MsgPersistence(dbFile.getPath(), nodes);
+        persistence.open(); //creates the tables for the legacy queries aswell
+
+        legacyIncrements(players);
+        pooledIncrements(persistence, players);
+        legacyIncrements(players);
+        pooledIncrements(persistence, players);
+
+        //legacy and pooled both incremented twice per player
+        assertEquals(4, (int) persistence.loadCounts("player0").get(MessageNode.NO_TORCHES_HERE));
+        assertEquals(4, (int) persistence.loadCounts("player" + (players - 1)).get(MessageNode.NO_TORCHES_HERE));
+        persistence.close();
+    }
+
+
+    private void pooledIncrements(MsgPersistence persistence, int count) throws SQLException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            String name = "player" + i;
+            int value = persistence.loadCounts(name).get(MessageNode.NO_TORCHES_HERE);
+            Table<String, MessageNode, Integer> counts = HashBasedTable.create();
+            counts.put(name, MessageNode.NO_TORCHES_HERE, value + 1);
+            persistence.writeCounts(counts);
+        }
+    }
+
+
+    /** How the counts used to be incremented: a connection and an unprepared statement for every query */
+    private void legacyIncrements(int count) throws SQLException
+    {
+        String column = MessageNode.NO_TORCHES_HERE.getColumnName();
+        for (int i = 0; i < count; i++)
+        {
+            String name = "player" + i;
+            int id = 0;
+            Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+            Statement statement = conn.createStatement();
+            String playerIdQuery = String.format("SELECT id FROM players WHERE name = %s", '"' + name + '"');
+            ResultSet resultSet = statement.executeQuery(playerIdQuery);
+            if (resultSet.next())
+                id = resultSet.getInt("id");
+            if (id == 0)
+            {
+                statement.executeUpdate(String.format("INSERT INTO players (name) VALUES (%s)", '"' + name + '"'));
+                resultSet = statement.executeQuery(playerIdQuery);
+                if (resultSet.next())
+                    id = resultSet.getInt("id");
+                statement.executeUpdate(String.format("INSERT INTO messages (id) VALUES (%s)", id));
+            }
+            conn.close();
+
+            conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+            resultSet = conn.createStatement().executeQuery(String.format("SELECT * FROM messages WHERE id = %s", id));
+            int value = resultSet.next() ? resultSet.getInt(column) : 0;
+            conn.close();
+
+            conn = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
+            conn.createStatement().execute(String.format("UPDATE messages SET %s = %s WHERE id = %s", column, value + 1, id));
+            conn.close();
+        }
+    }
+}
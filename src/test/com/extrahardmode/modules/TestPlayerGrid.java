@@ -0,0 +1,102 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.mocks.MockPlayer;
+import com.extrahardmode.mocks.MockWorld;
+import com.extrahardmode.module.PlayerGrid;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test the proximity queries of the PlayerGrid, also across chunk borders
+ */
+public class TestPlayerGrid
+{
+    private final World world = new MockWorld("world").get();
+
+    private final PlayerGrid grid = new PlayerGrid();
+
+
+    private Player place(String name, double x, double y, double z)
+    {
+        Player player = new MockPlayer(name).get();
+        move(player, x, y, z);
+        return player;
+    }
+
+
+    private void move(Player player, double x, double y, double z)
+    {
+        Location location = new Location(world, x, y, z);
+        when(player.getLocation()).thenReturn(location);
+        grid.update(player, location);
+    }
+
+
+    @Test
+    public void anyWithin()
+    {
+        place("Diemex94", 10, 64, 10);
+        assertTrue(grid.anyWithin(new Location(world, 12, 64, 12), 16));
+        assertFalse(grid.anyWithin(new Location(world, 40, 64, 40), 16));
+        //height counts too
+        assertFalse(grid.anyWithin(new Location(world, 10, 100, 10), 16));
+    }
+
+
+    @Test
+    public void acrossChunks()
+    {
+        place("Diemex94", -1, 64, -1);
+        place("Max", 17, 64, 0);
+        assertTrue("Player in a neighbouring chunk", grid.anyWithin(new Location(world, 2, 64, 2), 4));
+
+        List<Player> found = grid.playersWithin(new Location(world, 8, 64, 0), 12);
+        assertEquals(2, found.size());
+        assertEquals(1, grid.playersWithin(new Location(world, 20, 64, 0), 12).size());
+    }
+
+
+    @Test
+    public void moveAndRemove()
+    {
+        Player player = place("Diemex94", 0, 64, 0);
+        move(player, 200, 64, 200);
+        assertEquals(1, grid.size());
+        assertFalse(grid.anyWithin(new Location(world, 0, 64, 0), 16));
+        assertTrue(grid.anyWithin(new Location(world, 200, 64, 200), 16));
+
+        grid.remove(player);
+        assertEquals(0, grid.size());
+        assertFalse(grid.anyWithin(new Location(world, 200, 64, 200), 16));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.modules;
+
+
+import com.extrahardmode.module.BlockList;
+import com.extrahardmode.module.SnapshotArea;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test that SnapshotArea maps world coordinates to the right snapshots
+ */
+public class TestSnapshotArea
+{
+    /**
+     * Area spanning the chunks -1..0 on x and z, chunk (0,-1) is not loaded
+     */
+    private final SnapshotArea area;
+
+
+    public TestSnapshotArea()
+    {
+        ChunkSnapshot minusMinus = mock(ChunkSnapshot.class);
+        when(minusMinus.getBlockTypeId(15, 64, 15)).thenReturn(Material.TORCH.getId());
+
+        ChunkSnapshot minusZero = mock(ChunkSnapshot.class);
+        when(minusZero.getBlockTypeId(0, 10, 0)).thenReturn(Material.LOG.getId());
+
+        ChunkSnapshot zeroZero = mock(ChunkSnapshot.class);
+        when(zeroZero.getBlockTypeId(3, 5, 7)).thenReturn(Material.WEB.getId());
+
+        // indexed by x * depth + z
+        area = new SnapshotArea(null, 256, -1, -1, 2, 2, new ChunkSnapshot[]{minusMinus, minusZero, null, zeroZero});
+    }
+
+
+    @Test
+    public void negativeCoords()
+    {
+        assertEquals(Material.TORCH, area.getType(-1, 64, -1));
+        assertEquals(Material.LOG, area.getType(-16, 10, 0));
+        assertEquals(Material.WEB, area.getType(3, 5, 7));
+    }
+
+
+    @Test
+    public void notCaptured()
+    {
+        assertFalse(area.isLoaded(5, -5));
+        assertEquals(-1, area.getTypeId(5, 10, -5));
+        assertEquals(-1, area.getTypeId(100, 10, 0));
+        assertEquals(-1, area.getTypeId(3, 300, 7));
+        assertTrue(area.isLoaded(-16, 0));
+    }
+
+
+    @Test
+    public void blockList()
+    {
+        BlockList list = new BlockList(1);
+        list.add(-30000000, 0, 30000000, 1);
+        list.add(-1, 255, -1, 2);
+        assertEquals(2, list.size());
+        assertEquals(-30000000, list.getX(0));
+        assertEquals(30000000, list.getZ(0));
+        assertEquals(255, list.getY(1));
+        assertEquals(-1, list.getZ(1));
+        assertEquals(2, list.getTag(1));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test that the TimingWheel runs tasks at the right tick and cancels them by owner
+ */
+public class TestTimingWheel
+{
+    private final TimingWheel wheel = new TimingWheel(8);
+
+    /** Ticks at which the tasks ran */
+    private final List<Integer> ran = new ArrayList<Integer>();
+
+    private int tick = 0;
+
+
+    private Runnable record()
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                ran.add(tick);
+            }
+        };
+    }
+
+
+    private void advance(int ticks)
+    {
+        for (int i = 0; i < ticks; i++)
+        {
+            tick++;
+            wheel.tick();
+        }
+    }
+
+
+    @Test
+    public void runsOnTime()
+    {
+        wheel.schedule(record(), 3, null, null);
+        wheel.schedule(record(), 8, null, null);
+        wheel.schedule(record(), 21, null, null); //more than 2 revolutions
+        wheel.schedule(record(), 0, null, null); //next tick
+        assertEquals(4, wheel.size());
+        advance(30);
+        assertEquals("[1, 3, 8, 21]", ran.toString());
+        assertEquals(0, wheel.size());
+    }
+
+
+    @Test
+    public void cancelByOwnerOrWorld()
+    {
+        Object zombie = new Object(), world = new Object(), nether = new Object();
+        wheel.schedule(record(), 5, zombie, world);
+        wheel.schedule(record(), 13, null, world);
+        wheel.schedule(record(), 5, null, nether);
+        assertEquals(1, wheel.cancel(zombie));
+        assertEquals(1, wheel.cancel(world));
+        assertEquals(1, wheel.size());
+        advance(20);
+        assertEquals("[5]", ran.toString());
+    }
+
+
+    /**
+     * Tasks can schedule and cancel other tasks while they run
+     */
+    @Test
+    public void scheduleWhileRunning()
+    {
+        final Object owner = new Object();
+        wheel.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                wheel.cancel(owner);
+                wheel.schedule(record(), 8, null, null);
+            }
+        }, 2, null, null);
+        wheel.schedule(record(), 2, owner, null);
+        advance(20);
+        assertEquals("Cancelled in the same tick, rescheduled one revolution later", "[10]", ran.toString());
+    }
+
+
+    @Test
+    public void exceptionDoesntStopOthers()
+    {
+        wheel.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                throw new IllegalStateException("expected");
+            }
+        }, 1, null, null);
+        wheel.schedule(record(), 1, null, null);
+        advance(1);
+        assertEquals("[1]", ran.toString());
+    }
+
+
+    @Test
+    public void metrics()
+    {
+        for (int i = 0; i < 5; i++)
+            wheel.schedule(record(), 4, null, null);
+        wheel.schedule(record(), 6, null, null);
+        assertEquals(6, wheel.size());
+        assertEquals(5, wheel.getMaxBucketSize());
+        wheel.clear();
+        assertEquals(0, wheel.size());
+        advance(10);
+        assertTrue(ran.isEmpty());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void powerOfTwo()
+    {
+        new TimingWheel(10);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of
+ * ExtraHardMode Server Plugin for Minecraft
+ *
+ * Copyright (C) 2012 Ryan Hamshire
+ * Copyright (C) 2013 Diemex
+ *
+ * ExtraHardMode is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ExtraHardMode is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero Public License
+ * along with ExtraHardMode.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.extrahardmode.service;
+
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test recording into TimingStats and the Timings task wrappers
+ */
+public class TestTimings
+{
+    @After
+    public void disable()
+    {
+        Timings.setEnabled(false);
+        Timings.reset();
+    }
+
+
+    @Test
+    public void record()
+    {
+        TimingStats stats = Timings.get("test#record");
+        stats.record(1000, 64);
+        stats.record(3000, -1);
+        assertEquals(2, stats.getCount());
+        assertEquals(4000, stats.getTotalNanos());
+        assertEquals(3000, stats.getMaxNanos());
+        assertEquals(64, stats.getAllocatedBytes());
+        assertEquals(1, stats.getBucket(10)); //512 <= 1000 < 1024
+        assertEquals(1, stats.getBucket(12)); //2048 <= 3000 < 4096
+
+        Timings.reset();
+        assertSame(stats, Timings.get("test#record"));
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMaxNanos());
+        assertEquals(0, stats.getBucket(10));
+    }
+
+
+    @Test
+    public void hugeDurationsGoIntoLastBucket()
+    {
+        TimingStats stats = Timings.get("test#huge");
+        stats.record(Long.MAX_VALUE, 0);
+        assertEquals(1, stats.getBucket(TimingStats.BUCKETS - 1));
+    }
+
+
+    @Test
+    public void oneShotTasksAreNotWrappedWhenDisabled()
+    {
+        Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        };
+        assertSame(task, Timings.wrap(task));
+        Timings.setEnabled(true);
+        assertNotSame(task, Timings.wrap(task));
+    }
+
+
+    @Test
+    public void wrappedTasksOnlyRecordWhenEnabled()
+    {
+        final int[] runs = new int[1];
+        Runnable task = Timings.wrap("test#wrapped", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                runs[0]++;
+            }
+        });
+        task.run();
+        assertEquals(1, runs[0]);
+        assertEquals(0, Timings.get("test#wrapped").getCount());
+
+        Timings.setEnabled(true);
+        task.run();
+        assertEquals(2, runs[0]);
+        assertEquals(1, Timings.get("test#wrapped").getCount());
+    }
+}
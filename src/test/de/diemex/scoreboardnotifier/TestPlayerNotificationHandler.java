@@ -0,0 +1,52 @@
+package de.diemex.scoreboardnotifier;
+
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test that only the changed lines of the scoreboard get redrawn
+ */
+public class TestPlayerNotificationHandler
+{
+    @Test
+    public void diff()
+    {
+        Map<String, Integer> rendered = new HashMap<String, Integer>();
+        rendered.put("old message", 2);
+        rendered.put("----------------", 1);
+        rendered.put("stays", 0);
+
+        Map<String, Integer> wanted = new HashMap<String, Integer>();
+        wanted.put("new message", 3);
+        wanted.put("----------------", 2);
+        wanted.put("stays", 0);
+
+        List<String> removed = new ArrayList<String>();
+        Map<String, Integer> changed = PlayerNotificationHandler.diff(rendered, wanted, removed);
+
+        assertEquals("[old message]", removed.toString());
+        assertEquals(2, changed.size());
+        assertEquals(Integer.valueOf(3), changed.get("new message"));
+        assertEquals("Separator moved", Integer.valueOf(2), changed.get("----------------"));
+    }
+
+
+    @Test
+    public void nothingChanged()
+    {
+        Map<String, Integer> lines = new HashMap<String, Integer>();
+        lines.put("a", 1);
+        lines.put("b", 0);
+        List<String> removed = new ArrayList<String>();
+        assertTrue(PlayerNotificationHandler.diff(lines, new HashMap<String, Integer>(lines), removed).isEmpty());
+        assertTrue(removed.isEmpty());
+    }
+}